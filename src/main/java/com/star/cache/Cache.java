@@ -1,5 +1,6 @@
 package com.star.cache;
 
+import com.star.cache.stats.CacheStats;
 import com.star.exception.CacheException;
 
 /**
@@ -20,6 +21,17 @@ public interface Cache<K, V> {
      */
     V get(K key) throws CacheException;
 
+    /**
+     * 从缓存中获得值，不记录命中统计，也不影响淘汰顺序；默认同{@link #get(Object)}
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    default V peek(K key) throws CacheException {
+        return get(key);
+    }
+
     /**
      * 数据存入缓存
      *
@@ -46,4 +58,13 @@ public interface Cache<K, V> {
      */
     void clear() throws CacheException;
 
+    /**
+     * 缓存统计快照，未开启统计的实现返回{@link CacheStats#EMPTY}
+     *
+     * @return 统计快照
+     */
+    default CacheStats stats() {
+        return CacheStats.EMPTY;
+    }
+
 }
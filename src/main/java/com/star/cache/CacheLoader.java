@@ -0,0 +1,55 @@
+package com.star.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 缓存加载器，缓存未命中时计算值
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+    /**
+     * 加载单个值
+     *
+     * @param key 键
+     * @return 值，返回null表示不存在，不会放入缓存
+     * @throws Exception 加载异常
+     */
+    V load(K key) throws Exception;
+
+    /**
+     * 批量加载，默认逐个调用{@link #load(Object)}，可覆盖为一次批量查询
+     *
+     * @param keys 未命中的键
+     * @return 键值对，不存在的键可以不返回
+     * @throws Exception 加载异常
+     */
+    default Map<K, V> loadAll(final Iterable<? extends K> keys) throws Exception {
+        final Map<K, V> result = new HashMap<>();
+        for (final K key : keys) {
+            final V value = load(key);
+            if (Objects.nonNull(value)) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 刷新时重新加载，默认调用{@link #load(Object)}
+     *
+     * @param key      键
+     * @param oldValue 旧值
+     * @return 新值，返回null时保留旧值
+     * @throws Exception 加载异常
+     */
+    default V reload(final K key, final V oldValue) throws Exception {
+        return load(key);
+    }
+}
@@ -0,0 +1,53 @@
+package com.star.cache;
+
+import com.star.exception.CacheException;
+
+import java.util.Map;
+
+/**
+ * 自动加载的缓存接口
+ * <p>
+ * {@link #get(Object)}未命中时通过{@link CacheLoader}加载并放入缓存，同一个键的并发加载只调用一次加载器
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public interface LoadingCache<K, V> extends Cache<K, V> {
+
+    /**
+     * 从缓存中获得值，未命中时加载
+     *
+     * @param key 键
+     * @return 值，加载器返回null时为null
+     * @throws CacheException 加载失败
+     */
+    @Override
+    V get(K key) throws CacheException;
+
+    /**
+     * 从缓存中获得值，未命中时不加载
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    V getIfPresent(K key) throws CacheException;
+
+    /**
+     * 批量获得值，所有未命中的键交给{@link CacheLoader#loadAll(Iterable)}一次加载
+     *
+     * @param keys 键
+     * @return 键值对，不存在的键不包含在内
+     * @throws CacheException 加载失败
+     */
+    Map<K, V> getAll(Iterable<? extends K> keys) throws CacheException;
+
+    /**
+     * 异步刷新，刷新完成前仍返回旧值
+     *
+     * @param key 键
+     * @throws CacheException 缓存异常
+     */
+    void refresh(K key) throws CacheException;
+}
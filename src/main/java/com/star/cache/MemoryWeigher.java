@@ -0,0 +1,64 @@
+package com.star.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按对象布局估算堆内存占用，假定64位JVM开启压缩指针：对象头12字节，数组头16字节，按8字节对齐
+ *
+ * @author starhq
+ */
+enum MemoryWeigher implements Weigher<Object, Object> {
+
+    INSTANCE;
+
+    /**
+     * 数组头
+     */
+    private static final long ARRAY_HEADER = 16;
+    /**
+     * String对象本身，不含字符数组
+     */
+    private static final long STRING_SHALLOW = 24;
+    /**
+     * ByteBuffer对象本身，不含字节数组
+     */
+    private static final long BUFFER_SHALLOW = 48;
+    /**
+     * 无法估算的对象
+     */
+    private static final long UNKNOWN = 16;
+
+    @Override
+    public int weigh(final Object key, final Object value) {
+        return (int) Math.min(sizeOf(key) + sizeOf(value), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 估算单个对象的大小
+     *
+     * @param obj 对象
+     * @return 字节数
+     */
+    private static long sizeOf(final Object obj) {
+        if (obj instanceof byte[]) {
+            return align(ARRAY_HEADER + ((byte[]) obj).length);
+        }
+        if (obj instanceof CharSequence) {
+            return STRING_SHALLOW + align(ARRAY_HEADER + 2L * ((CharSequence) obj).length());
+        }
+        if (obj instanceof char[]) {
+            return align(ARRAY_HEADER + 2L * ((char[]) obj).length);
+        }
+        if (obj instanceof ByteBuffer) {
+            return BUFFER_SHALLOW + align(ARRAY_HEADER + ((ByteBuffer) obj).capacity());
+        }
+        if (obj instanceof Long || obj instanceof Double) {
+            return 24;
+        }
+        return UNKNOWN;
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,16 @@
+package com.star.cache;
+
+/**
+ * 每个条目权重为1
+ *
+ * @author starhq
+ */
+enum SingletonWeigher implements Weigher<Object, Object> {
+
+    INSTANCE;
+
+    @Override
+    public int weigh(final Object key, final Object value) {
+        return 1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.star.cache;
+
+import com.star.io.serializer.Serializer;
+
+/**
+ * 缓存条目权重计算
+ * <p>
+ * 按权重限制容量的缓存用它计算每个条目的权重，条目存入时计算一次，之后不再变化
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * 每个条目权重为1，即按条目数限制容量
+     *
+     * @param <K> 键
+     * @param <V> 值
+     * @return 权重计算
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Weigher<K, V> singleton() {
+        return (Weigher<K, V>) SingletonWeigher.INSTANCE;
+    }
+
+    /**
+     * 估算键和值占用的堆内存字节数，byte[]、ByteBuffer、字符串、基本类型包装类按对象布局估算，其它对象按固定大小估算
+     *
+     * @param <K> 键
+     * @param <V> 值
+     * @return 权重计算
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Weigher<K, V> memory() {
+        return (Weigher<K, V>) MemoryWeigher.INSTANCE;
+    }
+
+    /**
+     * 以值序列化后的字节数为权重，适合结构复杂、无法直接估算的值，每次存入都会序列化一次
+     *
+     * @param serializer 序列化工具
+     * @param <K>        键
+     * @param <V>        值
+     * @return 权重计算
+     */
+    static <K, V> Weigher<K, V> serialized(final Serializer serializer) {
+        return (key, value) -> serializer.serialize(value).length;
+    }
+
+    /**
+     * 计算权重
+     *
+     * @param key   键
+     * @param value 值
+     * @return 权重，不能为负
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,211 @@
+package com.star.cache.concurrent;
+
+import com.star.cache.Cache;
+import com.star.exception.CacheException;
+import com.star.lang.Assert;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存并发实现
+ * <p>
+ * 与{@link com.star.cache.simple.SimpleCache}一样以弱引用持有键，键被GC回收后对应的缓存自动失效<br>
+ * 底层为{@link ConcurrentHashMap}，写操作只CAS或锁住单个桶，读操作不加锁，没有全局锁<br>
+ * 已回收键的清理在写操作中顺带完成，读路径不做任何额外工作
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 池，存放缓存
+     */
+    private final ConcurrentMap<Object, V> cache;
+
+    /**
+     * 已被回收的键
+     */
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+
+    /**
+     * 构造方法
+     */
+    public ConcurrentCache() {
+        this(16);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param initialCapacity 初始容量
+     */
+    public ConcurrentCache(final int initialCapacity) {
+        this.cache = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V get(final K key) throws CacheException {
+        Assert.notNull(key, "concurrent cache key can't be null");
+        return cache.get(new LookupKey<>(key));
+    }
+
+    /**
+     * 数据存入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        Assert.notNull(key, "concurrent cache key can't be null");
+        Assert.notNull(value, "concurrent cache value can't be null");
+        expunge();
+        cache.put(new WeakKey<>(key, queue), value);
+        return value;
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        Assert.notNull(key, "concurrent cache key can't be null");
+        expunge();
+        return cache.remove(new LookupKey<>(key));
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        expunge();
+        cache.clear();
+    }
+
+    /**
+     * 缓存中的数据量，包含尚未清理的已回收键
+     *
+     * @return 数据量
+     */
+    public int size() {
+        expunge();
+        return cache.size();
+    }
+
+    /**
+     * 清理已被回收的键
+     */
+    private void expunge() {
+        Object ref;
+        while (Objects.nonNull(ref = queue.poll())) {
+            cache.remove(ref);
+        }
+    }
+
+    /**
+     * 键的包装，按被包装对象的equals比较
+     */
+    private interface KeyReference {
+
+        /**
+         * 被包装的键
+         *
+         * @return 键，已被回收时为null
+         */
+        Object get();
+    }
+
+    /**
+     * 比较两个键是否相等
+     *
+     * @param self  当前键
+     * @param other 另一个对象
+     * @return 是否相等
+     */
+    private static boolean keyEquals(final KeyReference self, final Object other) {
+        if (self == other) {
+            return true;
+        }
+        if (!(other instanceof KeyReference)) {
+            return false;
+        }
+        final Object key = self.get();
+        return Objects.nonNull(key) && key.equals(((KeyReference) other).get());
+    }
+
+    /**
+     * 存入map的弱引用键
+     *
+     * @param <K> 键
+     */
+    private static final class WeakKey<K> extends WeakReference<K> implements KeyReference {
+
+        private final int hash;
+
+        WeakKey(final K key, final ReferenceQueue<K> queue) {
+            super(key, queue);
+            this.hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return keyEquals(this, obj);
+        }
+    }
+
+    /**
+     * 查询用的强引用键，生命周期只在一次调用内
+     *
+     * @param <K> 键
+     */
+    private static final class LookupKey<K> implements KeyReference {
+
+        private final K key;
+
+        LookupKey(final K key) {
+            this.key = key;
+        }
+
+        @Override
+        public K get() {
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return keyEquals(this, obj);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.star.cache.loading;
+
+import com.star.cache.Cache;
+import com.star.cache.CacheLoader;
+import com.star.cache.LoadingCache;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.StatsCounter;
+import com.star.exception.CacheException;
+import com.star.lang.Assert;
+import com.star.log.Log;
+import com.star.log.LogFactory;
+import com.star.string.StringUtil;
+import com.star.thread.GlobalThreadPool;
+import com.star.time.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自动加载缓存的默认实现，装饰任意{@link Cache}
+ * <p>
+ * 同一个键的并发未命中只有一个线程调用加载器，其余线程等待其结果<br>
+ * 开启写入后刷新时，超过刷新时间的值仍然直接返回，同时在后台线程中重新加载，加载失败则继续使用旧值<br>
+ * 加载或刷新期间键被删除、覆盖或缓存被清空时，加载结果不再写回缓存，不会让删除的值复活或旧值覆盖新值<br>
+ * 统计器只记录加载次数和耗时，命中与未命中由底层缓存记录，两者传入同一个统计器即可得到完整的统计
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class DefaultLoadingCache<K, V> implements LoadingCache<K, V> {
+
+    /**
+     * 日志
+     */
+    private static final Log LOG = LogFactory.get(DefaultLoadingCache.class);
+
+    /**
+     * 存放数据的缓存
+     */
+    private final Cache<K, Entry<V>> cache;
+    /**
+     * 加载器
+     */
+    private final CacheLoader<K, V> loader;
+    /**
+     * 写入后刷新时间(毫秒)，0为不刷新
+     */
+    private final long refreshAfterWrite;
+    /**
+     * 后台刷新的执行器
+     */
+    private final Executor executor;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+    /**
+     * 正在加载的键，删除、覆盖和清空时移除，加载完成时只有令牌仍在才写回
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> loadings = new ConcurrentHashMap<>();
+    /**
+     * 正在刷新的键及其令牌，规则同{@link #loadings}
+     */
+    private final ConcurrentMap<K, Object> refreshings = new ConcurrentHashMap<>();
+
+    /**
+     * 构造方法
+     *
+     * @param cache  存放数据的缓存
+     * @param loader 加载器
+     */
+    public DefaultLoadingCache(final Cache<K, Entry<V>> cache, final CacheLoader<K, V> loader) {
+        this(cache, loader, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 构造方法，后台刷新使用{@link GlobalThreadPool}
+     *
+     * @param cache             存放数据的缓存
+     * @param loader            加载器
+     * @param refreshAfterWrite 写入后刷新时间，0为不刷新
+     * @param unit              时间单位
+     */
+    public DefaultLoadingCache(final Cache<K, Entry<V>> cache, final CacheLoader<K, V> loader,
+                               final long refreshAfterWrite, final TimeUnit unit) {
+        this(cache, loader, refreshAfterWrite, unit, GlobalThreadPool::execute);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param cache             存放数据的缓存
+     * @param loader            加载器
+     * @param refreshAfterWrite 写入后刷新时间，0为不刷新
+     * @param unit              时间单位
+     * @param executor          后台刷新的执行器
+     */
+    public DefaultLoadingCache(final Cache<K, Entry<V>> cache, final CacheLoader<K, V> loader,
+                               final long refreshAfterWrite, final TimeUnit unit, final Executor executor) {
+        this(cache, loader, refreshAfterWrite, unit, executor, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param cache             存放数据的缓存
+     * @param loader            加载器
+     * @param refreshAfterWrite 写入后刷新时间，0为不刷新
+     * @param unit              时间单位
+     * @param executor          后台刷新的执行器
+     * @param statsCounter      统计器，记录加载次数和耗时
+     */
+    public DefaultLoadingCache(final Cache<K, Entry<V>> cache, final CacheLoader<K, V> loader,
+                               final long refreshAfterWrite, final TimeUnit unit, final Executor executor,
+                               final StatsCounter statsCounter) {
+        Assert.notNull(cache, "loading cache delegate can't be null");
+        Assert.notNull(loader, "loading cache loader can't be null");
+        Assert.isTrue(refreshAfterWrite >= 0, "loading cache refresh time can't be negative");
+        Assert.notNull(statsCounter, "loading cache stats counter can't be null");
+        this.cache = cache;
+        this.loader = loader;
+        this.refreshAfterWrite = unit.toMillis(refreshAfterWrite);
+        this.executor = executor;
+        this.statsCounter = statsCounter;
+    }
+
+    /**
+     * 从缓存中获得值，未命中时加载
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 加载失败
+     */
+    @Override
+    public V get(final K key) throws CacheException {
+        final Entry<V> entry = cache.get(key);
+        if (Objects.nonNull(entry)) {
+            refreshIfNeeded(key, entry);
+            return entry.value;
+        }
+        return load(key);
+    }
+
+    /**
+     * 从缓存中获得值，未命中时不加载
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V getIfPresent(final K key) throws CacheException {
+        final Entry<V> entry = cache.get(key);
+        if (Objects.isNull(entry)) {
+            return null;
+        }
+        refreshIfNeeded(key, entry);
+        return entry.value;
+    }
+
+    /**
+     * 从缓存中获得值，不加载，不记录统计，不触发刷新
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V peek(final K key) throws CacheException {
+        final Entry<V> entry = cache.peek(key);
+        return Objects.isNull(entry) ? null : entry.value;
+    }
+
+    /**
+     * 批量获得值，未命中的键一次交给加载器
+     *
+     * @param keys 键
+     * @return 键值对
+     * @throws CacheException 加载失败
+     */
+    @Override
+    public Map<K, V> getAll(final Iterable<? extends K> keys) throws CacheException {
+        final Map<K, V> result = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+        for (final K key : keys) {
+            if (result.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            final Entry<V> entry = cache.get(key);
+            if (Objects.nonNull(entry)) {
+                refreshIfNeeded(key, entry);
+                result.put(key, entry.value);
+                continue;
+            }
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = loadings.putIfAbsent(key, future);
+            if (Objects.nonNull(existing)) {
+                waiting.put(key, existing);
+                continue;
+            }
+            // 拿到加载权之前其他线程可能刚加载完
+            final Entry<V> loaded = cache.peek(key);
+            if (Objects.isNull(loaded)) {
+                owned.put(key, future);
+            } else {
+                future.complete(loaded.value);
+                loadings.remove(key, future);
+                result.put(key, loaded.value);
+            }
+        }
+        if (!owned.isEmpty()) {
+            loadAll(owned, result);
+        }
+        for (final Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+            final V value = await(entry.getKey(), entry.getValue());
+            if (Objects.nonNull(value)) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 异步刷新
+     *
+     * @param key 键
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void refresh(final K key) throws CacheException {
+        final Entry<V> entry = cache.get(key);
+        final Object token = new Object();
+        if (Objects.isNull(refreshings.putIfAbsent(key, token))) {
+            submitRefresh(key, Objects.isNull(entry) ? null : entry.value, token);
+        }
+    }
+
+    /**
+     * 数据存入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        invalidateLoading(key);
+        cache.put(key, new Entry<>(value, SystemClock.now()));
+        return value;
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        invalidateLoading(key);
+        final Entry<V> entry = cache.remove(key);
+        return Objects.isNull(entry) ? null : entry.value;
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        loadings.clear();
+        refreshings.clear();
+        cache.clear();
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * 加载单个键，同一个键同时只有一个线程加载
+     *
+     * @param key 键
+     * @return 值
+     */
+    private V load(final K key) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = loadings.putIfAbsent(key, future);
+        if (Objects.nonNull(existing)) {
+            return await(key, existing);
+        }
+        try {
+            // 拿到加载权之前其他线程可能刚加载完
+            final Entry<V> entry = cache.peek(key);
+            if (Objects.nonNull(entry)) {
+                future.complete(entry.value);
+                return entry.value;
+            }
+            final long start = System.nanoTime();
+            final V value;
+            try {
+                value = loader.load(key);
+            } catch (Exception | Error e) {
+                statsCounter.recordLoadFailure(System.nanoTime() - start);
+                throw e;
+            }
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            if (Objects.nonNull(value)) {
+                putIfCurrent(loadings, key, future, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw loadFailure(key, e);
+        } catch (Error e) {
+            // 等待中的线程须被唤醒，Error原样抛出
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadings.remove(key, future);
+        }
+    }
+
+    /**
+     * 批量加载本线程取得加载权的键
+     *
+     * @param owned  取得加载权的键
+     * @param result 结果
+     */
+    private void loadAll(final Map<K, CompletableFuture<V>> owned, final Map<K, V> result) {
+        final long start = System.nanoTime();
+        try {
+            final Map<K, V> loaded = loader.loadAll(owned.keySet());
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            for (final Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+                final V value = Objects.isNull(loaded) ? null : loaded.get(entry.getKey());
+                if (Objects.nonNull(value)) {
+                    putIfCurrent(loadings, entry.getKey(), entry.getValue(), value);
+                    result.put(entry.getKey(), value);
+                }
+                entry.getValue().complete(value);
+            }
+        } catch (Exception e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            for (final CompletableFuture<V> future : owned.values()) {
+                future.completeExceptionally(e);
+            }
+            throw loadFailure(owned.keySet(), e);
+        } catch (Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            for (final CompletableFuture<V> future : owned.values()) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            owned.forEach(loadings::remove);
+        }
+    }
+
+    /**
+     * 等待其他线程的加载结果
+     *
+     * @param key    键
+     * @param future 加载结果
+     * @return 值
+     */
+    private V await(final K key, final CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(StringUtil.format("waiting for loading key {} interrupted", key), e);
+        } catch (ExecutionException e) {
+            throw loadFailure(key, e.getCause());
+        }
+    }
+
+    /**
+     * 到达刷新时间时提交后台刷新
+     *
+     * @param key   键
+     * @param entry 当前数据
+     */
+    private void refreshIfNeeded(final K key, final Entry<V> entry) {
+        if (refreshAfterWrite > 0 && SystemClock.now() - entry.writeTime >= refreshAfterWrite) {
+            final Object token = new Object();
+            if (Objects.isNull(refreshings.putIfAbsent(key, token))) {
+                submitRefresh(key, entry.value, token);
+            }
+        }
+    }
+
+    /**
+     * 提交后台刷新，调用前须已将键和令牌放入正在刷新的集合
+     *
+     * @param key      键
+     * @param oldValue 旧值
+     * @param token    令牌
+     */
+    private void submitRefresh(final K key, final V oldValue, final Object token) {
+        try {
+            executor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    final V value = Objects.isNull(oldValue) ? loader.load(key) : loader.reload(key, oldValue);
+                    statsCounter.recordLoadSuccess(System.nanoTime() - start);
+                    if (Objects.nonNull(value)) {
+                        putIfCurrent(refreshings, key, token, value);
+                    }
+                } catch (Exception e) {
+                    statsCounter.recordLoadFailure(System.nanoTime() - start);
+                    LOG.warn(e, "refresh key {} failure, keep the stale value", key);
+                } catch (Error e) {
+                    statsCounter.recordLoadFailure(System.nanoTime() - start);
+                    throw e;
+                } finally {
+                    refreshings.remove(key, token);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshings.remove(key, token);
+            throw new CacheException(StringUtil.format("submit refresh of key {} failure,the reason is: {}", key,
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 使正在进行的加载和刷新失效，它们的结果不再写回缓存，须在修改缓存之前调用
+     *
+     * @param key 键
+     */
+    private void invalidateLoading(final K key) {
+        loadings.remove(key);
+        refreshings.remove(key);
+    }
+
+    /**
+     * 令牌仍在时写回缓存
+     * <p>
+     * 检查和写入在令牌所在的桶锁内完成，与{@link #invalidateLoading}互斥：先写回的会被随后的删除或覆盖处理，
+     * 后写回的发现令牌已不在而放弃
+     *
+     * @param tokens 令牌
+     * @param key    键
+     * @param token  加载开始时的令牌
+     * @param value  加载的值
+     */
+    private <T> void putIfCurrent(final ConcurrentMap<K, T> tokens, final K key, final T token, final V value) {
+        tokens.computeIfPresent(key, (k, current) -> {
+            if (current == token) {
+                cache.put(key, new Entry<>(value, SystemClock.now()));
+            }
+            return current;
+        });
+    }
+
+    /**
+     * 加载失败的异常
+     *
+     * @param key   键
+     * @param cause 原因
+     * @return 缓存异常
+     */
+    private static CacheException loadFailure(final Object key, final Throwable cause) {
+        return cause instanceof CacheException ? (CacheException) cause
+                : new CacheException(StringUtil.format("load key {} failure,the reason is: {}", key,
+                cause.getMessage()), cause);
+    }
+
+    /**
+     * 缓存中存放的数据，附带写入时间用于判断是否需要刷新
+     *
+     * @param <V> 值
+     */
+    public static final class Entry<V> {
+
+        /**
+         * 值
+         */
+        private final V value;
+        /**
+         * 写入时间
+         */
+        private final long writeTime;
+
+        Entry(final V value, final long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+
+        /**
+         * 值
+         *
+         * @return 值
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * 写入时间
+         *
+         * @return 写入时间
+         */
+        public long getWriteTime() {
+            return writeTime;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package com.star.cache.offheap;
+
+import com.star.cache.Cache;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.StatsCounter;
+import com.star.exception.CacheException;
+import com.star.io.serializer.Serializer;
+import com.star.lang.Assert;
+import com.star.string.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 堆外缓存
+ * <p>
+ * 值经{@link Serializer}序列化后存放在堆外的直接内存slab中，堆内只保留键和定长的位置索引，大量数据不增加GC压力<br>
+ * slab按需分配，每个slab切分成同一规格的块(64字节起按2倍递增)，值放入能容纳它的最小规格的块<br>
+ * 堆外内存达到上限后，在同规格的块中按CLOCK算法淘汰：读取时打上访问标记，淘汰指针扫过有标记的块时清除标记，遇到无标记的块即淘汰；
+ * 某个规格还没有任何块时，从slab最多的规格收回最后一个slab，淘汰其中所有的值后切分成该规格的块，
+ * 先前只放过小值的缓存之后也能放入大值
+ * <p>
+ * 读操作只修改访问标记，使用读锁；写操作使用写锁
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class OffHeapCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 默认slab大小，4M
+     */
+    public static final int DEFAULT_SLAB_SIZE = 4 << 20;
+    /**
+     * 最小块大小
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+    /**
+     * 块头，存放值的长度
+     */
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * 序列化工具
+     */
+    private final Serializer serializer;
+    /**
+     * slab大小
+     */
+    private final int slabSize;
+    /**
+     * 最多分配的slab数
+     */
+    private final int maxSlabs;
+    /**
+     * 已分配的slab
+     */
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    /**
+     * 各规格的块
+     */
+    private final SizeClass[] classes;
+    /**
+     * 键到块的索引，值的高32位为规格，低32位为块编号
+     */
+    private final OffHeapIndex<K> index = new OffHeapIndex<>();
+    /**
+     * 已存放的值的字节数
+     */
+    private long usedBytes;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+
+    /**
+     * 锁
+     */
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock(false);
+    /**
+     * 写锁
+     */
+    private final ReentrantReadWriteLock.WriteLock writeLock = cacheLock.writeLock();
+    /**
+     * 读锁
+     */
+    private final ReentrantReadWriteLock.ReadLock readLock = cacheLock.readLock();
+
+    /**
+     * 构造方法
+     *
+     * @param serializer 序列化工具
+     * @param capacity   堆外内存上限(字节)
+     */
+    public OffHeapCache(final Serializer serializer, final long capacity) {
+        this(serializer, capacity, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param serializer 序列化工具
+     * @param capacity   堆外内存上限(字节)
+     * @param slabSize   slab大小，须为2的幂，同时也是单个值的上限
+     */
+    public OffHeapCache(final Serializer serializer, final long capacity, final int slabSize) {
+        this(serializer, capacity, slabSize, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param serializer   序列化工具
+     * @param capacity     堆外内存上限(字节)
+     * @param slabSize     slab大小，须为2的幂，同时也是单个值的上限
+     * @param statsCounter 统计器，记录命中、未命中和淘汰
+     */
+    public OffHeapCache(final Serializer serializer, final long capacity, final int slabSize,
+                        final StatsCounter statsCounter) {
+        Assert.notNull(serializer, "off heap cache serializer can't be null");
+        Assert.notNull(statsCounter, "off heap cache stats counter can't be null");
+        this.statsCounter = statsCounter;
+        Assert.isTrue(slabSize >= MIN_CHUNK_SIZE && Integer.bitCount(slabSize) == 1,
+                "off heap cache slab size must be a power of 2 and not less than 64");
+        Assert.isTrue(capacity >= slabSize, "off heap cache capacity must not be less than slab size");
+        this.serializer = serializer;
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(capacity / slabSize, Integer.MAX_VALUE);
+        this.classes = new SizeClass[Integer.numberOfTrailingZeros(slabSize / MIN_CHUNK_SIZE) + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+        }
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final K key) throws CacheException {
+        Assert.notNull(key, "off heap cache key can't be null");
+        final byte[] bytes;
+        readLock.lock();
+        try {
+            final long ref = index.get(key);
+            if (ref == OffHeapIndex.ABSENT) {
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            statsCounter.recordHits(1);
+            classes[(int) (ref >>> 32)].referenced[(int) ref] = 1;
+            bytes = read(ref);
+        } finally {
+            readLock.unlock();
+        }
+        return (V) serializer.deserialize(bytes);
+    }
+
+    /**
+     * 从缓存中获得值，不记录统计，不设置访问标记
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V peek(final K key) throws CacheException {
+        Assert.notNull(key, "off heap cache key can't be null");
+        final byte[] bytes;
+        readLock.lock();
+        try {
+            final long ref = index.get(key);
+            if (ref == OffHeapIndex.ABSENT) {
+                return null;
+            }
+            bytes = read(ref);
+        } finally {
+            readLock.unlock();
+        }
+        return (V) serializer.deserialize(bytes);
+    }
+
+    /**
+     * 数据存入缓存，值超过slab大小时抛出异常
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        Assert.notNull(key, "off heap cache key can't be null");
+        Assert.notNull(value, "off heap cache value can't be null");
+        final byte[] bytes = serializer.serialize(value);
+        if (bytes.length + HEADER_SIZE > slabSize) {
+            throw new CacheException(StringUtil.format("off heap cache value of key {} is {} bytes, exceeds slab size {}",
+                    key, bytes.length, slabSize));
+        }
+        writeLock.lock();
+        try {
+            release(index.remove(key));
+            final int classIndex = classIndexOf(bytes.length + HEADER_SIZE);
+            final SizeClass sizeClass = classes[classIndex];
+            final int chunk = allocate(sizeClass);
+            final ByteBuffer slab = slabs.get(sizeClass.slabOf(chunk)).duplicate();
+            final int offset = sizeClass.offsetOf(chunk);
+            slab.putInt(offset, bytes.length);
+            slab.position(offset + HEADER_SIZE);
+            slab.put(bytes);
+            sizeClass.owners[chunk] = key;
+            sizeClass.lengths[chunk] = bytes.length;
+            usedBytes += bytes.length;
+            index.put(key, ((long) classIndex << 32) | chunk);
+        } finally {
+            writeLock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(final K key) throws CacheException {
+        Assert.notNull(key, "off heap cache key can't be null");
+        final byte[] bytes;
+        writeLock.lock();
+        try {
+            final long ref = index.remove(key);
+            if (ref == OffHeapIndex.ABSENT) {
+                return null;
+            }
+            bytes = read(ref);
+            release(ref);
+        } finally {
+            writeLock.unlock();
+        }
+        return (V) serializer.deserialize(bytes);
+    }
+
+    /**
+     * 清空缓存，已分配的slab交由GC回收
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        writeLock.lock();
+        try {
+            index.clear();
+            for (SizeClass sizeClass : classes) {
+                sizeClass.clear();
+            }
+            slabs.clear();
+            usedBytes = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 缓存中的数据量
+     *
+     * @return 数据量
+     */
+    public int size() {
+        readLock.lock();
+        try {
+            return index.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 已分配的堆外内存字节数
+     *
+     * @return 字节数
+     */
+    public long getOffHeapAllocated() {
+        readLock.lock();
+        try {
+            return (long) slabs.size() * slabSize;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 堆外内存中存放的值的字节数，不含块头和块内空闲
+     *
+     * @return 字节数
+     */
+    public long getOffHeapUsed() {
+        readLock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 堆内索引和块元数据占用的字节数估算，不含键对象本身
+     *
+     * @return 字节数
+     */
+    public long getHeapUsed() {
+        readLock.lock();
+        try {
+            long bytes = index.heapBytes();
+            for (SizeClass sizeClass : classes) {
+                bytes += sizeClass.heapBytes();
+            }
+            return bytes;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * 分配一个块，没有空闲块时先申请新slab，slab用尽后按CLOCK淘汰，该规格没有任何块时从其他规格收回slab
+     *
+     * @param sizeClass 规格
+     * @return 块编号
+     */
+    private int allocate(final SizeClass sizeClass) {
+        if (sizeClass.freeCount == 0) {
+            if (slabs.size() < maxSlabs) {
+                sizeClass.addSlab(slabs.size(), slabSize);
+                slabs.add(ByteBuffer.allocateDirect(slabSize));
+            } else if (sizeClass.count == 0) {
+                reassignSlab(sizeClass);
+            }
+        }
+        if (sizeClass.freeCount > 0) {
+            return sizeClass.free[--sizeClass.freeCount];
+        }
+        while (true) {
+            final int chunk = sizeClass.hand;
+            sizeClass.hand = (chunk + 1) % sizeClass.count;
+            if (sizeClass.referenced[chunk] != 0) {
+                sizeClass.referenced[chunk] = 0;
+                continue;
+            }
+            index.remove(sizeClass.owners[chunk]);
+            usedBytes -= sizeClass.lengths[chunk];
+            sizeClass.owners[chunk] = null;
+            statsCounter.recordEviction();
+            return chunk;
+        }
+    }
+
+    /**
+     * 从slab最多的规格收回最后一个slab，淘汰其中的值，切分成目标规格的块
+     * <p>
+     * 所有slab都属于某个规格，目标规格没有块时其他规格至少有一个slab
+     *
+     * @param target 目标规格
+     */
+    private void reassignSlab(final SizeClass target) {
+        SizeClass victim = classes[0];
+        for (SizeClass sizeClass : classes) {
+            if (sizeClass.slabCount(slabSize) > victim.slabCount(slabSize)) {
+                victim = sizeClass;
+            }
+        }
+        final int first = victim.count - slabSize / victim.chunkSize;
+        for (int chunk = first; chunk < victim.count; chunk++) {
+            final Object owner = victim.owners[chunk];
+            if (Objects.nonNull(owner)) {
+                index.remove(owner);
+                usedBytes -= victim.lengths[chunk];
+                statsCounter.recordEviction();
+            }
+        }
+        target.addSlab(victim.removeLastSlab(slabSize), slabSize);
+    }
+
+    /**
+     * 读取块中的值
+     *
+     * @param ref 索引中的值
+     * @return 序列化后的值
+     */
+    private byte[] read(final long ref) {
+        final SizeClass sizeClass = classes[(int) (ref >>> 32)];
+        final int chunk = (int) ref;
+        final ByteBuffer slab = slabs.get(sizeClass.slabOf(chunk)).duplicate();
+        final int offset = sizeClass.offsetOf(chunk);
+        final byte[] bytes = new byte[slab.getInt(offset)];
+        slab.position(offset + HEADER_SIZE);
+        slab.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 释放块
+     *
+     * @param ref 索引中的值
+     */
+    private void release(final long ref) {
+        if (ref == OffHeapIndex.ABSENT) {
+            return;
+        }
+        final SizeClass sizeClass = classes[(int) (ref >>> 32)];
+        final int chunk = (int) ref;
+        usedBytes -= sizeClass.lengths[chunk];
+        sizeClass.owners[chunk] = null;
+        sizeClass.referenced[chunk] = 0;
+        sizeClass.free[sizeClass.freeCount++] = chunk;
+    }
+
+    /**
+     * 能容纳指定字节数的最小规格
+     *
+     * @param length 字节数
+     * @return 规格下标
+     */
+    private static int classIndexOf(final int length) {
+        final int size = Math.max(length, MIN_CHUNK_SIZE);
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * 同一规格的块
+     */
+    private static final class SizeClass {
+
+        /**
+         * 块大小
+         */
+        final int chunkSize;
+        /**
+         * 块所在slab及偏移量，高32位为slab编号，低32位为偏移量
+         */
+        long[] addresses = new long[0];
+        /**
+         * 块中存放的键，空闲块为null
+         */
+        Object[] owners = new Object[0];
+        /**
+         * 块中值的字节数
+         */
+        int[] lengths = new int[0];
+        /**
+         * 访问标记
+         */
+        byte[] referenced = new byte[0];
+        /**
+         * 空闲块栈
+         */
+        int[] free = new int[0];
+        /**
+         * 块数
+         */
+        int count;
+        /**
+         * 空闲块数
+         */
+        int freeCount;
+        /**
+         * CLOCK指针
+         */
+        int hand;
+
+        SizeClass(final int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * 新slab切分成块，全部放入空闲栈
+         *
+         * @param slab     slab编号
+         * @param slabSize slab大小
+         */
+        void addSlab(final int slab, final int slabSize) {
+            final int chunks = slabSize / chunkSize;
+            final int capacity = count + chunks;
+            addresses = Arrays.copyOf(addresses, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            referenced = Arrays.copyOf(referenced, capacity);
+            free = Arrays.copyOf(free, capacity);
+            for (int i = chunks - 1; i >= 0; i--) {
+                addresses[count + i] = ((long) slab << 32) | ((long) i * chunkSize);
+                free[freeCount++] = count + i;
+            }
+            count = capacity;
+        }
+
+        /**
+         * 移除最后加入的slab的块，调用方须先淘汰其中的值
+         *
+         * @param slabSize slab大小
+         * @return slab编号
+         */
+        int removeLastSlab(final int slabSize) {
+            final int remaining = count - slabSize / chunkSize;
+            final int slab = slabOf(remaining);
+            addresses = Arrays.copyOf(addresses, remaining);
+            owners = Arrays.copyOf(owners, remaining);
+            lengths = Arrays.copyOf(lengths, remaining);
+            referenced = Arrays.copyOf(referenced, remaining);
+            int kept = 0;
+            for (int i = 0; i < freeCount; i++) {
+                if (free[i] < remaining) {
+                    free[kept++] = free[i];
+                }
+            }
+            free = Arrays.copyOf(free, remaining);
+            freeCount = kept;
+            count = remaining;
+            hand = remaining == 0 ? 0 : hand % remaining;
+            return slab;
+        }
+
+        int slabCount(final int slabSize) {
+            return count / (slabSize / chunkSize);
+        }
+
+        int slabOf(final int chunk) {
+            return (int) (addresses[chunk] >>> 32);
+        }
+
+        int offsetOf(final int chunk) {
+            return (int) addresses[chunk];
+        }
+
+        long heapBytes() {
+            return (long) addresses.length * (8 + 4 + 4 + 1 + 4);
+        }
+
+        void clear() {
+            addresses = new long[0];
+            owners = new Object[0];
+            lengths = new int[0];
+            referenced = new byte[0];
+            free = new int[0];
+            count = 0;
+            freeCount = 0;
+            hand = 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.star.cache.offheap;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 堆内索引，键到定长long的开放寻址哈希表
+ * <p>
+ * 每个条目只占一个键引用和一个long，值不装箱，没有Entry对象<br>
+ * 线性探测，删除时后移回填，不留墓碑<br>
+ * 非线程安全，由外部锁保护
+ *
+ * @param <K> 键
+ * @author starhq
+ */
+final class OffHeapIndex<K> {
+
+    /**
+     * 不存在
+     */
+    static final long ABSENT = -1L;
+
+    /**
+     * 键
+     */
+    private Object[] keys;
+    /**
+     * 值
+     */
+    private long[] values;
+    /**
+     * 条目数
+     */
+    private int size;
+
+    /**
+     * 构造
+     */
+    OffHeapIndex() {
+        keys = new Object[16];
+        values = new long[16];
+    }
+
+    /**
+     * 查找
+     *
+     * @param key 键
+     * @return 值，不存在为{@link #ABSENT}
+     */
+    long get(final Object key) {
+        final int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            final Object current = keys[i];
+            if (Objects.isNull(current)) {
+                return ABSENT;
+            }
+            if (current.equals(key)) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * 放入
+     *
+     * @param key   键
+     * @param value 值
+     * @return 旧值，不存在为{@link #ABSENT}
+     */
+    long put(final K key, final long value) {
+        if ((size + 1) << 2 > keys.length * 3) {
+            resize(keys.length << 1);
+        }
+        final int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            final Object current = keys[i];
+            if (Objects.isNull(current)) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return ABSENT;
+            }
+            if (current.equals(key)) {
+                final long old = values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+    }
+
+    /**
+     * 删除
+     *
+     * @param key 键
+     * @return 旧值，不存在为{@link #ABSENT}
+     */
+    long remove(final Object key) {
+        final int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            final Object current = keys[i];
+            if (Objects.isNull(current)) {
+                return ABSENT;
+            }
+            if (current.equals(key)) {
+                final long old = values[i];
+                shiftBack(i, mask);
+                size--;
+                return old;
+            }
+        }
+    }
+
+    /**
+     * 条目数
+     *
+     * @return 条目数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 清空
+     */
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    /**
+     * 堆内占用的字节数估算，不含键对象本身
+     *
+     * @return 字节数
+     */
+    long heapBytes() {
+        return (long) keys.length * (4 + 8);
+    }
+
+    /**
+     * 删除位置之后同一探测链上的条目依次前移，保证查找不会提前遇到空位
+     *
+     * @param hole 被删除的位置
+     * @param mask 掩码
+     */
+    private void shiftBack(final int hole, final int mask) {
+        int gap = hole;
+        for (int i = (gap + 1) & mask; Objects.nonNull(keys[i]); i = (i + 1) & mask) {
+            final int home = slot(keys[i], mask);
+            // home不在(gap, i]区间内的条目可以前移到gap
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = null;
+    }
+
+    /**
+     * 扩容
+     *
+     * @param capacity 新容量
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(final int capacity) {
+        final Object[] oldKeys = keys;
+        final long[] oldValues = values;
+        keys = new Object[capacity];
+        values = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (Objects.nonNull(oldKeys[i])) {
+                put((K) oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * 键的初始位置
+     *
+     * @param key  键
+     * @param mask 掩码
+     * @return 位置
+     */
+    private static int slot(final Object key, final int mask) {
+        final int hash = key.hashCode() * 0x9e3779b9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,173 @@
+package com.star.cache.stats;
+
+import com.star.string.StringUtil;
+
+/**
+ * 缓存统计快照，不可变
+ *
+ * @author starhq
+ */
+public final class CacheStats {
+
+    /**
+     * 空统计
+     */
+    public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, new long[LatencyHistogram.BUCKETS]);
+
+    /**
+     * 命中次数
+     */
+    private final long hitCount;
+    /**
+     * 未命中次数
+     */
+    private final long missCount;
+    /**
+     * 加载成功次数
+     */
+    private final long loadSuccessCount;
+    /**
+     * 加载失败次数
+     */
+    private final long loadFailureCount;
+    /**
+     * 加载总耗时(纳秒)
+     */
+    private final long totalLoadTime;
+    /**
+     * 淘汰次数
+     */
+    private final long evictionCount;
+    /**
+     * 加载耗时直方图各桶计数
+     */
+    private final long[] loadTimeCounts;
+
+    /**
+     * 构造
+     *
+     * @param hitCount         命中次数
+     * @param missCount        未命中次数
+     * @param loadSuccessCount 加载成功次数
+     * @param loadFailureCount 加载失败次数
+     * @param totalLoadTime    加载总耗时(纳秒)
+     * @param evictionCount    淘汰次数
+     * @param loadTimeCounts   加载耗时直方图各桶计数
+     */
+    CacheStats(final long hitCount, final long missCount, final long loadSuccessCount, final long loadFailureCount,
+               final long totalLoadTime, final long evictionCount, final long[] loadTimeCounts) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.loadTimeCounts = loadTimeCounts;
+    }
+
+    /**
+     * @return 请求次数
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return 命中次数
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return 命中率，没有请求时为1
+     */
+    public double hitRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0 ? 1.0d : (double) hitCount / requestCount;
+    }
+
+    /**
+     * @return 未命中次数
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return 未命中率，没有请求时为0
+     */
+    public double missRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0 ? 0.0d : (double) missCount / requestCount;
+    }
+
+    /**
+     * @return 加载成功次数
+     */
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * @return 加载失败次数
+     */
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * @return 加载总耗时(纳秒)
+     */
+    public long totalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * @return 平均加载耗时(纳秒)
+     */
+    public double averageLoadPenalty() {
+        final long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0d : (double) totalLoadTime / loadCount;
+    }
+
+    /**
+     * @return 淘汰次数
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 加载耗时的分位数，相对误差不超过12.5%
+     *
+     * @param quantile 分位，0~1，比如0.99
+     * @return 耗时(纳秒)，没有加载时为0
+     */
+    public long loadTimePercentile(final double quantile) {
+        long total = 0;
+        for (long count : loadTimeCounts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(Math.min(Math.max(quantile, 0.0d), 1.0d) * total));
+        long seen = 0;
+        for (int i = 0; i < loadTimeCounts.length; i++) {
+            seen += loadTimeCounts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.upperBoundOf(i);
+            }
+        }
+        return LatencyHistogram.upperBoundOf(loadTimeCounts.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.format("CacheStats{hitCount={}, missCount={}, hitRate={}, loadSuccessCount={}, "
+                        + "loadFailureCount={}, averageLoadPenalty={}, p99LoadTime={}, evictionCount={}}",
+                hitCount, missCount, hitRate(), loadSuccessCount, loadFailureCount, averageLoadPenalty(),
+                loadTimePercentile(0.99d), evictionCount);
+    }
+}
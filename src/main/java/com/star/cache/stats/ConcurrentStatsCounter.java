@@ -0,0 +1,78 @@
+package com.star.cache.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的缓存统计器
+ * <p>
+ * 命中、未命中等高频计数使用分段的{@link LongAdder}，多线程下不争用同一个缓存行<br>
+ * 加载耗时记入{@link LatencyHistogram}，快照中可以取分位数
+ *
+ * @author starhq
+ */
+public class ConcurrentStatsCounter implements StatsCounter {
+
+    /**
+     * 命中次数
+     */
+    private final LongAdder hitCount = new LongAdder();
+    /**
+     * 未命中次数
+     */
+    private final LongAdder missCount = new LongAdder();
+    /**
+     * 加载成功次数
+     */
+    private final LongAdder loadSuccessCount = new LongAdder();
+    /**
+     * 加载失败次数
+     */
+    private final LongAdder loadFailureCount = new LongAdder();
+    /**
+     * 加载总耗时
+     */
+    private final LongAdder totalLoadTime = new LongAdder();
+    /**
+     * 淘汰次数
+     */
+    private final LongAdder evictionCount = new LongAdder();
+    /**
+     * 加载耗时分布
+     */
+    private final LatencyHistogram loadTimes = new LatencyHistogram();
+
+    @Override
+    public void recordHits(final int count) {
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(final int count) {
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(final long loadTime) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTime);
+        loadTimes.record(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(final long loadTime) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTime);
+        loadTimes.record(loadTime);
+    }
+
+    @Override
+    public void recordEviction() {
+        evictionCount.increment();
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+                totalLoadTime.sum(), evictionCount.sum(), loadTimes.snapshot());
+    }
+}
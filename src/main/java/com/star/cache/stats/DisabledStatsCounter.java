@@ -0,0 +1,41 @@
+package com.star.cache.stats;
+
+/**
+ * 关闭统计时使用的空统计器
+ *
+ * @author starhq
+ */
+enum DisabledStatsCounter implements StatsCounter {
+
+    INSTANCE;
+
+    @Override
+    public void recordHits(final int count) {
+        // nop
+    }
+
+    @Override
+    public void recordMisses(final int count) {
+        // nop
+    }
+
+    @Override
+    public void recordLoadSuccess(final long loadTime) {
+        // nop
+    }
+
+    @Override
+    public void recordLoadFailure(final long loadTime) {
+        // nop
+    }
+
+    @Override
+    public void recordEviction() {
+        // nop
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return CacheStats.EMPTY;
+    }
+}
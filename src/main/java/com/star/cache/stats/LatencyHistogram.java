@@ -0,0 +1,85 @@
+package com.star.cache.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图
+ * <p>
+ * 小于16纳秒的值每个一个桶，之后每个2的幂区间等分为8个桶，相对误差不超过12.5%，共488个桶覆盖long的全部正数范围
+ *
+ * @author starhq
+ */
+final class LatencyHistogram {
+
+    /**
+     * 线性区间的桶数
+     */
+    private static final int LINEAR = 16;
+    /**
+     * 每个2的幂区间的桶数，取其对数
+     */
+    private static final int SUB_BITS = 3;
+    /**
+     * 桶数
+     */
+    static final int BUCKETS = LINEAR + (63 - 4) * (1 << SUB_BITS);
+
+    /**
+     * 计数
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 记录
+     *
+     * @param value 耗时(纳秒)
+     */
+    void record(final long value) {
+        counts.incrementAndGet(indexOf(Math.max(value, 0L)));
+    }
+
+    /**
+     * 各桶计数的快照
+     *
+     * @return 计数
+     */
+    long[] snapshot() {
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 值所在的桶
+     *
+     * @param value 值
+     * @return 桶下标
+     */
+    static int indexOf(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + ((exponent - 4) << SUB_BITS) + sub;
+    }
+
+    /**
+     * 桶的上界
+     *
+     * @param index 桶下标
+     * @return 桶内的最大值
+     */
+    static long upperBoundOf(final int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        final int exponent = ((index - LINEAR) >>> SUB_BITS) + 4;
+        final long sub = (index - LINEAR) & ((1 << SUB_BITS) - 1);
+        final long lower = ((1L << SUB_BITS) + sub) << (exponent - SUB_BITS);
+        final long width = 1L << (exponent - SUB_BITS);
+        return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.star.cache.stats;
+
+import com.star.cache.Cache;
+import com.star.exception.CacheException;
+import com.star.lang.Assert;
+
+import java.util.Objects;
+
+/**
+ * 统计命中率的缓存装饰器，用于没有内置统计的实现，比如{@link com.star.cache.simple.SimpleCache}
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class StatsCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 被装饰的缓存
+     */
+    private final Cache<K, V> cache;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+
+    /**
+     * 构造方法
+     *
+     * @param cache 被装饰的缓存
+     */
+    public StatsCache(final Cache<K, V> cache) {
+        this(cache, new ConcurrentStatsCounter());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param cache        被装饰的缓存
+     * @param statsCounter 统计器
+     */
+    public StatsCache(final Cache<K, V> cache, final StatsCounter statsCounter) {
+        Assert.notNull(cache, "stats cache delegate can't be null");
+        Assert.notNull(statsCounter, "stats cache counter can't be null");
+        this.cache = cache;
+        this.statsCounter = statsCounter;
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V get(final K key) throws CacheException {
+        final V value = cache.get(key);
+        if (Objects.isNull(value)) {
+            statsCounter.recordMisses(1);
+        } else {
+            statsCounter.recordHits(1);
+        }
+        return value;
+    }
+
+    /**
+     * 从缓存中获得值，不记录统计
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V peek(final K key) throws CacheException {
+        return cache.peek(key);
+    }
+
+    /**
+     * 数据存入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        return cache.put(key, value);
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        return cache.remove(key);
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        cache.clear();
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+}
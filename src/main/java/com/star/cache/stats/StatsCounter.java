@@ -0,0 +1,60 @@
+package com.star.cache.stats;
+
+/**
+ * 缓存统计器
+ * <p>
+ * 缓存实现在命中、未命中、加载、淘汰时回调，{@link #snapshot()}得到某一时刻的统计快照
+ *
+ * @author starhq
+ */
+public interface StatsCounter {
+
+    /**
+     * 关闭统计，所有记录方法为空操作
+     *
+     * @return 空统计器
+     */
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+
+    /**
+     * 记录命中
+     *
+     * @param count 次数
+     */
+    void recordHits(int count);
+
+    /**
+     * 记录未命中
+     *
+     * @param count 次数
+     */
+    void recordMisses(int count);
+
+    /**
+     * 记录加载成功
+     *
+     * @param loadTime 加载耗时(纳秒)
+     */
+    void recordLoadSuccess(long loadTime);
+
+    /**
+     * 记录加载失败
+     *
+     * @param loadTime 加载耗时(纳秒)
+     */
+    void recordLoadFailure(long loadTime);
+
+    /**
+     * 记录一次淘汰(容量或过期)
+     */
+    void recordEviction();
+
+    /**
+     * 统计快照
+     *
+     * @return 快照
+     */
+    CacheStats snapshot();
+}
@@ -0,0 +1,458 @@
+package com.star.cache.tiered;
+
+import com.star.exception.CacheException;
+import com.star.string.StringUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * 内存映射的追加日志，二级缓存的持久化存储
+ * <p>
+ * 文件按区段映射，记录只追加不修改，格式为：键长度(int)、值长度(int，-1为删除标记)、CRC32(int)、键、值<br>
+ * 写入时先写数据再写CRC，最后写键长度；打开时从头扫描，遇到键长度为0或CRC不符即视为日志末尾，崩溃时写了一半的记录被丢弃<br>
+ * 扫描只把键复制到堆内，值直接在映射上校验CRC，不复制、不反序列化，内存中以序列化后的键为索引；
+ * 长度越界的记录头同样视为日志末尾；被覆盖和删除的记录超过一半时重写文件(压缩)
+ * <p>
+ * 非线程安全，由外部锁保护
+ *
+ * @author starhq
+ */
+final class MappedLog implements Closeable {
+
+    /**
+     * 文件头魔数
+     */
+    private static final int MAGIC = 0x53544c47;
+    /**
+     * 文件头长度
+     */
+    private static final int FILE_HEADER = 16;
+    /**
+     * 记录头长度
+     */
+    private static final int RECORD_HEADER = 12;
+    /**
+     * 填充标记，区段剩余空间放不下记录时写入，跳到下一区段
+     */
+    private static final int PADDING = -1;
+    /**
+     * 删除标记
+     */
+    private static final int TOMBSTONE = -1;
+    /**
+     * 触发压缩的最小文件大小
+     */
+    private static final long COMPACT_THRESHOLD = 1 << 20;
+
+    /**
+     * 文件
+     */
+    private final Path path;
+    /**
+     * 区段大小
+     */
+    private final int regionSize;
+    /**
+     * 文件通道
+     */
+    private FileChannel channel;
+    /**
+     * 已映射的区段
+     */
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    /**
+     * 索引，序列化后的键到记录位置
+     */
+    private final Map<ByteKey, Long> index = new HashMap<>();
+    /**
+     * 写入位置
+     */
+    private long writePosition;
+    /**
+     * 无效记录的字节数
+     */
+    private long garbage;
+
+    /**
+     * 打开日志，文件存在时扫描重建索引
+     *
+     * @param path       文件
+     * @param regionSize 区段大小，也是单条记录的上限
+     */
+    MappedLog(final Path path, final int regionSize) {
+        this.path = path;
+        this.regionSize = regionSize;
+        open();
+    }
+
+    /**
+     * 读取值
+     *
+     * @param key 序列化后的键
+     * @return 序列化后的值，不存在为null
+     */
+    byte[] get(final byte[] key) {
+        final Long position = index.get(new ByteKey(key));
+        return Objects.isNull(position) ? null : readValue(position);
+    }
+
+    /**
+     * 追加记录
+     *
+     * @param key   序列化后的键
+     * @param value 序列化后的值
+     */
+    void put(final byte[] key, final byte[] value) {
+        final long position = append(key, value);
+        final Long old = index.put(new ByteKey(key), position);
+        if (Objects.nonNull(old)) {
+            garbage += recordSize(old);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 追加删除标记
+     *
+     * @param key 序列化后的键
+     * @return 是否存在
+     */
+    boolean remove(final byte[] key) {
+        final Long old = index.remove(new ByteKey(key));
+        if (Objects.isNull(old)) {
+            return false;
+        }
+        garbage += recordSize(old) + RECORD_HEADER + key.length;
+        append(key, null);
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * 清空，截断文件
+     */
+    void clear() {
+        closeChannel();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("delete mapped log {} failure,the reason is: {}", path,
+                    e.getMessage()), e);
+        }
+        index.clear();
+        open();
+    }
+
+    /**
+     * 记录数
+     *
+     * @return 记录数
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * 文件中有效数据的字节数
+     *
+     * @return 字节数
+     */
+    long length() {
+        return writePosition;
+    }
+
+    /**
+     * 刷盘
+     */
+    void flush() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * 压缩，只保留有效记录，写入临时文件后原子替换
+     */
+    void compact() {
+        final Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            // 上次压缩中途崩溃留下的临时文件
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("delete mapped log {} failure,the reason is: {}", temp,
+                    e.getMessage()), e);
+        }
+        try (MappedLog target = new MappedLog(temp, regionSize)) {
+            for (Map.Entry<ByteKey, Long> entry : index.entrySet()) {
+                target.put(entry.getKey().bytes, readValue(entry.getValue()));
+            }
+            target.flush();
+        }
+        closeChannel();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("replace mapped log {} failure,the reason is: {}", path,
+                    e.getMessage()), e);
+        }
+        index.clear();
+        open();
+    }
+
+    /**
+     * 刷盘并关闭
+     */
+    @Override
+    public void close() {
+        flush();
+        closeChannel();
+    }
+
+    /**
+     * 打开文件，映射已有区段并扫描
+     */
+    private void open() {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            final long size = channel.size();
+            final long regionCount = Math.max(1, (size + regionSize - 1) / regionSize);
+            for (int i = 0; i < regionCount; i++) {
+                mapRegion();
+            }
+            final ByteBuffer first = regions.get(0);
+            if (size == 0 || first.getInt(0) != MAGIC) {
+                first.putInt(0, MAGIC);
+                writePosition = FILE_HEADER;
+                garbage = 0;
+            } else {
+                scan();
+            }
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("open mapped log {} failure,the reason is: {}", path,
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 扫描日志重建索引，遇到空记录或校验失败即停止
+     */
+    private void scan() {
+        long position = FILE_HEADER;
+        garbage = 0;
+        while (position < (long) regions.size() * regionSize) {
+            final int offset = offset(position);
+            final ByteBuffer region = region(position).duplicate();
+            if (regionSize - offset < RECORD_HEADER || region.getInt(offset) == PADDING) {
+                garbage += regionSize - offset;
+                position = nextRegion(position);
+                continue;
+            }
+            final int keyLength = region.getInt(offset);
+            final int valueLength = region.getInt(offset + 4);
+            // 长度来自磁盘，写了一半或损坏的记录头可能是任意值，分别检查后以long相加，不会溢出
+            if (keyLength <= 0 || keyLength > regionSize || valueLength < TOMBSTONE || valueLength > regionSize) {
+                break;
+            }
+            final long length = (long) RECORD_HEADER + keyLength + Math.max(valueLength, 0);
+            if (length > regionSize - offset) {
+                break;
+            }
+            final int recordLength = (int) length;
+            final byte[] key = new byte[keyLength];
+            region.position(offset + RECORD_HEADER);
+            region.get(key);
+            ByteBuffer value = null;
+            if (valueLength >= 0) {
+                value = region.slice();
+                value.limit(valueLength);
+            }
+            if (checksum(key, valueLength, value) != region.getInt(offset + 8)) {
+                break;
+            }
+            final Long old = valueLength == TOMBSTONE ? index.remove(new ByteKey(key))
+                    : index.put(new ByteKey(key), position);
+            if (Objects.nonNull(old)) {
+                garbage += recordSize(old);
+            }
+            if (valueLength == TOMBSTONE) {
+                garbage += recordLength;
+            }
+            position += recordLength;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param key   键
+     * @param value 值，null为删除标记
+     * @return 记录位置
+     */
+    private long append(final byte[] key, final byte[] value) {
+        final int valueLength = Objects.isNull(value) ? TOMBSTONE : value.length;
+        final int recordLength = RECORD_HEADER + key.length + Math.max(valueLength, 0);
+        if (recordLength > regionSize - FILE_HEADER) {
+            throw new CacheException(StringUtil.format("record of {} bytes exceeds mapped log region size {}",
+                    recordLength, regionSize));
+        }
+        if (regionSize - offset(writePosition) < recordLength) {
+            if (regionSize - offset(writePosition) >= 4) {
+                region(writePosition).putInt(offset(writePosition), PADDING);
+            }
+            garbage += regionSize - offset(writePosition);
+            writePosition = nextRegion(writePosition);
+        }
+        while (writePosition + recordLength > (long) regions.size() * regionSize) {
+            mapRegion();
+        }
+        final long position = writePosition;
+        final ByteBuffer region = region(position).duplicate();
+        final int offset = offset(position);
+        region.position(offset + RECORD_HEADER);
+        region.put(key);
+        if (Objects.nonNull(value)) {
+            region.put(value);
+        }
+        region.putInt(offset + 4, valueLength);
+        region.putInt(offset + 8, checksum(key, valueLength, Objects.isNull(value) ? null : ByteBuffer.wrap(value)));
+        // 键长度最后写，扫描时以它判断记录是否存在
+        region.putInt(offset, key.length);
+        writePosition += recordLength;
+        return position;
+    }
+
+    /**
+     * 记录的校验和，覆盖值长度、键和值
+     *
+     * @param key         键
+     * @param valueLength 值长度
+     * @param value       值，读取到末尾，不复制；删除标记为null
+     * @return CRC32
+     */
+    private static int checksum(final byte[] key, final int valueLength, final ByteBuffer value) {
+        final CRC32 crc = new CRC32();
+        crc.update(valueLength >>> 24);
+        crc.update(valueLength >>> 16);
+        crc.update(valueLength >>> 8);
+        crc.update(valueLength);
+        crc.update(key);
+        if (Objects.nonNull(value)) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 无效数据超过一半时压缩
+     */
+    private void compactIfNeeded() {
+        if (writePosition > COMPACT_THRESHOLD && garbage > writePosition >>> 1) {
+            compact();
+        }
+    }
+
+    /**
+     * 读取记录中的值
+     *
+     * @param position 记录位置
+     * @return 值
+     */
+    private byte[] readValue(final long position) {
+        final ByteBuffer region = region(position).duplicate();
+        final int offset = offset(position);
+        final byte[] value = new byte[region.getInt(offset + 4)];
+        region.position(offset + RECORD_HEADER + region.getInt(offset));
+        region.get(value);
+        return value;
+    }
+
+    /**
+     * 记录占用的字节数
+     *
+     * @param position 记录位置
+     * @return 字节数
+     */
+    private long recordSize(final long position) {
+        final ByteBuffer region = region(position);
+        final int offset = offset(position);
+        return RECORD_HEADER + region.getInt(offset) + Math.max(region.getInt(offset + 4), 0);
+    }
+
+    /**
+     * 映射下一个区段，文件随之增长
+     */
+    private void mapRegion() {
+        try {
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("map region of {} failure,the reason is: {}", path,
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 关闭文件通道，映射由GC回收
+     */
+    private void closeChannel() {
+        regions.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new CacheException(StringUtil.format("close mapped log {} failure,the reason is: {}", path,
+                    e.getMessage()), e);
+        }
+    }
+
+    private ByteBuffer region(final long position) {
+        return regions.get((int) (position / regionSize));
+    }
+
+    private int offset(final long position) {
+        return (int) (position % regionSize);
+    }
+
+    private long nextRegion(final long position) {
+        return (position / regionSize + 1) * regionSize;
+    }
+
+    /**
+     * 序列化后的键，按内容比较
+     */
+    private static final class ByteKey {
+
+        private final byte[] bytes;
+        private final int hash;
+
+        ByteKey(final byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof ByteKey && Arrays.equals(bytes, ((ByteKey) obj).bytes);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.star.cache.tiered;
+
+import com.star.cache.Cache;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.StatsCounter;
+import com.star.exception.CacheException;
+import com.star.io.serializer.Serializer;
+import com.star.lang.Assert;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 两级缓存
+ * <p>
+ * 一级为内存缓存(任意{@link Cache}实现，通常有容量上限)，二级为内存映射文件上的追加日志，键和值经{@link Serializer}序列化后写入<br>
+ * 写操作同时写两级；读操作先读一级，未命中再读二级，二级命中的值反序列化后回填一级<br>
+ * 重启后以同一文件构造即可得到预热的二级缓存，打开时扫描日志建立索引，只把键复制到堆内，
+ * 值在映射上校验后留在文件中，首次读取时才复制并反序列化<br>
+ * 二级缓存不淘汰，被覆盖和删除的记录超过一半时自动压缩，也可以调用{@link #compact()}主动压缩
+ * <p>
+ * 二级读操作和回填一级使用读锁，写操作在写锁内更新两级，回填不会把已被覆盖或删除的旧值写回一级
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class TieredCache<K, V> implements Cache<K, V>, Closeable {
+
+    /**
+     * 默认区段大小，64M，也是单条记录的上限
+     */
+    public static final int DEFAULT_REGION_SIZE = 64 << 20;
+
+    /**
+     * 一级缓存
+     */
+    private final Cache<K, V> l1;
+    /**
+     * 二级缓存
+     */
+    private final MappedLog l2;
+    /**
+     * 序列化工具
+     */
+    private final Serializer serializer;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+    /**
+     * 锁
+     */
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock(false);
+    /**
+     * 写锁
+     */
+    private final ReentrantReadWriteLock.WriteLock writeLock = cacheLock.writeLock();
+    /**
+     * 读锁
+     */
+    private final ReentrantReadWriteLock.ReadLock readLock = cacheLock.readLock();
+
+    /**
+     * 构造方法
+     *
+     * @param l1         一级缓存
+     * @param serializer 序列化工具
+     * @param file       二级缓存文件，存在时打开并恢复
+     */
+    public TieredCache(final Cache<K, V> l1, final Serializer serializer, final Path file) {
+        this(l1, serializer, file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param l1         一级缓存
+     * @param serializer 序列化工具
+     * @param file       二级缓存文件，存在时打开并恢复
+     * @param regionSize 每次映射的区段大小，也是单条记录的上限，同一文件须使用相同的值
+     */
+    public TieredCache(final Cache<K, V> l1, final Serializer serializer, final Path file, final int regionSize) {
+        this(l1, serializer, file, regionSize, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param l1           一级缓存
+     * @param serializer   序列化工具
+     * @param file         二级缓存文件，存在时打开并恢复
+     * @param regionSize   每次映射的区段大小，也是单条记录的上限，同一文件须使用相同的值
+     * @param statsCounter 统计器，任一级命中都记为命中
+     */
+    public TieredCache(final Cache<K, V> l1, final Serializer serializer, final Path file, final int regionSize,
+                       final StatsCounter statsCounter) {
+        Assert.notNull(l1, "tiered cache l1 can't be null");
+        Assert.notNull(serializer, "tiered cache serializer can't be null");
+        Assert.notNull(file, "tiered cache file can't be null");
+        Assert.isTrue(regionSize >= 1 << 10, "tiered cache region size must not be less than 1024");
+        Assert.notNull(statsCounter, "tiered cache stats counter can't be null");
+        this.l1 = l1;
+        this.serializer = serializer;
+        this.statsCounter = statsCounter;
+        this.l2 = new MappedLog(file, regionSize);
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final K key) throws CacheException {
+        Assert.notNull(key, "tiered cache key can't be null");
+        V value = l1.get(key);
+        if (Objects.nonNull(value)) {
+            statsCounter.recordHits(1);
+            return value;
+        }
+        final byte[] keyBytes = serializer.serialize(key);
+        readLock.lock();
+        try {
+            final byte[] bytes = l2.get(keyBytes);
+            if (Objects.isNull(bytes)) {
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            statsCounter.recordHits(1);
+            value = (V) serializer.deserialize(bytes);
+            // 持有读锁回填，期间没有写操作，回填的值与二级一致
+            l1.put(key, value);
+            return value;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 从缓存中获得值，不记录统计，L2命中时不回填L1
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V peek(final K key) throws CacheException {
+        Assert.notNull(key, "tiered cache key can't be null");
+        final V value = l1.peek(key);
+        if (Objects.nonNull(value)) {
+            return value;
+        }
+        final byte[] keyBytes = serializer.serialize(key);
+        final byte[] bytes;
+        readLock.lock();
+        try {
+            bytes = l2.get(keyBytes);
+        } finally {
+            readLock.unlock();
+        }
+        return Objects.isNull(bytes) ? null : (V) serializer.deserialize(bytes);
+    }
+
+    /**
+     * 数据存入缓存，同时写入两级
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        Assert.notNull(key, "tiered cache key can't be null");
+        Assert.notNull(value, "tiered cache value can't be null");
+        final byte[] keyBytes = serializer.serialize(key);
+        final byte[] bytes = serializer.serialize(value);
+        writeLock.lock();
+        try {
+            l2.put(keyBytes, bytes);
+            return l1.put(key, value);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 删除缓存，同时删除两级
+     *
+     * @param key 键
+     * @return 一级缓存中被删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        Assert.notNull(key, "tiered cache key can't be null");
+        final byte[] keyBytes = serializer.serialize(key);
+        writeLock.lock();
+        try {
+            l2.remove(keyBytes);
+            return l1.remove(key);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 清空缓存，二级缓存文件被截断
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        writeLock.lock();
+        try {
+            l2.clear();
+            l1.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 二级缓存中的数据量
+     *
+     * @return 数据量
+     */
+    public int size() {
+        readLock.lock();
+        try {
+            return l2.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 二级缓存文件中已写入的字节数，含未压缩的无效记录
+     *
+     * @return 字节数
+     */
+    public long getFileUsed() {
+        readLock.lock();
+        try {
+            return l2.length();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * 压缩二级缓存文件，只保留有效记录
+     */
+    public void compact() {
+        writeLock.lock();
+        try {
+            l2.compact();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 二级缓存刷盘，之前的写入在进程崩溃或断电后不会丢失
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            l2.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 刷盘并关闭二级缓存文件，一级缓存不受影响
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            l2.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
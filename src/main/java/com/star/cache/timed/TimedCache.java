@@ -0,0 +1,315 @@
+package com.star.cache.timed;
+
+import com.star.cache.Cache;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.StatsCounter;
+import com.star.exception.CacheException;
+import com.star.lang.Assert;
+import com.star.time.SystemClock;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定时过期缓存
+ * <p>
+ * 支持写入后过期(可按条目单独指定)和访问后过期(空闲超时)，到期时间由{@link SystemClock}提供，读路径不调用System.currentTimeMillis()<br>
+ * 过期条目由{@link TimerWheel}统一清理，代价均摊O(1)，不需要定时全量扫描<br>
+ * 读操作不加锁，只在读到过期条目时视为未命中，并在时间轮落后时顺带尝试清理；写操作加锁维护时间轮
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class TimedCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 永不过期
+     */
+    private static final long NEVER = Long.MAX_VALUE;
+    /**
+     * 读操作触发清理的最小间隔(毫秒)，与时间轮最小刻度一致
+     */
+    private static final long CLEANUP_INTERVAL = 1L << 10;
+
+    /**
+     * 写入后过期时间(毫秒)，0为不过期
+     */
+    private final long expireAfterWrite;
+    /**
+     * 访问后过期时间(毫秒)，0为不过期
+     */
+    private final long expireAfterAccess;
+    /**
+     * 池，存放缓存
+     */
+    private final ConcurrentMap<K, Node<K, V>> cache = new ConcurrentHashMap<>();
+    /**
+     * 时间轮
+     */
+    private final TimerWheel<K> wheel;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+    /**
+     * 锁，保护时间轮
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 上次清理时间
+     */
+    private volatile long lastCleanUp;
+
+    /**
+     * 构造方法
+     *
+     * @param expireAfterWrite 写入后过期时间，0为不过期
+     * @param unit             时间单位
+     */
+    public TimedCache(final long expireAfterWrite, final TimeUnit unit) {
+        this(expireAfterWrite, 0, unit);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param expireAfterWrite  写入后过期时间，0为不过期
+     * @param expireAfterAccess 访问后过期时间，0为不过期
+     * @param unit              时间单位
+     */
+    public TimedCache(final long expireAfterWrite, final long expireAfterAccess, final TimeUnit unit) {
+        this(expireAfterWrite, expireAfterAccess, unit, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param expireAfterWrite  写入后过期时间，0为不过期
+     * @param expireAfterAccess 访问后过期时间，0为不过期
+     * @param unit              时间单位
+     * @param statsCounter      统计器，记录命中、未命中和过期淘汰
+     */
+    public TimedCache(final long expireAfterWrite, final long expireAfterAccess, final TimeUnit unit,
+                      final StatsCounter statsCounter) {
+        Assert.isTrue(expireAfterWrite >= 0 && expireAfterAccess >= 0, "timed cache expire time can't be negative");
+        Assert.notNull(statsCounter, "timed cache stats counter can't be null");
+        this.statsCounter = statsCounter;
+        this.expireAfterWrite = unit.toMillis(expireAfterWrite);
+        this.expireAfterAccess = unit.toMillis(expireAfterAccess);
+        this.lastCleanUp = SystemClock.now();
+        this.wheel = new TimerWheel<>(lastCleanUp);
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V get(final K key) throws CacheException {
+        Assert.notNull(key, "timed cache key can't be null");
+        final long now = SystemClock.now();
+        final Node<K, V> node = cache.get(key);
+        V value = null;
+        if (Objects.nonNull(node) && !node.isExpired(now)) {
+            if (expireAfterAccess > 0) {
+                node.deadline = Math.min(node.writeDeadline, now + expireAfterAccess);
+            }
+            value = node.value;
+            statsCounter.recordHits(1);
+        } else {
+            statsCounter.recordMisses(1);
+        }
+        if (now - lastCleanUp >= CLEANUP_INTERVAL && lock.tryLock()) {
+            try {
+                expire(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 从缓存中获得值，不记录统计，不延长访问后过期时间
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V peek(final K key) throws CacheException {
+        Assert.notNull(key, "timed cache key can't be null");
+        final Node<K, V> node = cache.get(key);
+        return Objects.nonNull(node) && !node.isExpired(SystemClock.now()) ? node.value : null;
+    }
+
+    /**
+     * 数据存入缓存，使用默认的写入后过期时间
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        return put(key, value, expireAfterWrite, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 数据存入缓存，单独指定写入后过期时间
+     *
+     * @param key   键
+     * @param value 值
+     * @param ttl   写入后过期时间，0为不过期
+     * @param unit  时间单位
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    public V put(final K key, final V value, final long ttl, final TimeUnit unit) throws CacheException {
+        Assert.notNull(key, "timed cache key can't be null");
+        Assert.notNull(value, "timed cache value can't be null");
+        Assert.isTrue(ttl >= 0, "timed cache expire time can't be negative");
+        final long now = SystemClock.now();
+        final Node<K, V> node = new Node<>(key, value);
+        node.writeDeadline = ttl > 0 ? now + unit.toMillis(ttl) : NEVER;
+        node.deadline = expireAfterAccess > 0 ? Math.min(node.writeDeadline, now + expireAfterAccess)
+                : node.writeDeadline;
+        lock.lock();
+        try {
+            final Node<K, V> old = cache.put(key, node);
+            if (Objects.nonNull(old)) {
+                wheel.deschedule(old);
+            }
+            if (node.deadline != NEVER) {
+                wheel.schedule(node);
+            }
+            expire(now);
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值，已过期的返回null
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        Assert.notNull(key, "timed cache key can't be null");
+        lock.lock();
+        try {
+            final Node<K, V> node = cache.remove(key);
+            if (Objects.isNull(node)) {
+                return null;
+            }
+            wheel.deschedule(node);
+            return node.isExpired(SystemClock.now()) ? null : node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        lock.lock();
+        try {
+            cache.clear();
+            wheel.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓存中的数据量，包含已过期但未到清理刻度的条目
+     *
+     * @return 数据量
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * 立即清理已过期的条目
+     */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            expire(SystemClock.now());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 推进时间轮，移除到期的条目
+     *
+     * @param now 当前时间
+     */
+    private void expire(final long now) {
+        lastCleanUp = now;
+        wheel.advance(now, timerNode -> {
+            if (timerNode.deadline - now > 0L) {
+                return false;
+            }
+            if (cache.remove(timerNode.item, timerNode)) {
+                statsCounter.recordEviction();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 缓存节点
+     *
+     * @param <K> 键
+     * @param <V> 值
+     */
+    private static final class Node<K, V> extends TimerWheel.TimerNode<K> {
+
+        /**
+         * 值
+         */
+        final V value;
+        /**
+         * 写入后过期的时间点
+         */
+        long writeDeadline;
+
+        Node(final K key, final V value) {
+            super(key);
+            this.value = value;
+        }
+
+        boolean isExpired(final long now) {
+            return deadline - now <= 0L;
+        }
+    }
+}
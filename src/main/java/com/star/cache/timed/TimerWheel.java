@@ -0,0 +1,253 @@
+package com.star.cache.timed;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 按到期时间的远近把节点放入不同精度的轮子中，近的精度为秒级，远的为小时、天级<br>
+ * 时间推进时只处理经过的桶，高层桶到期后重新放入低层桶，调度和到期都是均摊O(1)<br>
+ * 时间单位为毫秒，非线程安全，由外部锁保护
+ *
+ * @param <T> 节点类型
+ * @author starhq
+ */
+final class TimerWheel<T> {
+
+    /**
+     * 各层桶数
+     */
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    /**
+     * 各层每个桶的时间跨度(毫秒)，约为1秒、1分钟、1小时、1天、4天
+     */
+    private static final long[] SPANS = {
+            1L << 10,
+            1L << 16,
+            1L << 22,
+            1L << 27,
+            (1L << 27) * BUCKETS[3],
+            (1L << 27) * BUCKETS[3]
+    };
+    /**
+     * 各层由时间计算桶下标的位移
+     */
+    private static final int[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4])
+    };
+
+    /**
+     * 时间轮，每个桶是带哨兵的环形双向链表
+     */
+    private final TimerNode<T>[][] wheel;
+    /**
+     * 时间轮当前时间
+     */
+    private long time;
+
+    /**
+     * 构造
+     *
+     * @param time 初始时间
+     */
+    TimerWheel(final long time) {
+        this.time = time;
+        @SuppressWarnings("unchecked")
+        final TimerNode<T>[][] levels = (TimerNode<T>[][]) new TimerNode<?>[BUCKETS.length][];
+        this.wheel = levels;
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = newBuckets(BUCKETS[i]);
+        }
+    }
+
+    /**
+     * 创建一层的桶，每个桶放入哨兵
+     *
+     * @param length 桶数
+     * @return 桶
+     */
+    private static <T> TimerNode<T>[] newBuckets(final int length) {
+        @SuppressWarnings("unchecked")
+        final TimerNode<T>[] buckets = (TimerNode<T>[]) new TimerNode<?>[length];
+        for (int i = 0; i < length; i++) {
+            buckets[i] = TimerNode.sentinel();
+        }
+        return buckets;
+    }
+
+    /**
+     * 调度节点，已在轮中的先移出
+     *
+     * @param node 节点
+     */
+    void schedule(final TimerNode<T> node) {
+        if (Objects.nonNull(node.next)) {
+            unlink(node);
+        }
+        link(findBucket(node.deadline), node);
+    }
+
+    /**
+     * 取消调度
+     *
+     * @param node 节点
+     */
+    void deschedule(final TimerNode<T> node) {
+        if (Objects.nonNull(node.next)) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * 推进时间，处理经过的桶<br>
+     * 过期回调返回false表示节点实际未到期(比如期间被访问过)，按新的到期时间重新调度<br>
+     * 早于时间轮当前时间的now(多个线程取到的时间先后不一)直接忽略，时间轮不回退
+     *
+     * @param now     当前时间
+     * @param expirer 过期回调，返回是否已过期
+     */
+    void advance(final long now, final Predicate<TimerNode<T>> expirer) {
+        if (now - time < 0L) {
+            return;
+        }
+        final long previous = time;
+        time = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            final long previousTicks = previous >>> SHIFT[i];
+            final long currentTicks = now >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, expirer);
+        }
+    }
+
+    /**
+     * 清空
+     */
+    void clear() {
+        for (TimerNode<T>[] buckets : wheel) {
+            for (TimerNode<T> sentinel : buckets) {
+                TimerNode<T> node = sentinel.next;
+                while (node != sentinel) {
+                    final TimerNode<T> next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    node = next;
+                }
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+    }
+
+    /**
+     * 处理一层中经过的桶
+     *
+     * @param index         层
+     * @param previousTicks 上次推进时的刻度
+     * @param delta         经过的刻度数
+     * @param expirer       过期回调
+     */
+    private void expire(final int index, final long previousTicks, final long delta,
+                        final Predicate<TimerNode<T>> expirer) {
+        final TimerNode<T>[] buckets = wheel[index];
+        final int mask = buckets.length - 1;
+        final int steps = (int) Math.min(1 + delta, buckets.length);
+        final int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            final TimerNode<T> sentinel = buckets[i & mask];
+            TimerNode<T> node = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            while (node != sentinel) {
+                final TimerNode<T> next = node.next;
+                node.prev = null;
+                node.next = null;
+                if (node.deadline - time > 0L || !expirer.test(node)) {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * 根据到期时间找到所在的桶
+     *
+     * @param deadline 到期时间
+     * @return 桶的哨兵
+     */
+    private TimerNode<T> findBucket(final long deadline) {
+        // 已到期的放入当前刻度的桶，下次推进时即被处理
+        final long target = Math.max(deadline, time);
+        final long duration = target - time;
+        for (int i = 0; i < BUCKETS.length - 1; i++) {
+            if (duration < SPANS[i + 1]) {
+                final long ticks = target >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+            }
+        }
+        return wheel[BUCKETS.length - 1][0];
+    }
+
+    /**
+     * 加入桶的尾部
+     *
+     * @param sentinel 桶的哨兵
+     * @param node     节点
+     */
+    private static <T> void link(final TimerNode<T> sentinel, final TimerNode<T> node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    /**
+     * 从桶中移出
+     *
+     * @param node 节点
+     */
+    private static <T> void unlink(final TimerNode<T> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * 时间轮中的节点
+     *
+     * @param <T> 挂载的数据类型
+     */
+    static class TimerNode<T> {
+
+        /**
+         * 挂载的数据
+         */
+        final T item;
+        /**
+         * 到期时间
+         */
+        volatile long deadline;
+        TimerNode<T> prev;
+        TimerNode<T> next;
+
+        TimerNode(final T item) {
+            this.item = item;
+        }
+
+        static <T> TimerNode<T> sentinel() {
+            final TimerNode<T> sentinel = new TimerNode<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.star.cache.tinylfu;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 访问频率估算器(TinyLFU)
+ * <p>
+ * 4位计数器的Count-Min Sketch，每个long存放16个计数器，每个键在4行中各占一个计数器，取最小值作为估算频率<br>
+ * 累计增加次数达到采样数后所有计数器减半，使历史热点逐步老化
+ * <p>
+ * 非线程安全，由外部锁保护
+ *
+ * @author starhq
+ */
+final class FrequencySketch {
+
+    /**
+     * 各行的哈希种子
+     */
+    private static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+            0xcbf29ce484222325L};
+    /**
+     * 计数器清零用掩码，每个4位计数器的最高位清零
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+    /**
+     * 计数器最大值
+     */
+    private static final int MAX_COUNT = 15;
+
+    /**
+     * 计数器表
+     */
+    private long[] table;
+    /**
+     * 表长掩码
+     */
+    private int tableMask;
+    /**
+     * 采样数，达到后老化
+     */
+    private int sampleSize;
+    /**
+     * 当前增加次数
+     */
+    private int size;
+
+    /**
+     * 构造
+     *
+     * @param maximum 缓存最大容量
+     */
+    FrequencySketch(final long maximum) {
+        ensureCapacity(maximum);
+    }
+
+    /**
+     * 按缓存条目数扩大计数器表，扩大后之前的频率清零；按权重限制容量时条目数事先未知，随缓存增长调用
+     *
+     * @param maximum 缓存条目数
+     */
+    void ensureCapacity(final long maximum) {
+        final int capacity = (int) Math.min(Math.max(maximum, 1), 1 << 30);
+        if (Objects.nonNull(table) && table.length >= capacity) {
+            return;
+        }
+        this.table = new long[ceilingPowerOfTwo(capacity)];
+        this.tableMask = table.length - 1;
+        this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+        this.size = 0;
+    }
+
+    /**
+     * 估算频率
+     *
+     * @param hashCode 键的hashCode
+     * @return 频率，0~15
+     */
+    int frequency(final int hashCode) {
+        final int hash = spread(hashCode);
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(hash, i);
+            final int offset = counterOffset(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * 频率加1
+     *
+     * @param hashCode 键的hashCode
+     */
+    void increment(final int hashCode) {
+        final int hash = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 清空
+     */
+    void clear() {
+        Arrays.fill(table, 0L);
+        size = 0;
+    }
+
+    /**
+     * 指定位置计数器加1，已到最大值则不变
+     *
+     * @param index  表下标
+     * @param offset 位偏移
+     * @return 是否增加
+     */
+    private boolean incrementAt(final int index, final int offset) {
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 老化，所有计数器减半
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & 0x1111111111111111L);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    /**
+     * 第i行的表下标
+     *
+     * @param hash 哈希
+     * @param i    行
+     * @return 下标
+     */
+    private int indexOf(final int hash, final int i) {
+        long value = (hash + SEED[i]) * SEED[i];
+        value += value >>> 32;
+        return ((int) value) & tableMask;
+    }
+
+    /**
+     * 第i行计数器在long中的位偏移，每行占用long中的4个计数器
+     *
+     * @param hash 哈希
+     * @param i    行
+     * @return 位偏移
+     */
+    private static int counterOffset(final int hash, final int i) {
+        return (((hash >>> (i << 3)) & 3) + (i << 2)) << 2;
+    }
+
+    /**
+     * 二次扰动，避免低质量的hashCode
+     *
+     * @param hashCode hashCode
+     * @return 哈希
+     */
+    private static int spread(final int hashCode) {
+        int hash = hashCode;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+    /**
+     * 大于等于x的最小2的幂
+     *
+     * @param x 数值
+     * @return 2的幂
+     */
+    private static int ceilingPowerOfTwo(final int x) {
+        return x <= 1 ? 1 : 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+    }
+}
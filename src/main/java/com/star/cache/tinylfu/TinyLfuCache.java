@@ -0,0 +1,530 @@
+package com.star.cache.tinylfu;
+
+import com.star.cache.Cache;
+import com.star.cache.Weigher;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.StatsCounter;
+import com.star.exception.CacheException;
+import com.star.lang.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界缓存，W-TinyLFU淘汰策略
+ * <p>
+ * 新数据先进入占容量1%的窗口区(LRU)，窗口溢出的数据作为候选者与主区(SLRU，分为试用区和保护区)的淘汰者比较访问频率，
+ * 频率高者留下，访问频率由{@link FrequencySketch}估算<br>
+ * 窗口区能吸收突发流量，频率准入能挡住只访问一次的数据冲刷热点，在倾斜分布的访问下命中率远高于LRU<br>
+ * 容量默认按条目数计算，指定{@link Weigher}后按条目权重之和计算(比如估算的字节数)，权重超过最大容量的条目不缓存
+ * <p>
+ * 读操作也会调整队列顺序，所以所有操作共用一把锁
+ *
+ * @param <K> 键
+ * @param <V> 值
+ * @author starhq
+ */
+public class TinyLfuCache<K, V> implements Cache<K, V> {
+
+    /**
+     * 窗口区占总容量的比例
+     */
+    private static final double WINDOW_PERCENT = 0.01d;
+    /**
+     * 保护区占主区的比例
+     */
+    private static final double PROTECTED_PERCENT = 0.8d;
+    /**
+     * 候选者频率不超过该值时不做随机准入，防止哈希碰撞攻击
+     */
+    private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+    /**
+     * 最大容量，条目数或权重之和
+     */
+    private final long maximum;
+    /**
+     * 窗口区最大容量
+     */
+    private final long windowMaximum;
+    /**
+     * 保护区最大容量
+     */
+    private final long protectedMaximum;
+    /**
+     * 池，存放缓存
+     */
+    private final Map<K, Node<K, V>> cache;
+    /**
+     * 频率估算
+     */
+    private final FrequencySketch sketch;
+    /**
+     * 窗口区
+     */
+    private final NodeDeque<K, V> window = new NodeDeque<>();
+    /**
+     * 试用区
+     */
+    private final NodeDeque<K, V> probation = new NodeDeque<>();
+    /**
+     * 保护区
+     */
+    private final NodeDeque<K, V> protect = new NodeDeque<>();
+    /**
+     * 权重计算
+     */
+    private final Weigher<? super K, ? super V> weigher;
+    /**
+     * 当前权重之和
+     */
+    private long weightedSize;
+    /**
+     * 统计器
+     */
+    private final StatsCounter statsCounter;
+    /**
+     * 锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 构造方法
+     *
+     * @param maximum 最大容量
+     */
+    public TinyLfuCache(final long maximum) {
+        this(maximum, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maximum      最大容量
+     * @param statsCounter 统计器，记录命中、未命中和淘汰
+     */
+    public TinyLfuCache(final long maximum, final StatsCounter statsCounter) {
+        this(maximum, Weigher.singleton(), statsCounter);
+    }
+
+    /**
+     * 构造方法，按权重限制容量
+     *
+     * @param maximumWeight 最大权重之和
+     * @param weigher       权重计算
+     */
+    public TinyLfuCache(final long maximumWeight, final Weigher<? super K, ? super V> weigher) {
+        this(maximumWeight, weigher, StatsCounter.disabled());
+    }
+
+    /**
+     * 构造方法，按权重限制容量
+     *
+     * @param maximumWeight 最大权重之和
+     * @param weigher       权重计算
+     * @param statsCounter  统计器，记录命中、未命中和淘汰
+     */
+    public TinyLfuCache(final long maximumWeight, final Weigher<? super K, ? super V> weigher,
+                        final StatsCounter statsCounter) {
+        Assert.isTrue(maximumWeight > 0, "tiny lfu cache maximum must be greater than 0");
+        Assert.notNull(weigher, "tiny lfu cache weigher can't be null");
+        Assert.notNull(statsCounter, "tiny lfu cache stats counter can't be null");
+        this.statsCounter = statsCounter;
+        this.weigher = weigher;
+        this.maximum = maximumWeight;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_PERCENT));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_PERCENT);
+        // 按权重限制时条目数未知，频率表随条目数增长
+        final long expectedSize = weigher == Weigher.singleton() ? maximumWeight : 0;
+        this.cache = new HashMap<>((int) Math.min(Math.max(expectedSize, 16), 1 << 16));
+        this.sketch = new FrequencySketch(expectedSize);
+    }
+
+    /**
+     * 从缓存中获得值
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V get(final K key) throws CacheException {
+        Assert.notNull(key, "tiny lfu cache key can't be null");
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            final Node<K, V> node = cache.get(key);
+            if (Objects.isNull(node)) {
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            statsCounter.recordHits(1);
+            onHit(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从缓存中获得值，不记录统计，不计入频率，不调整淘汰顺序
+     *
+     * @param key 键
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V peek(final K key) throws CacheException {
+        Assert.notNull(key, "tiny lfu cache key can't be null");
+        lock.lock();
+        try {
+            final Node<K, V> node = cache.get(key);
+            return Objects.isNull(node) ? null : node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 数据存入缓存，权重超过最大容量的不缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V put(final K key, final V value) throws CacheException {
+        Assert.notNull(key, "tiny lfu cache key can't be null");
+        Assert.notNull(value, "tiny lfu cache value can't be null");
+        final int weight = weigher.weigh(key, value);
+        Assert.isTrue(weight >= 0, "tiny lfu cache weight can't be negative");
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            final Node<K, V> node = cache.get(key);
+            if (weight > maximum) {
+                if (Objects.nonNull(node)) {
+                    dequeOf(node).remove(node);
+                    discard(node);
+                } else {
+                    statsCounter.recordEviction();
+                }
+            } else if (Objects.isNull(node)) {
+                final Node<K, V> created = new Node<>(key, value, weight);
+                cache.put(key, created);
+                weightedSize += weight;
+                window.addLast(created);
+                sketch.ensureCapacity(cache.size());
+                evict();
+            } else {
+                dequeOf(node).weight += weight - node.weight;
+                weightedSize += weight - node.weight;
+                node.weight = weight;
+                node.value = value;
+                onHit(node);
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     * @return 从缓存删除的值
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public V remove(final K key) throws CacheException {
+        Assert.notNull(key, "tiny lfu cache key can't be null");
+        lock.lock();
+        try {
+            final Node<K, V> node = cache.remove(key);
+            if (Objects.isNull(node)) {
+                return null;
+            }
+            dequeOf(node).remove(node);
+            weightedSize -= node.weight;
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @throws CacheException 缓存异常
+     */
+    @Override
+    public void clear() throws CacheException {
+        lock.lock();
+        try {
+            cache.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+            sketch.clear();
+            weightedSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓存中的数据量
+     *
+     * @return 数据量
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前权重之和，未指定{@link Weigher}时等于数据量
+     *
+     * @return 权重之和
+     */
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 最大容量
+     *
+     * @return 最大容量，条目数或权重之和
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * 缓存统计快照
+     *
+     * @return 统计快照
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * 命中后调整位置，试用区命中的晋升到保护区，保护区溢出的降级回试用区
+     *
+     * @param node 节点
+     */
+    private void onHit(final Node<K, V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.moveToBack(node);
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                node.queue = Node.PROTECTED;
+                protect.addLast(node);
+                while (protect.weight > protectedMaximum) {
+                    final Node<K, V> demoted = protect.pollFirst();
+                    demoted.queue = Node.PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protect.moveToBack(node);
+                break;
+        }
+    }
+
+    /**
+     * 窗口区溢出的候选者与主区的淘汰者比较，淘汰频率低的一方；按权重限制时候选者可能需要淘汰多个较轻的条目
+     */
+    private void evict() {
+        while (window.weight > windowMaximum) {
+            final Node<K, V> candidate = window.pollFirst();
+            candidate.queue = Node.PROBATION;
+            boolean admitted = true;
+            while (weightedSize > maximum) {
+                final Node<K, V> victim = Objects.isNull(probation.head) ? protect.head : probation.head;
+                if (Objects.isNull(victim)) {
+                    break;
+                }
+                if (!admit(candidate, victim)) {
+                    admitted = false;
+                    discard(candidate);
+                    break;
+                }
+                dequeOf(victim).remove(victim);
+                discard(victim);
+            }
+            if (admitted) {
+                probation.addLast(candidate);
+            }
+        }
+        while (weightedSize > maximum) {
+            final NodeDeque<K, V> deque = Objects.isNull(probation.head)
+                    ? Objects.isNull(protect.head) ? window : protect : probation;
+            discard(deque.pollFirst());
+        }
+    }
+
+    /**
+     * 移除已出队的节点并记录淘汰
+     *
+     * @param node 节点
+     */
+    private void discard(final Node<K, V> node) {
+        cache.remove(node.key);
+        weightedSize -= node.weight;
+        statsCounter.recordEviction();
+    }
+
+    /**
+     * 候选者是否准入
+     *
+     * @param candidate 候选者
+     * @param victim    淘汰者
+     * @return 是否准入
+     */
+    private boolean admit(final Node<K, V> candidate, final Node<K, V> victim) {
+        final int candidateFreq = sketch.frequency(candidate.key.hashCode());
+        final int victimFreq = sketch.frequency(victim.key.hashCode());
+        if (candidateFreq > victimFreq) {
+            return true;
+        }
+        if (candidateFreq <= ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        // 高频候选者小概率准入，避免攻击者制造碰撞让热点淘汰者永远无法被替换
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    /**
+     * 节点所在的队列
+     *
+     * @param node 节点
+     * @return 队列
+     */
+    private NodeDeque<K, V> dequeOf(final Node<K, V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                return window;
+            case Node.PROBATION:
+                return probation;
+            default:
+                return protect;
+        }
+    }
+
+    /**
+     * 缓存节点
+     *
+     * @param <K> 键
+     * @param <V> 值
+     */
+    private static final class Node<K, V> {
+
+        /**
+         * 窗口区
+         */
+        static final int WINDOW = 0;
+        /**
+         * 试用区
+         */
+        static final int PROBATION = 1;
+        /**
+         * 保护区
+         */
+        static final int PROTECTED = 2;
+
+        final K key;
+        V value;
+        int weight;
+        int queue = WINDOW;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(final K key, final V value, final int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，头部最久未访问，同时累计节点权重
+     *
+     * @param <K> 键
+     * @param <V> 值
+     */
+    private static final class NodeDeque<K, V> {
+
+        Node<K, V> head;
+        Node<K, V> tail;
+        long weight;
+
+        void addLast(final Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (Objects.isNull(tail)) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        Node<K, V> pollFirst() {
+            final Node<K, V> node = head;
+            if (Objects.nonNull(node)) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(final Node<K, V> node) {
+            if (Objects.isNull(node.prev)) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (Objects.isNull(node.next)) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToBack(final Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.star.extra;
+
+import com.star.exception.IORuntimeException;
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+import com.star.string.StringUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器
+ * <p>
+ * 判断一个键是否可能存在：返回false时一定不存在，返回true时有一定概率(误判率)实际不存在，
+ * 用于在查询缓存、数据库之前过滤掉一定不存在的键<br>
+ * 位数组保存在long[]中，按期望元素数和误判率计算位数和hash函数个数；
+ * 用{@link HashUtil#xxHash64(byte[])}算出一个64位hash，再以双重hash(h1 + i * h2)生成k个位置<br>
+ * 堆内存储使用{@link AtomicLongArray}，并发put以CAS置位，不加锁；
+ * 堆外存储使用直接内存，不占堆也不增加GC负担，写入按分段加锁<br>
+ * 可以用{@link #toBytes()}、{@link #writeTo(Path)}持久化，也实现了{@link Serializable}，
+ * 可以直接交给{@link com.star.io.serializer.Serializer}序列化
+ *
+ * @author starhq
+ */
+public class BloomFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 序列化格式中的类型，布隆过滤器
+     */
+    static final byte TYPE_BLOOM = 1;
+    /**
+     * 序列化格式中的类型，计数布隆过滤器
+     */
+    static final byte TYPE_COUNTING = 2;
+
+    /**
+     * 位数，64的整数倍
+     */
+    private final long bitSize;
+    /**
+     * hash函数个数
+     */
+    private final int hashCount;
+    /**
+     * 位数组
+     */
+    private final transient BitArray bits;
+
+    /**
+     * 构造，位数组在堆内
+     *
+     * @param expectedInsertions 期望的元素数
+     * @param fpp                期望的误判率，(0, 1)
+     */
+    public BloomFilter(final long expectedInsertions, final double fpp) {
+        this(expectedInsertions, fpp, false);
+    }
+
+    /**
+     * 构造
+     *
+     * @param expectedInsertions 期望的元素数
+     * @param fpp                期望的误判率，(0, 1)
+     * @param offHeap            位数组是否放在堆外
+     */
+    public BloomFilter(final long expectedInsertions, final double fpp, final boolean offHeap) {
+        this.bitSize = optimalBitSize(expectedInsertions, fpp);
+        this.hashCount = optimalHashCount(expectedInsertions, bitSize);
+        this.bits = newBitArray(bitSize, offHeap);
+    }
+
+    /**
+     * 构造
+     *
+     * @param bitSize   位数
+     * @param hashCount hash函数个数
+     * @param offHeap   位数组是否放在堆外
+     */
+    private BloomFilter(final long bitSize, final int hashCount, final boolean offHeap) {
+        this.bitSize = bitSize;
+        this.hashCount = hashCount;
+        this.bits = newBitArray(bitSize, offHeap);
+    }
+
+    private static BitArray newBitArray(final long bitSize, final boolean offHeap) {
+        final int words = Math.toIntExact(bitSize >>> 6);
+        return offHeap ? new DirectBitArray(words) : new HeapBitArray(words);
+    }
+
+    /**
+     * 放入
+     *
+     * @param data 数据
+     * @return 是否有位由0变为1，false说明之前可能已经存在
+     */
+    public boolean put(final byte[] data) {
+        return put(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 放入
+     *
+     * @param str 字符串
+     * @return 是否有位由0变为1，false说明之前可能已经存在
+     */
+    public boolean put(final CharSequence str) {
+        return put(HashUtil.xxHash64(str));
+    }
+
+    /**
+     * 可能存在
+     *
+     * @param data 数据
+     * @return false为一定不存在
+     */
+    public boolean mightContain(final byte[] data) {
+        return mightContain(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 可能存在
+     *
+     * @param str 字符串
+     * @return false为一定不存在
+     */
+    public boolean mightContain(final CharSequence str) {
+        return mightContain(HashUtil.xxHash64(str));
+    }
+
+    private boolean put(final long hash) {
+        final long h2 = secondHash(hash);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= bits.set(index(hash, h2, i, bitSize));
+        }
+        return changed;
+    }
+
+    private boolean mightContain(final long hash) {
+        final long h2 = secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            if (!bits.get(index(hash, h2, i, bitSize))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 合并另一个参数相同的布隆过滤器，合并后包含两者的元素
+     *
+     * @param other 另一个布隆过滤器
+     */
+    public void putAll(final BloomFilter other) {
+        Assert.isTrue(bitSize == other.bitSize && hashCount == other.hashCount,
+                "bloom filters must have the same bit size and hash count to be merged");
+        for (int i = 0; i < bits.words(); i++) {
+            bits.or(i, other.bits.word(i));
+        }
+    }
+
+    /**
+     * 位数
+     *
+     * @return 位数
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * hash函数个数
+     *
+     * @return hash函数个数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 为1的位数
+     *
+     * @return 位数
+     */
+    public long bitCount() {
+        long count = 0;
+        for (int i = 0; i < bits.words(); i++) {
+            count += Long.bitCount(bits.word(i));
+        }
+        return count;
+    }
+
+    /**
+     * 按当前为1的位的比例估计的误判率
+     *
+     * @return 误判率
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitCount() / bitSize, hashCount);
+    }
+
+    /**
+     * 序列化为字节数组
+     *
+     * @return 字节数组
+     */
+    public byte[] toBytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(13 + (bitSize >>> 3)));
+        buffer.put(TYPE_BLOOM).putInt(hashCount).putLong(bitSize);
+        for (int i = 0; i < bits.words(); i++) {
+            buffer.putLong(bits.word(i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 写入文件
+     *
+     * @param path 文件
+     */
+    public void writeTo(final Path path) {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("write bloom filter to {} failure,the reason is: {}",
+                            path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 写入输出流，不关闭流
+     *
+     * @param out 输出流
+     * @throws IOException IO异常
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeByte(TYPE_BLOOM);
+        data.writeInt(hashCount);
+        data.writeLong(bitSize);
+        for (int i = 0; i < bits.words(); i++) {
+            data.writeLong(bits.word(i));
+        }
+        data.flush();
+    }
+
+    /**
+     * 从字节数组恢复，位数组在堆内
+     *
+     * @param bytes 字节数组
+     * @return 布隆过滤器
+     */
+    public static BloomFilter fromBytes(final byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Assert.isTrue(buffer.remaining() >= 13 && buffer.get() == TYPE_BLOOM, "not a serialized bloom filter");
+        final int hashCount = buffer.getInt();
+        final long bitSize = buffer.getLong();
+        Assert.isTrue(hashCount > 0 && bitSize > 0 && (bitSize & 63) == 0 && buffer.remaining() == bitSize >>> 3,
+                "corrupted bloom filter data");
+        final BloomFilter filter = new BloomFilter(bitSize, hashCount, false);
+        for (int i = 0; i < filter.bits.words(); i++) {
+            filter.bits.or(i, buffer.getLong());
+        }
+        return filter;
+    }
+
+    /**
+     * 从文件读取
+     *
+     * @param path    文件
+     * @param offHeap 位数组是否放在堆外
+     * @return 布隆过滤器
+     */
+    public static BloomFilter readFrom(final Path path, final boolean offHeap) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return readFrom(in, offHeap);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("read bloom filter from {} failure,the reason is: {}",
+                            path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 从输入流读取，不关闭流
+     *
+     * @param in      输入流
+     * @param offHeap 位数组是否放在堆外
+     * @return 布隆过滤器
+     * @throws IOException IO异常
+     */
+    public static BloomFilter readFrom(final InputStream in, final boolean offHeap) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        Assert.isTrue(data.readByte() == TYPE_BLOOM, "not a serialized bloom filter");
+        final int hashCount = data.readInt();
+        final long bitSize = data.readLong();
+        Assert.isTrue(hashCount > 0 && bitSize > 0 && (bitSize & 63) == 0, "corrupted bloom filter data");
+        final BloomFilter filter = new BloomFilter(bitSize, hashCount, offHeap);
+        for (int i = 0; i < filter.bits.words(); i++) {
+            filter.bits.or(i, data.readLong());
+        }
+        return filter;
+    }
+
+    /**
+     * java序列化时以字节数组的形式写出
+     *
+     * @return 序列化形式
+     */
+    private Object writeReplace() {
+        return new SerializedForm(toBytes());
+    }
+
+    /**
+     * 按期望元素数和误判率计算位数，m = -n * ln(p) / (ln2)^2，向上取整到64的倍数
+     *
+     * @param expectedInsertions 期望的元素数
+     * @param fpp                误判率
+     * @return 位数
+     */
+    static long optimalBitSize(final long expectedInsertions, final double fpp) {
+        Assert.isTrue(expectedInsertions > 0, "bloom filter expected insertions must be greater than 0");
+        Assert.isTrue(fpp > 0 && fpp < 1, "bloom filter false positive probability must be between 0 and 1");
+        final long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return Math.max(64, (bits + 63) & ~63L);
+    }
+
+    /**
+     * 计算hash函数个数，k = m / n * ln2
+     *
+     * @param expectedInsertions 期望的元素数
+     * @param bitSize            位数
+     * @return hash函数个数
+     */
+    static int optimalHashCount(final long expectedInsertions, final long bitSize) {
+        return Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 由第一个hash派生第二个hash(SplitMix64的终结函数)
+     *
+     * @param hash 第一个hash
+     * @return 第二个hash
+     */
+    static long secondHash(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * 双重hash得到第i个位置
+     *
+     * @param h1   第一个hash
+     * @param h2   第二个hash
+     * @param i    第几个hash函数
+     * @param size 位置总数
+     * @return 位置
+     */
+    static long index(final long h1, final long h2, final int i, final long size) {
+        return ((h1 + i * h2) & Long.MAX_VALUE) % size;
+    }
+
+    /**
+     * java序列化的形式
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        SerializedForm(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Object readResolve() {
+            return fromBytes(bytes);
+        }
+    }
+
+    /**
+     * 位数组
+     */
+    private interface BitArray {
+
+        boolean get(long index);
+
+        /**
+         * 置位
+         *
+         * @param index 位置
+         * @return 是否由0变为1
+         */
+        boolean set(long index);
+
+        void or(int word, long value);
+
+        long word(int word);
+
+        int words();
+    }
+
+    /**
+     * 堆内位数组，CAS置位
+     */
+    private static final class HeapBitArray implements BitArray {
+
+        private final AtomicLongArray data;
+
+        HeapBitArray(final int words) {
+            this.data = new AtomicLongArray(words);
+        }
+
+        @Override
+        public boolean get(final long index) {
+            return (data.get((int) (index >>> 6)) & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(final long index) {
+            final int word = (int) (index >>> 6);
+            final long mask = 1L << index;
+            long current;
+            do {
+                current = data.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!data.compareAndSet(word, current, current | mask));
+            return true;
+        }
+
+        @Override
+        public void or(final int word, final long value) {
+            long current;
+            do {
+                current = data.get(word);
+            } while (!data.compareAndSet(word, current, current | value));
+        }
+
+        @Override
+        public long word(final int word) {
+            return data.get(word);
+        }
+
+        @Override
+        public int words() {
+            return data.length();
+        }
+    }
+
+    /**
+     * 堆外位数组，直接内存不支持CAS，写入按分段加锁；位只会由0变为1，读不加锁
+     */
+    private static final class DirectBitArray implements BitArray {
+
+        /**
+         * 锁的分段数
+         */
+        private static final int STRIPES = 64;
+
+        private final ByteBuffer data;
+        private final int words;
+        private final Object[] locks = new Object[STRIPES];
+
+        DirectBitArray(final int words) {
+            Assert.isTrue(words <= Integer.MAX_VALUE >>> 3, "off-heap bloom filter can't exceed 2GB");
+            this.words = words;
+            this.data = ByteBuffer.allocateDirect(words << 3);
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        @Override
+        public boolean get(final long index) {
+            return (data.getLong((int) (index >>> 6) << 3) & (1L << index)) != 0;
+        }
+
+        @Override
+        public boolean set(final long index) {
+            final int word = (int) (index >>> 6);
+            final long mask = 1L << index;
+            if ((data.getLong(word << 3) & mask) != 0) {
+                return false;
+            }
+            synchronized (locks[word & (STRIPES - 1)]) {
+                final long current = data.getLong(word << 3);
+                data.putLong(word << 3, current | mask);
+                return (current & mask) == 0;
+            }
+        }
+
+        @Override
+        public void or(final int word, final long value) {
+            synchronized (locks[word & (STRIPES - 1)]) {
+                data.putLong(word << 3, data.getLong(word << 3) | value);
+            }
+        }
+
+        @Override
+        public long word(final int word) {
+            return data.getLong(word << 3);
+        }
+
+        @Override
+        public int words() {
+            return words;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.star.extra;
+
+import com.star.lang.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界负载的一致性Hash
+ * <p>
+ * 算法详解：https://arxiv.org/abs/1608.01350<br>
+ * 每个节点的容量为ceil(loadFactor * (当前总负载 + 1) * 节点权重 / 总权重)，
+ * 键从hash环上的位置顺时针查找第一个未满的节点，热点键不会压垮单个节点；loadFactor越接近1越均衡，键的移动越多<br>
+ * 负载由调用方维护：{@link #acquire(Object)}分配节点并计入负载，请求结束或连接关闭时{@link #release(Object)}；
+ * {@link #get(Object)}只按当前负载查找，不计入
+ *
+ * @param <T> 节点类型
+ * @author starhq
+ */
+public class BoundedLoadConsistentHash<T> implements NodeLocator<T> {
+
+    /**
+     * hash环
+     */
+    private final ConsistentHash<T> ring;
+    /**
+     * 负载系数，大于1
+     */
+    private final double loadFactor;
+    /**
+     * 各节点的负载
+     */
+    private final Map<T, AtomicInteger> loads = new ConcurrentHashMap<>();
+    /**
+     * 各节点的权重
+     */
+    private final Map<T, Integer> weights = new ConcurrentHashMap<>();
+    /**
+     * 总负载
+     */
+    private final AtomicLong totalLoad = new AtomicLong();
+    /**
+     * 总权重
+     */
+    private volatile long totalWeight;
+
+    /**
+     * 构造
+     *
+     * @param numberOfReplicas 复制的节点个数
+     * @param nodes            节点对象，权重都为1
+     * @param loadFactor       负载系数，单个节点的负载不超过平均负载的该倍数，常用1.25
+     */
+    public BoundedLoadConsistentHash(final int numberOfReplicas, final Collection<T> nodes, final double loadFactor) {
+        Assert.isTrue(loadFactor > 1, "bounded load consistent hash load factor must be greater than 1");
+        this.loadFactor = loadFactor;
+        this.ring = new ConsistentHash<>(numberOfReplicas, Collections.emptyList());
+        for (T node : nodes) {
+            add(node);
+        }
+    }
+
+    /**
+     * 按当前负载查找键对应的节点，不计入负载
+     *
+     * @param key 键
+     * @return 节点对象
+     */
+    @Override
+    public T get(final Object key) {
+        final long total = totalLoad.get();
+        final T node = ring.get(key, candidate -> load(candidate) < capacity(candidate, total));
+        return Objects.isNull(node) ? ring.get(key) : node;
+    }
+
+    /**
+     * 为键分配节点并计入该节点的负载
+     *
+     * @param key 键
+     * @return 节点对象，没有节点时为null
+     */
+    public T acquire(final Object key) {
+        final long total = totalLoad.get();
+        T node = ring.get(key, candidate -> tryAcquire(candidate, total));
+        if (Objects.isNull(node)) {
+            // 并发分配时各节点都可能刚好满，退回普通一致性hash
+            node = ring.get(key);
+            if (Objects.isNull(node)) {
+                return null;
+            }
+            final AtomicInteger counter = loads.get(node);
+            if (Objects.isNull(counter)) {
+                // 节点刚被并发移除，不再为它建立负载记录
+                return node;
+            }
+            counter.incrementAndGet();
+        }
+        totalLoad.incrementAndGet();
+        return node;
+    }
+
+    /**
+     * 释放{@link #acquire(Object)}计入的负载
+     *
+     * @param node 节点对象
+     */
+    public void release(final T node) {
+        final AtomicInteger counter = loads.get(node);
+        if (Objects.nonNull(counter) && counter.getAndUpdate(load -> Math.max(0, load - 1)) > 0) {
+            totalLoad.decrementAndGet();
+        }
+    }
+
+    /**
+     * 节点当前的负载
+     *
+     * @param node 节点对象
+     * @return 负载
+     */
+    public int getLoad(final T node) {
+        return load(node);
+    }
+
+    /**
+     * 总负载
+     *
+     * @return 总负载
+     */
+    public long getTotalLoad() {
+        return totalLoad.get();
+    }
+
+    @Override
+    public void add(final T node) {
+        add(node, 1);
+    }
+
+    /**
+     * 按权重增加节点，权重同时决定虚拟节点数和容量
+     *
+     * @param node   节点对象
+     * @param weight 权重
+     */
+    public synchronized void add(final T node, final int weight) {
+        Assert.isTrue(weight > 0, "bounded load consistent hash node weight must be greater than 0");
+        final Integer old = weights.put(node, weight);
+        totalWeight += weight - (Objects.isNull(old) ? 0 : old);
+        loads.putIfAbsent(node, new AtomicInteger());
+        ring.remove(node);
+        ring.add(node, weight);
+    }
+
+    /**
+     * 移除节点，该节点上的负载一并清除，调用方应为这些键重新分配
+     *
+     * @param node 节点对象
+     */
+    @Override
+    public synchronized void remove(final T node) {
+        ring.remove(node);
+        final Integer weight = weights.remove(node);
+        if (Objects.nonNull(weight)) {
+            totalWeight -= weight;
+        }
+        final AtomicInteger counter = loads.remove(node);
+        if (Objects.nonNull(counter)) {
+            totalLoad.addAndGet(-counter.get());
+        }
+    }
+
+    /**
+     * 节点的容量
+     *
+     * @param node  节点对象
+     * @param total 总负载
+     * @return 容量
+     */
+    private long capacity(final T node, final long total) {
+        final Integer weight = weights.get(node);
+        final long weightSum = totalWeight;
+        if (Objects.isNull(weight) || weightSum == 0) {
+            return 0;
+        }
+        return (long) Math.ceil(loadFactor * (total + 1) * weight / weightSum);
+    }
+
+    /**
+     * 未满时计入一个负载
+     *
+     * @param node  节点对象
+     * @param total 总负载
+     * @return 是否计入
+     */
+    private boolean tryAcquire(final T node, final long total) {
+        final AtomicInteger counter = loads.get(node);
+        if (Objects.isNull(counter)) {
+            return false;
+        }
+        final long capacity = capacity(node, total);
+        int load;
+        do {
+            load = counter.get();
+            if (load >= capacity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(load, load + 1));
+        return true;
+    }
+
+    private int load(final T node) {
+        final AtomicInteger counter = loads.get(node);
+        return Objects.isNull(counter) ? 0 : counter.get();
+    }
+}
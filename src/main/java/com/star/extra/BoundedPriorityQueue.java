@@ -1,22 +1,33 @@
 package com.star.extra;
 
+import com.star.lang.Assert;
+
+import java.io.Serializable;
+import java.util.AbstractQueue;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.PriorityQueue;
+import java.util.stream.Collector;
 
 /**
  * 有界优先队列<br>
  * <p>
- * 应用在啥场景没直观印象
+ * 保留按比较器最小的capacity个元素，即求Top-K，例如取分数最高的K个时比较器按分数倒序<br>
+ * 数组实现的大顶堆，堆顶是保留的元素中最大的一个；队列满时新元素先与堆顶比较，
+ * 不小于堆顶直接丢弃，否则替换堆顶后下沉，不做多余的出队入队<br>
+ * {@link #iterator()}按堆的顺序遍历，不复制不排序；需要有序结果时使用{@link #toList()}<br>
+ * 并行求Top-K时每个线程一个队列，最后用{@link #merge(BoundedPriorityQueue)}合并，
+ * 或者在并行流中使用{@link #collector(int, Comparator)}<br>
+ * 分数为long、double时可使用{@link LongBoundedPriorityQueue}、{@link DoubleBoundedPriorityQueue}，分数不装箱<br>
+ * 非线程安全
  *
  * @author xiaoleilu
  */
-public class BoundedPriorityQueue<E> extends PriorityQueue<E> {
+public class BoundedPriorityQueue<E> extends AbstractQueue<E> implements Serializable {
 
     /**
      *
@@ -26,11 +37,19 @@ public class BoundedPriorityQueue<E> extends PriorityQueue<E> {
     /**
      * 容量
      */
-    private int capacity;
+    private final int capacity;
     /**
-     * 比较器
+     * 比较器，为null时使用元素的自然顺序
+     */
+    private final Comparator<? super E> comparator;
+    /**
+     * 堆，堆顶最大
+     */
+    private final Object[] heap;
+    /**
+     * 元素个数
      */
-    private Comparator<? super E> comparator;
+    private int size;
 
     /**
      * 构造方法
@@ -48,48 +67,41 @@ public class BoundedPriorityQueue<E> extends PriorityQueue<E> {
      * @param comparator 比较器
      */
     public BoundedPriorityQueue(final int capacity, final Comparator<? super E> comparator) {
-        super(capacity, new Comparator<E>() {
-
-            /**
-             * 比较
-             */
-            @Override
-            public int compare(final E obj1, final E obj2) {
-                int cResult = 0;
-                if (Objects.isNull(comparator)) {
-                    @SuppressWarnings("unchecked") final Comparable<E> o1c = (Comparable<E>) obj1;
-                    cResult = o1c.compareTo(obj2);
-                } else {
-                    cResult = comparator.compare(obj1, obj2);
-                }
-
-                return -cResult;
-            }
-
-        });
+        Assert.isTrue(capacity > 0, "bounded priority queue capacity must be greater than 0");
         this.capacity = capacity;
         this.comparator = comparator;
+        this.heap = new Object[capacity];
     }
 
     /**
-     * 入队列，当队列满时，淘汰末尾元素
+     * 入队列，当队列满时，新元素比堆顶小才替换堆顶
      *
      * @param ele 元素
-     * @return 成功与否
+     * @return 是否保留了该元素
      */
     @Override
     public boolean offer(final E ele) {
-        boolean result = false;
-        if (size() >= capacity) {
-            final E head = peek();
-            if (this.comparator().compare(ele, head) <= 0) {
-                result = true;
-            }
-            // 当队列满时，就要淘汰顶端队列
-
-            poll();
+        Objects.requireNonNull(ele);
+        if (size < capacity) {
+            siftUp(size++, ele);
+            return true;
         }
-        return result ? result : super.offer(ele);
+        if (compare(ele, elementAt(0)) >= 0) {
+            return false;
+        }
+        siftDown(0, ele);
+        return true;
+    }
+
+    /**
+     * 入队列，同{@link #offer(Object)}，队列满时被丢弃不抛出异常
+     *
+     * @param ele 元素
+     * @return 是否保留了该元素
+     */
+    @Override
+    public boolean add(final E ele) {
+        return offer(ele);
     }
 
     /**
@@ -103,20 +115,167 @@ public class BoundedPriorityQueue<E> extends PriorityQueue<E> {
         return this.addAll(Arrays.asList(array));
     }
 
+    /**
+     * 合并另一个队列，合并后保留两者中最小的capacity个元素
+     *
+     * @param other 另一个队列
+     * @return 当前队列
+     */
+    public BoundedPriorityQueue<E> merge(final BoundedPriorityQueue<? extends E> other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.elementAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * 并行流中求Top-K的收集器，每个分段一个队列，最后合并
+     *
+     * @param capacity   队列大小
+     * @param comparator 比较器
+     * @param <E>        元素类型
+     * @return 收集器
+     */
+    public static <E> Collector<E, ?, BoundedPriorityQueue<E>> collector(final int capacity,
+                                                                        final Comparator<? super E> comparator) {
+        return Collector.of(() -> new BoundedPriorityQueue<>(capacity, comparator), BoundedPriorityQueue::offer,
+                BoundedPriorityQueue::merge);
+    }
+
+    /**
+     * 堆顶，即保留的元素中最大的一个
+     *
+     * @return 堆顶元素，队列为空时为null
+     */
+    @Override
+    public E peek() {
+        return size == 0 ? null : elementAt(0);
+    }
+
+    /**
+     * 移除堆顶
+     *
+     * @return 堆顶元素，队列为空时为null
+     */
+    @Override
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        final E head = elementAt(0);
+        final E last = elementAt(--size);
+        heap[size] = null;
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return head;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * 容量
+     *
+     * @return 容量
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 比较器
+     *
+     * @return 比较器，为null时使用自然顺序
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
     /**
      * @return 返回排序后的列表
      */
     public List<E> toList() {
-        final ArrayList<E> list = new ArrayList<>(this);
-        Collections.sort(list, comparator);
+        final List<E> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elementAt(i));
+        }
+        list.sort(this::compare);
         return list;
     }
 
     /**
-     * @return 返回迭代器
+     * @return 返回按堆的顺序遍历的迭代器，不支持删除
      */
     @Override
     public Iterator<E> iterator() {
-        return toList().iterator();
+        return new Iterator<E>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elementAt(index++);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(final int index) {
+        return (E) heap[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(final E obj1, final E obj2) {
+        return Objects.isNull(comparator) ? ((Comparable<? super E>) obj1).compareTo(obj2)
+                : comparator.compare(obj1, obj2);
+    }
+
+    private void siftUp(int index, final E ele) {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            final E parentEle = elementAt(parent);
+            if (compare(ele, parentEle) <= 0) {
+                break;
+            }
+            heap[index] = parentEle;
+            index = parent;
+        }
+        heap[index] = ele;
+    }
+
+    private void siftDown(int index, final E ele) {
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            E childEle = elementAt(child);
+            final int right = child + 1;
+            if (right < size && compare(elementAt(right), childEle) > 0) {
+                child = right;
+                childEle = elementAt(child);
+            }
+            if (compare(ele, childEle) >= 0) {
+                break;
+            }
+            heap[index] = childEle;
+            index = child;
+        }
+        heap[index] = ele;
     }
 }
@@ -0,0 +1,253 @@
+package com.star.extra;
+
+import com.star.lang.Assert;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的Space-Saving热点统计，用于在请求线程中记录热点键、热点调用方
+ * <p>
+ * 每个线程先把记录写入自己的缓冲区(只有本线程会争用，锁几乎没有开销)，缓冲区满时在锁外合并相同的元素，
+ * 再一次性加锁批量写入{@link SpaceSaving}，持锁时间和争用次数都远小于每次记录都加锁<br>
+ * 查询时先把所有线程缓冲区中的记录写入，结果包含查询之前完成的全部记录<br>
+ * 缓冲区随线程创建，适合线程池这类长期存在的线程
+ *
+ * @param <T> 元素类型
+ * @author starhq
+ */
+public class ConcurrentSpaceSaving<T> {
+
+    /**
+     * 默认的缓冲区大小
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 128;
+
+    /**
+     * 统计
+     */
+    private final SpaceSaving<T> summary;
+    /**
+     * 保护统计的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 缓冲区大小
+     */
+    private final int bufferSize;
+    /**
+     * 当前线程的缓冲区
+     */
+    private final ThreadLocal<Buffer> buffers;
+    /**
+     * 全部缓冲区，查询时写入
+     */
+    private final Queue<Buffer> allBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 构造
+     *
+     * @param capacity 计数器个数，误差不超过总数 / capacity
+     */
+    public ConcurrentSpaceSaving(final int capacity) {
+        this(capacity, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 构造
+     *
+     * @param capacity   计数器个数，误差不超过总数 / capacity
+     * @param bufferSize 每个线程的缓冲区大小
+     */
+    public ConcurrentSpaceSaving(final int capacity, final int bufferSize) {
+        Assert.isTrue(bufferSize > 0, "space saving buffer size must be greater than 0");
+        this.summary = new SpaceSaving<>(capacity);
+        this.bufferSize = bufferSize;
+        this.buffers = ThreadLocal.withInitial(() -> {
+            final Buffer buffer = new Buffer(this.bufferSize);
+            allBuffers.add(buffer);
+            return buffer;
+        });
+    }
+
+    /**
+     * 记录一次
+     *
+     * @param item 元素
+     */
+    public void offer(final T item) {
+        offer(item, 1);
+    }
+
+    /**
+     * 记录多次
+     *
+     * @param item  元素
+     * @param count 次数
+     */
+    public void offer(final T item, final long count) {
+        Assert.notNull(item, "space saving item can't be null");
+        Assert.isTrue(count > 0, "space saving count must be greater than 0");
+        final Buffer buffer = buffers.get();
+        synchronized (buffer) {
+            buffer.items[buffer.size] = item;
+            buffer.counts[buffer.size++] = count;
+            if (buffer.size == bufferSize) {
+                drain(buffer);
+            }
+        }
+    }
+
+    /**
+     * 次数最多的若干元素，按计数降序
+     *
+     * @param n 个数
+     * @return 元素及其计数和误差
+     */
+    public List<SpaceSaving.Entry<T>> top(final int n) {
+        drainAll();
+        lock.lock();
+        try {
+            return summary.top(n);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 真实次数一定超过总数 * support的元素，按计数降序
+     *
+     * @param support 比例，(0, 1)
+     * @return 元素及其计数和误差
+     */
+    public List<SpaceSaving.Entry<T>> guaranteedHeavyHitters(final double support) {
+        drainAll();
+        lock.lock();
+        try {
+            return summary.guaranteedHeavyHitters(support);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 估计的次数，不低于真实值
+     *
+     * @param item 元素
+     * @return 次数
+     */
+    public long estimate(final T item) {
+        drainAll();
+        lock.lock();
+        try {
+            return summary.estimate(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 总数
+     *
+     * @return 总数
+     */
+    public long getTotal() {
+        drainAll();
+        lock.lock();
+        try {
+            return summary.getTotal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空，已在缓冲区中的记录一并丢弃
+     */
+    public void clear() {
+        for (Buffer buffer : allBuffers) {
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+        lock.lock();
+        try {
+            summary.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把所有线程缓冲区中的记录写入统计
+     */
+    private void drainAll() {
+        for (Buffer buffer : allBuffers) {
+            synchronized (buffer) {
+                drain(buffer);
+            }
+        }
+    }
+
+    /**
+     * 把缓冲区中的记录批量写入统计，调用方持有缓冲区的锁
+     *
+     * @param buffer 缓冲区
+     */
+    @SuppressWarnings("unchecked")
+    private void drain(final Buffer buffer) {
+        if (buffer.size == 0) {
+            return;
+        }
+        // 先在锁外合并相同的元素，热点键在一批中往往重复多次
+        final Map<Object, long[]> batch = buffer.batch;
+        for (int i = 0; i < buffer.size; i++) {
+            final long[] total = batch.get(buffer.items[i]);
+            if (Objects.isNull(total)) {
+                batch.put(buffer.items[i], new long[]{buffer.counts[i]});
+            } else {
+                total[0] += buffer.counts[i];
+            }
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<Object, long[]> entry : batch.entrySet()) {
+                summary.offer((T) entry.getKey(), entry.getValue()[0]);
+            }
+        } finally {
+            lock.unlock();
+        }
+        batch.clear();
+        buffer.clear();
+    }
+
+    /**
+     * 线程的缓冲区
+     */
+    private static final class Buffer {
+
+        final Object[] items;
+        final long[] counts;
+        /**
+         * 合并相同元素用的临时表，复用
+         */
+        final Map<Object, long[]> batch = new HashMap<>();
+        int size;
+
+        Buffer(final int size) {
+            this.items = new Object[size];
+            this.counts = new long[size];
+        }
+
+        void clear() {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -1,20 +1,28 @@
 package com.star.extra;
 
 import com.star.hash.HashUtil;
+import com.star.lang.Assert;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 /**
  * 一致性Hash算法
  * 算法详解：http://blog.csdn.net/sparkliang/article/details/5279393
  * 算法实现：https://weblogs.java.net/blog/2007/11/27/consistent-hashing
+ * <p>
+ * Hash环保存为有序的int[]及对应的节点数组，查找时二分，不装箱也不创建视图<br>
+ * 增删节点时在锁内生成新的环并以volatile发布(写时复制)，查找不加锁，始终看到完整的某个版本<br>
+ * 节点可以带权重，虚拟节点数与权重成正比；需要限制单节点负载时使用{@link BoundedLoadConsistentHash}
  *
  * @param <T> 节点类型
  * @author xiaoleilu
  */
-public class ConsistentHash<T> {
+public class ConsistentHash<T> implements NodeLocator<T> {
     /**
      * 复制的节点个数
      */
@@ -22,7 +30,11 @@ public class ConsistentHash<T> {
     /**
      * 一致性Hash环
      */
-    private final SortedMap<Integer, T> circle = new TreeMap<>();
+    private volatile Ring ring = new Ring(new int[0], new Object[0]);
+    /**
+     * 各节点的虚拟节点数，按toString区分
+     */
+    private final Map<String, Integer> replicas = new HashMap<>();
     /**
      * Hash计算对象，用于自定义hash算法
      */
@@ -35,15 +47,8 @@ public class ConsistentHash<T> {
      * @param nodes            节点对象
      */
     public ConsistentHash(int numberOfReplicas, Collection<T> nodes) {
-        this.numberOfReplicas = numberOfReplicas;
-        this.hashFunc = key -> {
-            //默认使用FNV1hash算法
-            return HashUtil.fnvHash(key.toString());
-        };
-        //初始化节点
-        for (T node : nodes) {
-            add(node);
-        }
+        //默认使用FNV1hash算法
+        this(key -> HashUtil.fnvHash(key.toString()), numberOfReplicas, nodes);
     }
 
     /**
@@ -57,9 +62,7 @@ public class ConsistentHash<T> {
         this.numberOfReplicas = numberOfReplicas;
         this.hashFunc = hashFunc;
         //初始化节点
-        for (T node : nodes) {
-            add(node);
-        }
+        addAll(nodes);
     }
 
     /**
@@ -70,10 +73,103 @@ public class ConsistentHash<T> {
      *
      * @param node 节点对象
      */
+    @Override
     public void add(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            circle.put(hashFunc.hash(node.toString() + i), node);
+        add(node, 1);
+    }
+
+    /**
+     * 按权重增加节点，虚拟节点数为复制节点个数乘以权重，适合节点容量不同的集群
+     *
+     * @param node   节点对象
+     * @param weight 权重
+     */
+    public void add(T node, int weight) {
+        Assert.isTrue(weight > 0, "consistent hash node weight must be greater than 0");
+        addAll(new Object[]{node}, new int[]{weight});
+    }
+
+    /**
+     * 批量增加节点，只生成一次新的环<br>
+     * 虚拟节点hash冲突时后加入的节点覆盖先加入的
+     *
+     * @param nodes 节点对象
+     */
+    public void addAll(Collection<T> nodes) {
+        final int[] weights = new int[nodes.size()];
+        Arrays.fill(weights, 1);
+        addAll(nodes.toArray(), weights);
+    }
+
+    /**
+     * 批量增加节点
+     *
+     * @param added   节点对象
+     * @param weights 权重
+     */
+    private synchronized void addAll(final Object[] added, final int[] weights) {
+        if (added.length == 0) {
+            return;
+        }
+        //已有的节点重新加入时权重可能变了，先移除旧的虚拟节点
+        final int[] stale = staleHashes(added);
+        final Ring current = stale.length == 0 ? ring : ring.remove(stale);
+        //高32位为hash，低32位为加入顺序，排序后同一hash的最后一个即最后加入的
+        int total = 0;
+        for (int weight : weights) {
+            total += weight * numberOfReplicas;
+        }
+        final long[] points = new long[total];
+        int index = 0;
+        for (int i = 0; i < added.length; i++) {
+            final String name = added[i].toString();
+            final int replicas = weights[i] * numberOfReplicas;
+            for (int j = 0; j < replicas; j++) {
+                points[index++] = ((long) hashFunc.hash(name + j) << 32) | i;
+            }
+            this.replicas.put(name, replicas);
+        }
+        Arrays.sort(points);
+        final int[] hashes = new int[points.length];
+        final Object[] owners = new Object[points.length];
+        int count = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (i + 1 < points.length && (points[i + 1] >> 32) == (points[i] >> 32)) {
+                continue;
+            }
+            hashes[count] = (int) (points[i] >> 32);
+            owners[count++] = added[(int) points[i]];
+        }
+        ring = current.merge(hashes, owners, count);
+    }
+
+    /**
+     * 要加入的节点中已在环上的节点的旧虚拟节点hash
+     *
+     * @param added 节点对象
+     * @return 旧虚拟节点的hash，升序
+     */
+    private int[] staleHashes(final Object[] added) {
+        int total = 0;
+        for (Object node : added) {
+            final Integer count = replicas.get(node.toString());
+            if (Objects.nonNull(count)) {
+                total += count;
+            }
         }
+        final int[] stale = new int[total];
+        int index = 0;
+        for (Object node : added) {
+            final String name = node.toString();
+            final Integer count = replicas.get(name);
+            if (Objects.nonNull(count)) {
+                for (int i = 0; i < count; i++) {
+                    stale[index++] = hashFunc.hash(name + i);
+                }
+            }
+        }
+        Arrays.sort(stale);
+        return stale;
     }
 
     /**
@@ -81,10 +177,16 @@ public class ConsistentHash<T> {
      *
      * @param node 节点对象
      */
-    public void remove(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            circle.remove(hashFunc.hash(node.toString() + i));
+    @Override
+    public synchronized void remove(T node) {
+        final String name = node.toString();
+        final Integer count = replicas.remove(name);
+        final int[] removed = new int[Objects.isNull(count) ? numberOfReplicas : count];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = hashFunc.hash(name + i);
         }
+        Arrays.sort(removed);
+        ring = ring.remove(removed);
     }
 
     /**
@@ -93,18 +195,129 @@ public class ConsistentHash<T> {
      * @param key 为给定键取Hash，取得顺时针方向上最近的一个虚拟节点对应的实际节点
      * @return 节点对象
      */
+    @Override
+    @SuppressWarnings("unchecked")
     public T get(Object key) {
-        if (circle.isEmpty()) {
+        final Ring current = ring;
+        if (current.hashes.length == 0) {
+            return null;
+        }
+        return (T) current.nodes[current.indexOf(hashFunc.hash(key))];
+    }
+
+    /**
+     * 从key的位置顺时针查找第一个满足条件的节点，供有界负载使用
+     *
+     * @param key    键
+     * @param accept 条件
+     * @return 节点对象，环为空或都不满足时为null
+     */
+    @SuppressWarnings("unchecked")
+    T get(final Object key, final Predicate<? super T> accept) {
+        final Ring current = ring;
+        final int length = current.hashes.length;
+        if (length == 0) {
             return null;
         }
-        int hash = hashFunc.hash(key);
-        if (!circle.containsKey(hash)) {
-            //返回此映射的部分视图，其键大于等于 hash
-            SortedMap<Integer, T> tailMap = circle.tailMap(hash);
-            hash = tailMap.isEmpty() ? circle.firstKey() : tailMap.firstKey();
+        final int start = current.indexOf(hashFunc.hash(key));
+        for (int i = 0; i < length; i++) {
+            final T node = (T) current.nodes[(start + i) % length];
+            if (accept.test(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 环上虚拟节点的个数
+     *
+     * @return 虚拟节点个数
+     */
+    public int size() {
+        return ring.hashes.length;
+    }
+
+    /**
+     * Hash环的一个不可变版本
+     */
+    private static final class Ring {
+
+        /**
+         * 虚拟节点的hash，升序
+         */
+        final int[] hashes;
+        /**
+         * 虚拟节点对应的实际节点
+         */
+        final Object[] nodes;
+
+        Ring(final int[] hashes, final Object[] nodes) {
+            this.hashes = hashes;
+            this.nodes = nodes;
+        }
+
+        /**
+         * 顺时针方向上第一个大于等于hash的虚拟节点，超过最大值时回到第一个
+         *
+         * @param hash hash值
+         * @return 下标
+         */
+        int indexOf(final int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == hashes.length ? 0 : index;
+        }
+
+        /**
+         * 合并有序的新虚拟节点，hash相同时新的覆盖旧的
+         *
+         * @param addHashes 新虚拟节点的hash，升序且不重复
+         * @param addNodes  新虚拟节点对应的实际节点
+         * @param count     新虚拟节点个数
+         * @return 新的环
+         */
+        Ring merge(final int[] addHashes, final Object[] addNodes, final int count) {
+            final int[] mergedHashes = new int[hashes.length + count];
+            final Object[] mergedNodes = new Object[mergedHashes.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < hashes.length || j < count) {
+                if (j == count || (i < hashes.length && hashes[i] < addHashes[j])) {
+                    mergedHashes[k] = hashes[i];
+                    mergedNodes[k++] = nodes[i++];
+                } else {
+                    if (i < hashes.length && hashes[i] == addHashes[j]) {
+                        i++;
+                    }
+                    mergedHashes[k] = addHashes[j];
+                    mergedNodes[k++] = addNodes[j++];
+                }
+            }
+            return new Ring(Arrays.copyOf(mergedHashes, k), Arrays.copyOf(mergedNodes, k));
+        }
+
+        /**
+         * 移除给定hash的虚拟节点
+         *
+         * @param removed 要移除的hash，升序
+         * @return 新的环
+         */
+        Ring remove(final int[] removed) {
+            final int[] keptHashes = new int[hashes.length];
+            final Object[] keptNodes = new Object[hashes.length];
+            int k = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                if (Arrays.binarySearch(removed, hashes[i]) < 0) {
+                    keptHashes[k] = hashes[i];
+                    keptNodes[k++] = nodes[i];
+                }
+            }
+            return k == hashes.length ? this : new Ring(Arrays.copyOf(keptHashes, k), Arrays.copyOf(keptNodes, k));
         }
-        //正好命中
-        return circle.get(hash);
     }
 
     /**
@@ -113,6 +326,6 @@ public class ConsistentHash<T> {
      * @author xiaoleilu
      */
     public interface HashFunc {
-        Integer hash(Object key);
+        int hash(Object key);
     }
 }
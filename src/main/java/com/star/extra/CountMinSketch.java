@@ -0,0 +1,190 @@
+package com.star.extra;
+
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+
+/**
+ * Count-Min Sketch频率估计
+ * <p>
+ * depth行、每行width个计数器，元素在每行按各自的hash落到一个计数器上加计数，估计值取各行的最小值<br>
+ * 估计值不会低于真实值，以1 - delta的概率不超过真实值 + epsilon * 总计数；
+ * width = e / epsilon(向上取到2的幂)，depth = ln(1 / delta)<br>
+ * 各行的位置由{@link HashUtil#xxHash64(byte[])}的64位hash以双重hash生成<br>
+ * 非线程安全，并行统计时每个线程一个实例，最后用{@link #merge(CountMinSketch)}合并
+ *
+ * @author starhq
+ */
+public class CountMinSketch {
+
+    /**
+     * 行数
+     */
+    private final int depth;
+    /**
+     * 每行的计数器个数，2的幂
+     */
+    private final int width;
+    /**
+     * 计数器，按行连续存放
+     */
+    private final long[] counts;
+    /**
+     * 总计数
+     */
+    private long totalCount;
+
+    /**
+     * 按误差构造
+     *
+     * @param epsilon 相对总计数的误差，(0, 1)
+     * @param delta   超出误差的概率，(0, 1)
+     */
+    public CountMinSketch(final double epsilon, final double delta) {
+        this(depthOf(delta), widthOf(epsilon));
+    }
+
+    /**
+     * 构造
+     *
+     * @param depth 行数
+     * @param width 每行的计数器个数，向上取到2的幂
+     */
+    public CountMinSketch(final int depth, final int width) {
+        Assert.isTrue(depth > 0, "count min sketch depth must be greater than 0");
+        Assert.isTrue(width > 0 && width <= 1 << 30, "count min sketch width must be between 1 and 2^30");
+        this.depth = depth;
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.counts = new long[Math.multiplyExact(depth, this.width)];
+    }
+
+    private static int depthOf(final double delta) {
+        Assert.isTrue(delta > 0 && delta < 1, "count min sketch delta must be between 0 and 1");
+        return (int) Math.ceil(Math.log(1 / delta));
+    }
+
+    private static int widthOf(final double epsilon) {
+        Assert.isTrue(epsilon > 0 && epsilon < 1, "count min sketch epsilon must be between 0 and 1");
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    /**
+     * 加计数
+     *
+     * @param data  数据
+     * @param count 计数，不能为负
+     */
+    public void add(final byte[] data, final long count) {
+        addHash(HashUtil.xxHash64(data), count);
+    }
+
+    /**
+     * 加计数
+     *
+     * @param str   字符串
+     * @param count 计数，不能为负
+     */
+    public void add(final CharSequence str, final long count) {
+        addHash(HashUtil.xxHash64(str), count);
+    }
+
+    /**
+     * 加计数
+     *
+     * @param value 数值
+     * @param count 计数，不能为负
+     */
+    public void add(final long value, final long count) {
+        addHash(HyperLogLog.mix(value), count);
+    }
+
+    /**
+     * 估计频率
+     *
+     * @param data 数据
+     * @return 估计值，不低于真实值
+     */
+    public long estimate(final byte[] data) {
+        return estimateHash(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 估计频率
+     *
+     * @param str 字符串
+     * @return 估计值，不低于真实值
+     */
+    public long estimate(final CharSequence str) {
+        return estimateHash(HashUtil.xxHash64(str));
+    }
+
+    /**
+     * 估计频率
+     *
+     * @param value 数值
+     * @return 估计值，不低于真实值
+     */
+    public long estimate(final long value) {
+        return estimateHash(HyperLogLog.mix(value));
+    }
+
+    private void addHash(final long hash, final long count) {
+        Assert.isTrue(count >= 0, "count min sketch count can't be negative");
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < depth; i++) {
+            counts[i * width + ((h1 + i * h2) & (width - 1))] += count;
+        }
+        totalCount += count;
+    }
+
+    private long estimateHash(final long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counts[i * width + ((h1 + i * h2) & (width - 1))]);
+        }
+        return min;
+    }
+
+    /**
+     * 合并另一个尺寸相同的实例，合并后相当于两者的计数相加
+     *
+     * @param other 另一个实例
+     */
+    public void merge(final CountMinSketch other) {
+        Assert.isTrue(depth == other.depth && width == other.width,
+                "count min sketches must have the same depth and width to be merged");
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * 总计数
+     *
+     * @return 总计数
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 行数
+     *
+     * @return 行数
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 每行的计数器个数
+     *
+     * @return 计数器个数
+     */
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,334 @@
+package com.star.extra;
+
+import com.star.exception.IORuntimeException;
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+import com.star.string.StringUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 计数布隆过滤器，支持删除
+ * <p>
+ * 把{@link BloomFilter}的每一位换成4位计数器，一个long存16个，put时k个计数器加1，remove时减1，
+ * 计数器都不为0时可能存在<br>
+ * 计数器加到15后饱和，不再增减，避免溢出导致误删；只应删除确实放入过的元素<br>
+ * 计数器的增减都以CAS完成，并发put、remove不加锁<br>
+ * 空间是同样误判率的{@link BloomFilter}的4倍
+ *
+ * @author starhq
+ */
+public class CountingBloomFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 计数器的最大值
+     */
+    private static final long MAX_COUNT = 15;
+
+    /**
+     * 计数器个数，16的整数倍
+     */
+    private final long counterSize;
+    /**
+     * hash函数个数
+     */
+    private final int hashCount;
+    /**
+     * 计数器，每个long存16个
+     */
+    private final transient AtomicLongArray counters;
+
+    /**
+     * 构造
+     *
+     * @param expectedInsertions 期望的元素数
+     * @param fpp                期望的误判率，(0, 1)
+     */
+    public CountingBloomFilter(final long expectedInsertions, final double fpp) {
+        this.counterSize = BloomFilter.optimalBitSize(expectedInsertions, fpp);
+        this.hashCount = BloomFilter.optimalHashCount(expectedInsertions, counterSize);
+        this.counters = new AtomicLongArray(Math.toIntExact(counterSize >>> 4));
+    }
+
+    /**
+     * 构造
+     *
+     * @param counterSize 计数器个数
+     * @param hashCount   hash函数个数
+     */
+    private CountingBloomFilter(final long counterSize, final int hashCount) {
+        this.counterSize = counterSize;
+        this.hashCount = hashCount;
+        this.counters = new AtomicLongArray(Math.toIntExact(counterSize >>> 4));
+    }
+
+    /**
+     * 放入
+     *
+     * @param data 数据
+     */
+    public void put(final byte[] data) {
+        put(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 放入
+     *
+     * @param str 字符串
+     */
+    public void put(final CharSequence str) {
+        put(HashUtil.xxHash64(str));
+    }
+
+    /**
+     * 删除，不可能存在时不做处理
+     *
+     * @param data 数据
+     * @return 是否删除
+     */
+    public boolean remove(final byte[] data) {
+        return remove(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 删除，不可能存在时不做处理
+     *
+     * @param str 字符串
+     * @return 是否删除
+     */
+    public boolean remove(final CharSequence str) {
+        return remove(HashUtil.xxHash64(str));
+    }
+
+    /**
+     * 可能存在
+     *
+     * @param data 数据
+     * @return false为一定不存在
+     */
+    public boolean mightContain(final byte[] data) {
+        return mightContain(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 可能存在
+     *
+     * @param str 字符串
+     * @return false为一定不存在
+     */
+    public boolean mightContain(final CharSequence str) {
+        return mightContain(HashUtil.xxHash64(str));
+    }
+
+    private void put(final long hash) {
+        final long h2 = BloomFilter.secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            add(BloomFilter.index(hash, h2, i, counterSize), 1);
+        }
+    }
+
+    private boolean remove(final long hash) {
+        if (!mightContain(hash)) {
+            return false;
+        }
+        final long h2 = BloomFilter.secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            add(BloomFilter.index(hash, h2, i, counterSize), -1);
+        }
+        return true;
+    }
+
+    private boolean mightContain(final long hash) {
+        final long h2 = BloomFilter.secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            if (count(BloomFilter.index(hash, h2, i, counterSize)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计数器加减1，为0或已饱和时不再减，饱和后不再加
+     *
+     * @param index 计数器位置
+     * @param delta 1或-1
+     */
+    private void add(final long index, final int delta) {
+        final int word = (int) (index >>> 4);
+        final int shift = (int) (index & 15) << 2;
+        long current;
+        long count;
+        do {
+            current = counters.get(word);
+            count = (current >>> shift) & MAX_COUNT;
+            if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+                return;
+            }
+        } while (!counters.compareAndSet(word, current, current + ((long) delta << shift)));
+    }
+
+    private long count(final long index) {
+        return (counters.get((int) (index >>> 4)) >>> ((index & 15) << 2)) & MAX_COUNT;
+    }
+
+    /**
+     * 计数器个数
+     *
+     * @return 计数器个数
+     */
+    public long getCounterSize() {
+        return counterSize;
+    }
+
+    /**
+     * hash函数个数
+     *
+     * @return hash函数个数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 序列化为字节数组
+     *
+     * @return 字节数组
+     */
+    public byte[] toBytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(13 + (counterSize >>> 1)));
+        buffer.put(BloomFilter.TYPE_COUNTING).putInt(hashCount).putLong(counterSize);
+        for (int i = 0; i < counters.length(); i++) {
+            buffer.putLong(counters.get(i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 写入文件
+     *
+     * @param path 文件
+     */
+    public void writeTo(final Path path) {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("write counting bloom filter to {} failure,the reason is: {}",
+                            path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 写入输出流，不关闭流
+     *
+     * @param out 输出流
+     * @throws IOException IO异常
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeByte(BloomFilter.TYPE_COUNTING);
+        data.writeInt(hashCount);
+        data.writeLong(counterSize);
+        for (int i = 0; i < counters.length(); i++) {
+            data.writeLong(counters.get(i));
+        }
+        data.flush();
+    }
+
+    /**
+     * 从字节数组恢复
+     *
+     * @param bytes 字节数组
+     * @return 计数布隆过滤器
+     */
+    public static CountingBloomFilter fromBytes(final byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Assert.isTrue(buffer.remaining() >= 13 && buffer.get() == BloomFilter.TYPE_COUNTING,
+                "not a serialized counting bloom filter");
+        final int hashCount = buffer.getInt();
+        final long counterSize = buffer.getLong();
+        Assert.isTrue(hashCount > 0 && counterSize > 0 && (counterSize & 15) == 0
+                && buffer.remaining() == counterSize >>> 1, "corrupted counting bloom filter data");
+        final CountingBloomFilter filter = new CountingBloomFilter(counterSize, hashCount);
+        for (int i = 0; i < filter.counters.length(); i++) {
+            filter.counters.set(i, buffer.getLong());
+        }
+        return filter;
+    }
+
+    /**
+     * 从文件读取
+     *
+     * @param path 文件
+     * @return 计数布隆过滤器
+     */
+    public static CountingBloomFilter readFrom(final Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return readFrom(in);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("read counting bloom filter from {} failure,the reason is: {}",
+                            path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 从输入流读取，不关闭流
+     *
+     * @param in 输入流
+     * @return 计数布隆过滤器
+     * @throws IOException IO异常
+     */
+    public static CountingBloomFilter readFrom(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        Assert.isTrue(data.readByte() == BloomFilter.TYPE_COUNTING, "not a serialized counting bloom filter");
+        final int hashCount = data.readInt();
+        final long counterSize = data.readLong();
+        Assert.isTrue(hashCount > 0 && counterSize > 0 && (counterSize & 15) == 0,
+                "corrupted counting bloom filter data");
+        final CountingBloomFilter filter = new CountingBloomFilter(counterSize, hashCount);
+        for (int i = 0; i < filter.counters.length(); i++) {
+            filter.counters.set(i, data.readLong());
+        }
+        return filter;
+    }
+
+    /**
+     * java序列化时以字节数组的形式写出
+     *
+     * @return 序列化形式
+     */
+    private Object writeReplace() {
+        return new SerializedForm(toBytes());
+    }
+
+    /**
+     * java序列化的形式
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        SerializedForm(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Object readResolve() {
+            return fromBytes(bytes);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.star.extra;
+
+import com.star.lang.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按double分数求Top-K的有界优先队列
+ * <p>
+ * 保留分数最大的capacity个元素，分数存放在double[]中不装箱，元素可以为null(只关心分数时)，分数不能为NaN<br>
+ * 数组实现的小顶堆，堆顶是保留的分数中最小的一个，即进入Top-K的门槛；
+ * 队列满时新分数不大于门槛直接丢弃，否则替换堆顶后下沉<br>
+ * 并行求Top-K时每个线程一个队列，最后用{@link #merge(DoubleBoundedPriorityQueue)}合并<br>
+ * 非线程安全
+ *
+ * @param <E> 元素类型
+ * @author starhq
+ */
+public class DoubleBoundedPriorityQueue<E> {
+
+    /**
+     * 容量
+     */
+    private final int capacity;
+    /**
+     * 分数，小顶堆
+     */
+    private final double[] scores;
+    /**
+     * 与分数对应的元素
+     */
+    private final Object[] elements;
+    /**
+     * 元素个数
+     */
+    private int size;
+
+    /**
+     * 构造方法
+     *
+     * @param capacity 队列大小
+     */
+    public DoubleBoundedPriorityQueue(final int capacity) {
+        Assert.isTrue(capacity > 0, "bounded priority queue capacity must be greater than 0");
+        this.capacity = capacity;
+        this.scores = new double[capacity];
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * 只按分数入队列
+     *
+     * @param score 分数
+     * @return 是否保留
+     */
+    public boolean offer(final double score) {
+        return offer(score, null);
+    }
+
+    /**
+     * 入队列，队列满时分数大于门槛才替换堆顶
+     *
+     * @param score   分数
+     * @param element 元素
+     * @return 是否保留
+     */
+    public boolean offer(final double score, final E element) {
+        Assert.isTrue(!Double.isNaN(score), "bounded priority queue score can't be NaN");
+        if (size < capacity) {
+            siftUp(size++, score, element);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        siftDown(0, score, element);
+        return true;
+    }
+
+    /**
+     * 合并另一个队列，合并后保留两者中分数最大的capacity个元素
+     *
+     * @param other 另一个队列
+     * @return 当前队列
+     */
+    @SuppressWarnings("unchecked")
+    public DoubleBoundedPriorityQueue<E> merge(final DoubleBoundedPriorityQueue<? extends E> other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], (E) other.elements[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 门槛，即保留的分数中最小的一个
+     *
+     * @return 分数
+     * @throws IllegalStateException 队列为空
+     */
+    public double peekScore() {
+        if (size == 0) {
+            throw new IllegalStateException("bounded priority queue is empty");
+        }
+        return scores[0];
+    }
+
+    /**
+     * 元素个数
+     *
+     * @return 元素个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 容量
+     *
+     * @return 容量
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * 按分数从大到小排列的分数
+     *
+     * @return 分数
+     */
+    public double[] toScoreArray() {
+        final double[] sorted = Arrays.copyOf(scores, size);
+        Arrays.sort(sorted);
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            final double tmp = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = tmp;
+        }
+        return sorted;
+    }
+
+    /**
+     * 按分数从大到小排列的元素
+     *
+     * @return 元素
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> toList() {
+        // 在副本上依次弹出堆顶，从后往前填
+        final DoubleBoundedPriorityQueue<E> copy = new DoubleBoundedPriorityQueue<>(capacity);
+        System.arraycopy(scores, 0, copy.scores, 0, size);
+        System.arraycopy(elements, 0, copy.elements, 0, size);
+        copy.size = size;
+        final Object[] sorted = new Object[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = copy.elements[0];
+            copy.size--;
+            if (copy.size > 0) {
+                copy.siftDown(0, copy.scores[copy.size], (E) copy.elements[copy.size]);
+            }
+        }
+        final List<E> list = new ArrayList<>(size);
+        for (Object element : sorted) {
+            list.add((E) element);
+        }
+        return list;
+    }
+
+    private void siftUp(int index, final double score, final E element) {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (score >= scores[parent]) {
+                break;
+            }
+            scores[index] = scores[parent];
+            elements[index] = elements[parent];
+            index = parent;
+        }
+        scores[index] = score;
+        elements[index] = element;
+    }
+
+    private void siftDown(int index, final double score, final E element) {
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            final int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            scores[index] = scores[child];
+            elements[index] = elements[child];
+            index = child;
+        }
+        scores[index] = score;
+        elements[index] = element;
+    }
+}
@@ -0,0 +1,309 @@
+package com.star.extra;
+
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog基数估计
+ * <p>
+ * 用固定的内存估计不重复元素的个数，精度为p时有2^p个寄存器，相对标准误差约为1.04 / sqrt(2^p)，
+ * 例如p = 14时占16KB，误差约0.8%<br>
+ * 元素用{@link HashUtil#xxHash64(byte[])}算出64位hash，高p位选寄存器，其余位的前导0个数加1为寄存器的候选值<br>
+ * 稀疏表示：元素不多时不分配寄存器数组，只记录出现过的(25位下标, 前导0个数)，按25位精度做线性计数，
+ * 小基数时几乎精确；条目数超过寄存器数的1/4时转为稠密表示<br>
+ * 稠密表示的估计使用Ertl的改进估计量(https://arxiv.org/abs/1702.01284)，整个范围内无需偏差修正表<br>
+ * 非线程安全，并行统计时每个线程一个实例，最后用{@link #merge(HyperLogLog)}合并
+ *
+ * @author starhq
+ */
+public class HyperLogLog {
+
+    /**
+     * 稀疏表示的精度
+     */
+    private static final int SPARSE_PRECISION = 25;
+    /**
+     * 稀疏表示中未排序缓冲区的大小
+     */
+    private static final int BUFFER_SIZE = 256;
+
+    /**
+     * 精度
+     */
+    private final int precision;
+    /**
+     * 寄存器，稀疏表示时为null
+     */
+    private byte[] registers;
+    /**
+     * 稀疏表示中已排序去重的条目，(25位下标 << 6) | 前导0个数
+     */
+    private int[] sparse = new int[0];
+    /**
+     * 稀疏表示中尚未合并的条目
+     */
+    private int[] buffer = new int[BUFFER_SIZE];
+    /**
+     * 缓冲区中的条目数
+     */
+    private int buffered;
+
+    /**
+     * 构造，精度14，误差约0.8%
+     */
+    public HyperLogLog() {
+        this(14);
+    }
+
+    /**
+     * 构造
+     *
+     * @param precision 精度，4~18
+     */
+    public HyperLogLog(final int precision) {
+        Assert.isTrue(precision >= 4 && precision <= 18, "hyper log log precision must be between 4 and 18");
+        this.precision = precision;
+    }
+
+    /**
+     * 加入元素
+     *
+     * @param data 数据
+     */
+    public void add(final byte[] data) {
+        addHash(HashUtil.xxHash64(data));
+    }
+
+    /**
+     * 加入元素
+     *
+     * @param str 字符串
+     */
+    public void add(final CharSequence str) {
+        addHash(HashUtil.xxHash64(str));
+    }
+
+    /**
+     * 加入元素
+     *
+     * @param value 数值，例如用户ID
+     */
+    public void add(final long value) {
+        addHash(mix(value));
+    }
+
+    /**
+     * 加入元素已经算好的64位hash，hash须均匀分布
+     *
+     * @param hash hash值
+     */
+    public void addHash(final long hash) {
+        if (isSparse()) {
+            buffer[buffered++] = (int) (hash >>> (64 - SPARSE_PRECISION)) << 6
+                    | rank(hash, SPARSE_PRECISION);
+            if (buffered == BUFFER_SIZE) {
+                flushBuffer();
+            }
+        } else {
+            setRegister((int) (hash >>> (64 - precision)), rank(hash, precision));
+        }
+    }
+
+    /**
+     * 估计的基数
+     *
+     * @return 不重复元素的个数
+     */
+    public long cardinality() {
+        if (isSparse()) {
+            flushBuffer();
+            if (isSparse()) {
+                final double size = 1 << SPARSE_PRECISION;
+                return Math.round(size * Math.log(size / (size - sparse.length)));
+            }
+        }
+        final int m = registers.length;
+        final int q = 64 - precision;
+        final int[] histogram = new int[q + 2];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = m * tau(1 - (double) histogram[q + 1] / m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += m * sigma((double) histogram[0] / m);
+        return Math.round(m / (2 * Math.log(2)) * m / z);
+    }
+
+    /**
+     * 合并另一个精度相同的实例，合并后相当于两者的并集
+     *
+     * @param other 另一个实例
+     */
+    public void merge(final HyperLogLog other) {
+        Assert.isTrue(precision == other.precision, "hyper log logs must have the same precision to be merged");
+        other.flushBuffer();
+        if (other.isSparse()) {
+            for (int entry : other.sparse) {
+                if (isSparse()) {
+                    buffer[buffered++] = entry;
+                    if (buffered == BUFFER_SIZE) {
+                        flushBuffer();
+                    }
+                } else {
+                    setSparseEntry(entry);
+                }
+            }
+            return;
+        }
+        if (isSparse()) {
+            toDense();
+        }
+        for (int i = 0; i < registers.length; i++) {
+            setRegister(i, other.registers[i]);
+        }
+    }
+
+    /**
+     * 精度
+     *
+     * @return 精度
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 是否为稀疏表示
+     *
+     * @return 是否稀疏
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * 把缓冲区排序后合并到稀疏条目，同一下标保留最大值，条目过多时转为稠密表示
+     */
+    private void flushBuffer() {
+        if (buffered == 0 || !isSparse()) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        final int[] merged = new int[sparse.length + buffered];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sparse.length || j < buffered) {
+            final int entry = j == buffered || (i < sparse.length && sparse[i] < buffer[j]) ? sparse[i++] : buffer[j++];
+            // 同一下标的条目相邻且按前导0个数升序，后来的覆盖先前的
+            if (k > 0 && merged[k - 1] >>> 6 == entry >>> 6) {
+                merged[k - 1] = entry;
+            } else {
+                merged[k++] = entry;
+            }
+        }
+        sparse = Arrays.copyOf(merged, k);
+        buffered = 0;
+        if (sparse.length > (1 << precision) >>> 2) {
+            toDense();
+        }
+    }
+
+    /**
+     * 稀疏表示转为稠密表示
+     */
+    private void toDense() {
+        final int[] entries = sparse;
+        final int[] pending = Arrays.copyOf(buffer, buffered);
+        registers = new byte[1 << precision];
+        sparse = null;
+        buffer = null;
+        buffered = 0;
+        for (int entry : entries) {
+            setSparseEntry(entry);
+        }
+        for (int entry : pending) {
+            setSparseEntry(entry);
+        }
+    }
+
+    /**
+     * 把一个稀疏条目换算到稠密寄存器
+     *
+     * @param entry 稀疏条目
+     */
+    private void setSparseEntry(final int entry) {
+        final int index = entry >>> 6;
+        final int extra = SPARSE_PRECISION - precision;
+        // 25位下标中p位之后的部分不全为0时，前导0个数由这部分决定
+        final int low = index & ((1 << extra) - 1);
+        final int rank = low == 0 ? extra + (entry & 63) : Integer.numberOfLeadingZeros(low) - (32 - extra) + 1;
+        setRegister(index >>> extra, rank);
+    }
+
+    private void setRegister(final int index, final int rank) {
+        if (registers[index] < rank) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 去掉高p位后的前导0个数加1，最大为64 - p + 1
+     *
+     * @param hash hash值
+     * @param p    精度
+     * @return 寄存器候选值
+     */
+    private static int rank(final long hash, final int p) {
+        return Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1;
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (previous != z);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (previous != z);
+        return z / 3;
+    }
+
+    /**
+     * 把数值打散为均匀分布的hash(SplitMix64)
+     *
+     * @param value 数值
+     * @return hash值
+     */
+    static long mix(long value) {
+        value += 0x9e3779b97f4a7c15L;
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
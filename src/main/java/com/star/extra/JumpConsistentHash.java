@@ -0,0 +1,100 @@
+package com.star.extra;
+
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Jump一致性Hash
+ * <p>
+ * 算法详解：https://arxiv.org/abs/1406.2294<br>
+ * 由键的64位hash直接算出桶号，不需要虚拟节点，内存只有节点数组，各节点负载几乎完全相同；
+ * 节点数由n变为n+1时只有1/(n+1)的键移动<br>
+ * 桶号是连续的，只能在末尾增加或移除节点，不支持权重，适合存储分片这类编号固定的场景<br>
+ * 节点数组写时复制，查找不加锁
+ *
+ * @param <T> 节点类型
+ * @author starhq
+ */
+public class JumpConsistentHash<T> implements NodeLocator<T> {
+
+    /**
+     * 节点，下标即桶号
+     */
+    private volatile Object[] buckets;
+
+    /**
+     * 构造
+     *
+     * @param nodes 节点对象，按顺序编号
+     */
+    public JumpConsistentHash(final Collection<T> nodes) {
+        this.buckets = nodes.toArray();
+    }
+
+    /**
+     * 由键的hash计算桶号
+     *
+     * @param key     键的64位hash
+     * @param buckets 桶数
+     * @return 桶号，[0, buckets)
+     */
+    public static int jump(long key, final int buckets) {
+        Assert.isTrue(buckets > 0, "jump consistent hash buckets must be greater than 0");
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final Object key) {
+        final Object[] current = buckets;
+        if (current.length == 0) {
+            return null;
+        }
+        return (T) current[jump(HashUtil.xxHash64(key.toString()), current.length)];
+    }
+
+    /**
+     * 在末尾增加节点
+     *
+     * @param node 节点对象
+     */
+    @Override
+    public synchronized void add(final T node) {
+        final Object[] current = buckets;
+        final Object[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = node;
+        buckets = added;
+    }
+
+    /**
+     * 移除节点，只能移除最后一个
+     *
+     * @param node 节点对象
+     */
+    @Override
+    public synchronized void remove(final T node) {
+        final Object[] current = buckets;
+        Assert.isTrue(current.length > 0 && current[current.length - 1].equals(node),
+                "jump consistent hash can only remove the last node");
+        buckets = Arrays.copyOf(current, current.length - 1);
+    }
+
+    /**
+     * 节点数
+     *
+     * @return 节点数
+     */
+    public int size() {
+        return buckets.length;
+    }
+}
@@ -0,0 +1,40 @@
+package com.star.extra;
+
+/**
+ * 按键定位节点，用于分布式缓存、分片等场景
+ * <p>
+ * 实现有：
+ * <ul>
+ * <li>{@link ConsistentHash}：虚拟节点的hash环，支持权重</li>
+ * <li>{@link BoundedLoadConsistentHash}：有界负载的一致性hash，限制单个节点的负载不超过平均值的给定倍数</li>
+ * <li>{@link JumpConsistentHash}：不占内存、分布最均匀，但只能在末尾增删节点</li>
+ * <li>{@link RendezvousHash}：最高随机权重(HRW)，任意增删节点时只移动必要的键，查找为O(节点数)</li>
+ * </ul>
+ *
+ * @param <T> 节点类型
+ * @author starhq
+ */
+public interface NodeLocator<T> {
+
+    /**
+     * 获得键对应的节点
+     *
+     * @param key 键
+     * @return 节点对象，没有节点时为null
+     */
+    T get(Object key);
+
+    /**
+     * 增加节点
+     *
+     * @param node 节点对象
+     */
+    void add(T node);
+
+    /**
+     * 移除节点
+     *
+     * @param node 节点对象
+     */
+    void remove(T node);
+}
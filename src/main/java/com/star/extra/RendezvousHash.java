@@ -0,0 +1,201 @@
+package com.star.extra;
+
+import com.star.hash.HashUtil;
+import com.star.lang.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Rendezvous Hash，即最高随机权重(HRW)算法
+ * <p>
+ * 算法详解：https://en.wikipedia.org/wiki/Rendezvous_hashing<br>
+ * 对每个节点用键和节点的hash算出一个分数，取分数最高的节点；增删任意节点时只有归属该节点的键移动，
+ * 不需要虚拟节点，查找为O(节点数)，适合节点数不多(几十到几百)的场景<br>
+ * 带权重时分数为weight / -ln(u)，u为(0, 1)上均匀分布的hash，各节点分到键的比例与权重成正比<br>
+ * 节点数组写时复制，查找不加锁
+ *
+ * @param <T> 节点类型
+ * @author starhq
+ */
+public class RendezvousHash<T> implements NodeLocator<T> {
+
+    /**
+     * 当前节点
+     */
+    private volatile Nodes nodes = new Nodes(new Object[0], new long[0], new double[0]);
+
+    /**
+     * 构造
+     *
+     * @param nodes 节点对象，权重都为1
+     */
+    public RendezvousHash(final Collection<T> nodes) {
+        for (T node : nodes) {
+            add(node);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final Object key) {
+        final Nodes current = nodes;
+        final int length = current.nodes.length;
+        if (length == 0) {
+            return null;
+        }
+        final long keyHash = HashUtil.xxHash64(key.toString());
+        int best = 0;
+        if (current.weighted) {
+            double bestScore = -1;
+            for (int i = 0; i < length; i++) {
+                final double u = (unit(keyHash, current.hashes[i]) + 0.5d) * 0x1.0p-53;
+                final double score = current.weights[i] / -Math.log(u);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+        } else {
+            // 权重相同时weight / -ln(u)随u单调递增，直接比较u的整数形式，顺序与带权重时完全一致
+            long bestScore = -1;
+            for (int i = 0; i < length; i++) {
+                final long score = unit(keyHash, current.hashes[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+        }
+        return (T) current.nodes[best];
+    }
+
+    @Override
+    public void add(final T node) {
+        add(node, 1);
+    }
+
+    /**
+     * 按权重增加节点，已存在时更新权重
+     *
+     * @param node   节点对象
+     * @param weight 权重
+     */
+    public synchronized void add(final T node, final double weight) {
+        Assert.isTrue(weight > 0, "rendezvous hash node weight must be greater than 0");
+        final Nodes current = nodes;
+        int index = current.indexOf(node);
+        final Object[] added;
+        final long[] hashes;
+        final double[] weights;
+        if (index < 0) {
+            index = current.nodes.length;
+            added = Arrays.copyOf(current.nodes, index + 1);
+            hashes = Arrays.copyOf(current.hashes, index + 1);
+            weights = Arrays.copyOf(current.weights, index + 1);
+        } else {
+            added = current.nodes.clone();
+            hashes = current.hashes.clone();
+            weights = current.weights.clone();
+        }
+        added[index] = node;
+        hashes[index] = HashUtil.xxHash64(node.toString());
+        weights[index] = weight;
+        nodes = new Nodes(added, hashes, weights);
+    }
+
+    @Override
+    public synchronized void remove(final T node) {
+        final Nodes current = nodes;
+        final int index = current.indexOf(node);
+        if (index < 0) {
+            return;
+        }
+        final int length = current.nodes.length;
+        final Object[] kept = new Object[length - 1];
+        final long[] hashes = new long[length - 1];
+        final double[] weights = new double[length - 1];
+        System.arraycopy(current.nodes, 0, kept, 0, index);
+        System.arraycopy(current.nodes, index + 1, kept, index, length - index - 1);
+        System.arraycopy(current.hashes, 0, hashes, 0, index);
+        System.arraycopy(current.hashes, index + 1, hashes, index, length - index - 1);
+        System.arraycopy(current.weights, 0, weights, 0, index);
+        System.arraycopy(current.weights, index + 1, weights, index, length - index - 1);
+        nodes = new Nodes(kept, hashes, weights);
+    }
+
+    /**
+     * 节点数
+     *
+     * @return 节点数
+     */
+    public int size() {
+        return nodes.nodes.length;
+    }
+
+    /**
+     * 键和节点的hash混合后的高53位，即u * 2^53，带不带权重都由它决定顺序
+     *
+     * @param keyHash  键的hash
+     * @param nodeHash 节点的hash
+     * @return [0, 2^53)
+     */
+    private static long unit(final long keyHash, final long nodeHash) {
+        return mix(keyHash ^ nodeHash) >>> 11;
+    }
+
+    /**
+     * 混合键和节点的hash，使各节点的分数相互独立(SplitMix64的终结函数)
+     *
+     * @param hash hash值
+     * @return 混合后的值
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * 节点的一个不可变版本
+     */
+    private static final class Nodes {
+
+        /**
+         * 节点对象
+         */
+        final Object[] nodes;
+        /**
+         * 节点toString的hash
+         */
+        final long[] hashes;
+        /**
+         * 权重
+         */
+        final double[] weights;
+        /**
+         * 权重是否不全相同，相同时直接比较u，不计算对数
+         */
+        final boolean weighted;
+
+        Nodes(final Object[] nodes, final long[] hashes, final double[] weights) {
+            this.nodes = nodes;
+            this.hashes = hashes;
+            this.weights = weights;
+            boolean different = false;
+            for (double weight : weights) {
+                different |= weight != weights[0];
+            }
+            this.weighted = different;
+        }
+
+        int indexOf(final Object node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].equals(node)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.star.extra;
+
+import com.star.lang.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Space-Saving热点统计
+ * <p>
+ * 算法详解：Metwally等，Efficient Computation of Frequent and Top-k Elements in Data Streams<br>
+ * 只保留capacity个计数器：已跟踪的元素计数加1；未跟踪的元素在计数器未满时新建，满时顶替计数最小的计数器，
+ * 继承它的计数并记为误差<br>
+ * 计数器按计数分桶(Stream-Summary)，桶按计数升序组成双向链表，计数加1只需移到相邻的桶，更新为O(1)<br>
+ * 误差保证：每个计数器的计数不低于真实值，且多出的部分不超过它的误差，误差不超过总数 / capacity；
+ * 真实次数超过总数 / capacity的元素一定被跟踪<br>
+ * 非线程安全，多线程记录使用{@link ConcurrentSpaceSaving}
+ *
+ * @param <T> 元素类型
+ * @author starhq
+ */
+public class SpaceSaving<T> {
+
+    /**
+     * 计数器个数
+     */
+    private final int capacity;
+    /**
+     * 元素到计数器的索引
+     */
+    private final Map<T, Counter<T>> counters;
+    /**
+     * 计数最小的桶
+     */
+    private Bucket<T> min;
+    /**
+     * 计数最大的桶
+     */
+    private Bucket<T> max;
+    /**
+     * 总数
+     */
+    private long total;
+
+    /**
+     * 构造
+     *
+     * @param capacity 计数器个数，误差不超过总数 / capacity
+     */
+    public SpaceSaving(final int capacity) {
+        Assert.isTrue(capacity > 0, "space saving capacity must be greater than 0");
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * 记录一次
+     *
+     * @param item 元素
+     */
+    public void offer(final T item) {
+        offer(item, 1);
+    }
+
+    /**
+     * 记录多次
+     *
+     * @param item  元素
+     * @param count 次数
+     */
+    public void offer(final T item, final long count) {
+        Objects.requireNonNull(item);
+        Assert.isTrue(count > 0, "space saving count must be greater than 0");
+        total += count;
+        Counter<T> counter = counters.get(item);
+        long newCount = count;
+        Bucket<T> previous = null;
+        if (Objects.isNull(counter)) {
+            if (counters.size() < capacity) {
+                counter = new Counter<>(item, 0);
+                counters.put(item, counter);
+            } else {
+                // 顶替计数最小的计数器，旧计数作为误差
+                counter = min.head;
+                counters.remove(counter.item);
+                counter.item = item;
+                counter.error = min.count;
+                counters.put(item, counter);
+            }
+        }
+        if (Objects.nonNull(counter.bucket)) {
+            final Bucket<T> bucket = counter.bucket;
+            newCount += bucket.count;
+            detach(counter);
+            previous = bucket.removed ? bucket.prev : bucket;
+        }
+        // 从原来的桶往后找，计数加1时只看相邻的桶
+        Bucket<T> next = Objects.isNull(previous) ? min : previous.next;
+        while (Objects.nonNull(next) && next.count <= newCount) {
+            previous = next;
+            next = next.next;
+        }
+        attach(counter, previous, newCount);
+    }
+
+    /**
+     * 估计的次数，不低于真实值；未跟踪的元素返回最小计数，真实值不超过它
+     *
+     * @param item 元素
+     * @return 次数
+     */
+    public long estimate(final T item) {
+        final Counter<T> counter = counters.get(item);
+        if (Objects.nonNull(counter)) {
+            return counter.bucket.count;
+        }
+        return minCount();
+    }
+
+    /**
+     * 未跟踪元素真实次数的上限：计数器未满时未跟踪的元素没有出现过，为0；满时为最小计数
+     *
+     * @return 上限
+     */
+    private long minCount() {
+        return counters.size() < capacity || Objects.isNull(min) ? 0 : min.count;
+    }
+
+    /**
+     * 次数最多的若干元素，按计数降序
+     *
+     * @param n 个数
+     * @return 元素及其计数和误差
+     */
+    public List<Entry<T>> top(final int n) {
+        final List<Entry<T>> top = new ArrayList<>(Math.min(n, counters.size()));
+        for (Bucket<T> bucket = max; Objects.nonNull(bucket) && top.size() < n; bucket = bucket.prev) {
+            for (Counter<T> counter = bucket.head; Objects.nonNull(counter) && top.size() < n;
+                 counter = counter.next) {
+                top.add(new Entry<>(counter.item, bucket.count, counter.error));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * 真实次数一定超过总数 * support的元素，按计数降序；计数减误差仍超过门槛的才返回，不会误报
+     *
+     * @param support 比例，(0, 1)
+     * @return 元素及其计数和误差
+     */
+    public List<Entry<T>> guaranteedHeavyHitters(final double support) {
+        final double threshold = total * support;
+        final List<Entry<T>> hitters = new ArrayList<>();
+        for (Bucket<T> bucket = max; Objects.nonNull(bucket) && bucket.count > threshold; bucket = bucket.prev) {
+            for (Counter<T> counter = bucket.head; Objects.nonNull(counter); counter = counter.next) {
+                if (bucket.count - counter.error > threshold) {
+                    hitters.add(new Entry<>(counter.item, bucket.count, counter.error));
+                }
+            }
+        }
+        hitters.sort((e1, e2) -> Long.compare(e2.count, e1.count));
+        return hitters;
+    }
+
+    /**
+     * 合并另一个实例的计数，合并后的误差不超过两者总数之和 / capacity
+     * <p>
+     * 按可合并摘要(Agarwal等，Mergeable Summaries)的规则：一方没有跟踪的元素，在这一方的真实次数不超过它的最小计数，
+     * 元素的计数和误差都加上对方的最小计数(对方未满时为0)，再保留计数最大的capacity个；合并后计数仍不低于真实值
+     *
+     * @param other 另一个实例
+     */
+    public void merge(final SpaceSaving<? extends T> other) {
+        final long thisMin = minCount();
+        final long otherMin = other.minCount();
+        final Map<T, Entry<T>> merged = new HashMap<>((counters.size() + other.counters.size()) * 4 / 3 + 1);
+        for (Counter<T> counter : counters.values()) {
+            merged.put(counter.item, new Entry<>(counter.item, counter.bucket.count + otherMin,
+                    counter.error + otherMin));
+        }
+        for (Counter<? extends T> counter : other.counters.values()) {
+            final Entry<T> entry = merged.get(counter.item);
+            if (Objects.isNull(entry)) {
+                merged.put(counter.item, new Entry<>(counter.item, thisMin + counter.bucket.count,
+                        thisMin + counter.error));
+            } else {
+                merged.put(counter.item, new Entry<>(counter.item, entry.count - otherMin + counter.bucket.count,
+                        entry.error - otherMin + counter.error));
+            }
+        }
+        final List<Entry<T>> entries = new ArrayList<>(merged.values());
+        entries.sort((e1, e2) -> Long.compare(e2.count, e1.count));
+        final long mergedTotal = total + other.total;
+        clear();
+        total = mergedTotal;
+        // 按计数升序放回，每次都接在最大的桶之后
+        for (int i = Math.min(capacity, entries.size()) - 1; i >= 0; i--) {
+            final Entry<T> entry = entries.get(i);
+            final Counter<T> counter = new Counter<>(entry.item, entry.error);
+            counters.put(entry.item, counter);
+            attach(counter, max, entry.count);
+        }
+    }
+
+    /**
+     * 总数
+     *
+     * @return 总数
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 跟踪的元素数
+     *
+     * @return 元素数
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * 计数器个数
+     *
+     * @return 计数器个数
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        counters.clear();
+        min = null;
+        max = null;
+        total = 0;
+    }
+
+    /**
+     * 把计数器放进计数为count的桶，桶不存在时在previous之后新建
+     *
+     * @param counter  计数器
+     * @param previous 计数不超过count的最后一个桶，为null时从头部开始
+     * @param count    计数
+     */
+    private void attach(final Counter<T> counter, final Bucket<T> previous, final long count) {
+        Bucket<T> bucket;
+        if (Objects.nonNull(previous) && previous.count == count) {
+            bucket = previous;
+        } else {
+            bucket = new Bucket<>(count);
+            bucket.prev = previous;
+            bucket.next = Objects.isNull(previous) ? min : previous.next;
+            if (Objects.isNull(previous)) {
+                min = bucket;
+            } else {
+                previous.next = bucket;
+            }
+            if (Objects.isNull(bucket.next)) {
+                max = bucket;
+            } else {
+                bucket.next.prev = bucket;
+            }
+        }
+        counter.bucket = bucket;
+        counter.prev = null;
+        counter.next = bucket.head;
+        if (Objects.nonNull(bucket.head)) {
+            bucket.head.prev = counter;
+        }
+        bucket.head = counter;
+    }
+
+    /**
+     * 把计数器移出所在的桶，桶空了就移除
+     *
+     * @param counter 计数器
+     */
+    private void detach(final Counter<T> counter) {
+        final Bucket<T> bucket = counter.bucket;
+        if (Objects.nonNull(counter.prev)) {
+            counter.prev.next = counter.next;
+        } else {
+            bucket.head = counter.next;
+        }
+        if (Objects.nonNull(counter.next)) {
+            counter.next.prev = counter.prev;
+        }
+        if (Objects.isNull(bucket.head)) {
+            if (Objects.isNull(bucket.prev)) {
+                min = bucket.next;
+            } else {
+                bucket.prev.next = bucket.next;
+            }
+            if (Objects.isNull(bucket.next)) {
+                max = bucket.prev;
+            } else {
+                bucket.next.prev = bucket.prev;
+            }
+            bucket.removed = true;
+        }
+    }
+
+    /**
+     * 统计结果
+     *
+     * @param <T> 元素类型
+     */
+    public static final class Entry<T> {
+
+        private final T item;
+        private final long count;
+        private final long error;
+
+        Entry(final T item, final long count, final long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * 元素
+         *
+         * @return 元素
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * 计数，不低于真实次数
+         *
+         * @return 计数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 误差，真实次数不低于计数减误差
+         *
+         * @return 误差
+         */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return item + "=" + count + "(±" + error + ")";
+        }
+    }
+
+    /**
+     * 计数相同的计数器组成的桶
+     */
+    private static final class Bucket<T> {
+
+        final long count;
+        Counter<T> head;
+        Bucket<T> prev;
+        Bucket<T> next;
+        /**
+         * 是否已从链表移除
+         */
+        boolean removed;
+
+        Bucket(final long count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * 计数器
+     */
+    private static final class Counter<T> {
+
+        T item;
+        long error;
+        Bucket<T> bucket;
+        Counter<T> prev;
+        Counter<T> next;
+
+        Counter(final T item, final long error) {
+            this.item = item;
+            this.error = error;
+        }
+    }
+}
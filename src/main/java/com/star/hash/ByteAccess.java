@@ -0,0 +1,116 @@
+package com.star.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 按小端序读取输入，哈希算法通过它统一处理ByteBuffer(堆内和直接内存)和CharSequence
+ * <p>
+ * CharSequence按UTF-16LE的字节序列读取，每个char两个字节，不需要先编码成byte[]
+ *
+ * @param <T> 输入类型
+ * @author starhq
+ */
+abstract class ByteAccess<T> {
+
+    /**
+     * ByteBuffer，须为小端序，按绝对位置读取，不改变position
+     */
+    static final ByteAccess<ByteBuffer> BUFFER = new ByteAccess<ByteBuffer>() {
+
+        @Override
+        long getLong(final ByteBuffer input, final int index) {
+            return input.getLong(index);
+        }
+
+        @Override
+        long getUnsignedInt(final ByteBuffer input, final int index) {
+            return input.getInt(index) & 0xffffffffL;
+        }
+
+        @Override
+        int getUnsignedByte(final ByteBuffer input, final int index) {
+            return input.get(index) & 0xff;
+        }
+    };
+
+    /**
+     * CharSequence，下标为字节下标
+     */
+    static final ByteAccess<CharSequence> CHARS = new ByteAccess<CharSequence>() {
+
+        @Override
+        long getLong(final CharSequence input, final int index) {
+            if ((index & 1) == 0) {
+                final int i = index >> 1;
+                return input.charAt(i) | (long) input.charAt(i + 1) << 16 | (long) input.charAt(i + 2) << 32
+                        | (long) input.charAt(i + 3) << 48;
+            }
+            return getUnsignedInt(input, index) | getUnsignedInt(input, index + 4) << 32;
+        }
+
+        @Override
+        long getUnsignedInt(final CharSequence input, final int index) {
+            if ((index & 1) == 0) {
+                final int i = index >> 1;
+                return input.charAt(i) | (long) input.charAt(i + 1) << 16;
+            }
+            return getUnsignedByte(input, index) | (long) getUnsignedByte(input, index + 1) << 8
+                    | (long) getUnsignedByte(input, index + 2) << 16 | (long) getUnsignedByte(input, index + 3) << 24;
+        }
+
+        @Override
+        int getUnsignedByte(final CharSequence input, final int index) {
+            final char c = input.charAt(index >> 1);
+            return (index & 1) == 0 ? c & 0xff : c >>> 8;
+        }
+    };
+
+    /**
+     * 包装byte[]为小端序的ByteBuffer，下标与数组下标一致
+     *
+     * @param data 数组
+     * @return ByteBuffer
+     */
+    static ByteBuffer wrap(final byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 转为小端序的视图，下标与原ByteBuffer一致，不改变原ByteBuffer的字节序和position
+     *
+     * @param buffer ByteBuffer
+     * @return 视图
+     */
+    static ByteBuffer littleEndian(final ByteBuffer buffer) {
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN ? buffer
+                : buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 读取8个字节
+     *
+     * @param input 输入
+     * @param index 字节下标
+     * @return long
+     */
+    abstract long getLong(T input, int index);
+
+    /**
+     * 读取4个字节，无符号
+     *
+     * @param input 输入
+     * @param index 字节下标
+     * @return 0~2^32-1
+     */
+    abstract long getUnsignedInt(T input, int index);
+
+    /**
+     * 读取1个字节，无符号
+     *
+     * @param input 输入
+     * @param index 字节下标
+     * @return 0~255
+     */
+    abstract int getUnsignedByte(T input, int index);
+}
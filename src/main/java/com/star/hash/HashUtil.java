@@ -1,8 +1,13 @@
 package com.star.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * Hash算法大全<br>
  * 推荐使用FNV1算法
+ * <p>
+ * 需要64位以上输出、处理大量数据时使用xxHash64、MurmurHash3(128位)或wyhash，它们按8字节读取输入，
+ * 支持byte[]、堆内和直接内存的ByteBuffer，CharSequence按UTF-16LE字节直接读取，不需要先编码
  *
  * @author Goodzzp, Looly
  */
@@ -430,4 +435,251 @@ public final class HashUtil {
         hash |= fnvHash(str);
         return hash;
     }
+
+    /**
+     * xxHash64
+     *
+     * @param data 数组
+     * @return hash值
+     */
+    public static long xxHash64(final byte[] data) {
+        return xxHash64(data, 0, data.length, 0);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return hash值
+     */
+    public static long xxHash64(final byte[] data, final int offset, final int length) {
+        return xxHash64(data, offset, length, 0);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @param seed   种子
+     * @return hash值
+     */
+    public static long xxHash64(final byte[] data, final int offset, final int length, final long seed) {
+        checkRange(data.length, offset, length);
+        return XxHash64.hash(ByteAccess.BUFFER, ByteAccess.wrap(data), offset, length, seed);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @return hash值
+     */
+    public static long xxHash64(final ByteBuffer buffer) {
+        return xxHash64(buffer, 0);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @param seed   种子
+     * @return hash值
+     */
+    public static long xxHash64(final ByteBuffer buffer, final long seed) {
+        return XxHash64.hash(ByteAccess.BUFFER, ByteAccess.littleEndian(buffer), buffer.position(), buffer.remaining(), seed);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param str 字符串，按UTF-16LE字节计算
+     * @return hash值
+     */
+    public static long xxHash64(final CharSequence str) {
+        return xxHash64(str, 0);
+    }
+
+    /**
+     * xxHash64
+     *
+     * @param str  字符串，按UTF-16LE字节计算
+     * @param seed 种子
+     * @return hash值
+     */
+    public static long xxHash64(final CharSequence str, final long seed) {
+        return XxHash64.hash(ByteAccess.CHARS, str, 0, str.length() << 1, seed);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param data 数组
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final byte[] data) {
+        return murmur128(data, 0, data.length, 0);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final byte[] data, final int offset, final int length) {
+        return murmur128(data, offset, length, 0);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @param seed   种子
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final byte[] data, final int offset, final int length, final long seed) {
+        checkRange(data.length, offset, length);
+        return MurmurHash3.hash128(ByteAccess.BUFFER, ByteAccess.wrap(data), offset, length, seed);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final ByteBuffer buffer) {
+        return murmur128(buffer, 0);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @param seed   种子
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final ByteBuffer buffer, final long seed) {
+        return MurmurHash3.hash128(ByteAccess.BUFFER, ByteAccess.littleEndian(buffer), buffer.position(), buffer.remaining(), seed);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param str 字符串，按UTF-16LE字节计算
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final CharSequence str) {
+        return murmur128(str, 0);
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param str  字符串，按UTF-16LE字节计算
+     * @param seed 种子
+     * @return hash值，两个long，第一个可单独作为64位hash
+     */
+    public static long[] murmur128(final CharSequence str, final long seed) {
+        return MurmurHash3.hash128(ByteAccess.CHARS, str, 0, str.length() << 1, seed);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param data 数组
+     * @return hash值
+     */
+    public static long wyHash(final byte[] data) {
+        return wyHash(data, 0, data.length, 0);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return hash值
+     */
+    public static long wyHash(final byte[] data, final int offset, final int length) {
+        return wyHash(data, offset, length, 0);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @param seed   种子
+     * @return hash值
+     */
+    public static long wyHash(final byte[] data, final int offset, final int length, final long seed) {
+        checkRange(data.length, offset, length);
+        return WyHash.hash(ByteAccess.BUFFER, ByteAccess.wrap(data), offset, length, seed);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @return hash值
+     */
+    public static long wyHash(final ByteBuffer buffer) {
+        return wyHash(buffer, 0);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param buffer position到limit之间的数据，不改变position
+     * @param seed   种子
+     * @return hash值
+     */
+    public static long wyHash(final ByteBuffer buffer, final long seed) {
+        return WyHash.hash(ByteAccess.BUFFER, ByteAccess.littleEndian(buffer), buffer.position(), buffer.remaining(), seed);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param str 字符串，按UTF-16LE字节计算
+     * @return hash值
+     */
+    public static long wyHash(final CharSequence str) {
+        return wyHash(str, 0);
+    }
+
+    /**
+     * wyhash
+     *
+     * @param str  字符串，按UTF-16LE字节计算
+     * @param seed 种子
+     * @return hash值
+     */
+    public static long wyHash(final CharSequence str, final long seed) {
+        return WyHash.hash(ByteAccess.CHARS, str, 0, str.length() << 1, seed);
+    }
+
+    /**
+     * 检查数组范围
+     *
+     * @param size   数组长度
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    private static void checkRange(final int size, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + size);
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package com.star.hash;
+
+/**
+ * MurmurHash3 x64 128位版本
+ * <p>
+ * 每次处理16字节，输出两个long，低64位可单独作为64位hash使用
+ *
+ * @author starhq
+ */
+final class MurmurHash3 {
+
+    static final long C1 = 0x87c37b91114253d5L;
+    static final long C2 = 0x4cf5ad432745937fL;
+
+    private MurmurHash3() {
+    }
+
+    /**
+     * 计算hash
+     *
+     * @param access 读取方式
+     * @param input  输入
+     * @param offset 起始字节
+     * @param length 字节数
+     * @param seed   种子
+     * @param <T>    输入类型
+     * @return hash值，[h1, h2]
+     */
+    static <T> long[] hash128(final ByteAccess<T> access, final T input, final int offset, final int length,
+                              final long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        final int blockEnd = offset + (length & ~15);
+        int p = offset;
+        for (; p < blockEnd; p += 16) {
+            h1 ^= mixK1(access.getLong(input, p));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(access.getLong(input, p + 8));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        return finish(h1, h2, access, input, p, length & 15, length);
+    }
+
+    /**
+     * 处理不足16字节的尾部并做最终混合
+     *
+     * @param h1        累加结果
+     * @param h2        累加结果
+     * @param access    读取方式
+     * @param input     输入
+     * @param offset    尾部起始字节
+     * @param remaining 尾部字节数，小于16
+     * @param length    总长度
+     * @param <T>       输入类型
+     * @return hash值，[h1, h2]
+     */
+    static <T> long[] finish(long h1, long h2, final ByteAccess<T> access, final T input, final int offset,
+                             final int remaining, final long length) {
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = remaining - 1; i >= 8; i--) {
+            k2 ^= (long) access.getUnsignedByte(input, offset + i) << ((i - 8) << 3);
+        }
+        for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+            k1 ^= (long) access.getUnsignedByte(input, offset + i) << (i << 3);
+        }
+        if (remaining > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(k1);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        return k ^ k >>> 33;
+    }
+}
@@ -0,0 +1,91 @@
+package com.star.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MurmurHash3 x64 128位增量计算，按16字节一块累加，不足一块的数据暂存在缓冲中
+ *
+ * @author starhq
+ */
+final class MurmurHash3Hasher implements StreamingHasher {
+
+    private static final int BLOCK = 16;
+
+    private final long seed;
+    private final byte[] buffer = new byte[BLOCK];
+    private final ByteBuffer bufferView = ByteAccess.wrap(buffer);
+    private int buffered;
+    private long total;
+    private long h1;
+    private long h2;
+
+    MurmurHash3Hasher(final long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    @Override
+    public StreamingHasher update(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        update(ByteAccess.BUFFER, ByteAccess.wrap(data), offset, length);
+        return this;
+    }
+
+    @Override
+    public StreamingHasher update(final ByteBuffer buffer) {
+        update(ByteAccess.BUFFER, ByteAccess.littleEndian(buffer), buffer.position(), buffer.remaining());
+        buffer.position(buffer.limit());
+        return this;
+    }
+
+    @Override
+    public long finish() {
+        return MurmurHash3.finish(h1, h2, ByteAccess.BUFFER, bufferView, 0, buffered, total)[0];
+    }
+
+    @Override
+    public void reset() {
+        h1 = seed;
+        h2 = seed;
+        total = 0;
+        buffered = 0;
+    }
+
+    private <T> void update(final ByteAccess<T> access, final T input, int offset, int length) {
+        total += length;
+        if (buffered > 0) {
+            final int fill = Math.min(BLOCK - buffered, length);
+            copy(access, input, offset, fill);
+            offset += fill;
+            length -= fill;
+            if (buffered < BLOCK) {
+                return;
+            }
+            block(ByteAccess.BUFFER, bufferView, 0);
+            buffered = 0;
+        }
+        while (length >= BLOCK) {
+            block(access, input, offset);
+            offset += BLOCK;
+            length -= BLOCK;
+        }
+        copy(access, input, offset, length);
+    }
+
+    private <T> void block(final ByteAccess<T> access, final T input, final int offset) {
+        h1 ^= MurmurHash3.mixK1(access.getLong(input, offset));
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= MurmurHash3.mixK2(access.getLong(input, offset + 8));
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private <T> void copy(final ByteAccess<T> access, final T input, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            buffer[buffered++] = (byte) access.getUnsignedByte(input, offset + i);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.star.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 增量hash，数据分多次输入，结果与一次性计算相同
+ * <p>
+ * 适合大文件和网络流，内存中只保留一个数据块的缓冲；非线程安全
+ *
+ * @author starhq
+ */
+public interface StreamingHasher {
+
+    /**
+     * xxHash64，结果与{@link HashUtil#xxHash64(byte[])}相同
+     *
+     * @return 增量hash
+     */
+    static StreamingHasher xxHash64() {
+        return xxHash64(0);
+    }
+
+    /**
+     * xxHash64，结果与{@link HashUtil#xxHash64(byte[], int, int, long)}相同
+     *
+     * @param seed 种子
+     * @return 增量hash
+     */
+    static StreamingHasher xxHash64(final long seed) {
+        return new XxHash64Hasher(seed);
+    }
+
+    /**
+     * MurmurHash3 x64 128位，{@link #finish()}的结果与{@link HashUtil#murmur128(byte[])}的第一个long相同
+     *
+     * @return 增量hash
+     */
+    static StreamingHasher murmur128() {
+        return murmur128(0);
+    }
+
+    /**
+     * MurmurHash3 x64 128位，{@link #finish()}的结果与{@link HashUtil#murmur128(byte[], int, int, long)}的第一个long相同
+     *
+     * @param seed 种子
+     * @return 增量hash
+     */
+    static StreamingHasher murmur128(final long seed) {
+        return new MurmurHash3Hasher(seed);
+    }
+
+    /**
+     * 输入数据
+     *
+     * @param data 数组
+     * @return 本身
+     */
+    default StreamingHasher update(final byte[] data) {
+        return update(data, 0, data.length);
+    }
+
+    /**
+     * 输入数据
+     *
+     * @param data   数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 本身
+     */
+    StreamingHasher update(byte[] data, int offset, int length);
+
+    /**
+     * 输入position到limit之间的数据，完成后position移到limit
+     *
+     * @param buffer 数据
+     * @return 本身
+     */
+    StreamingHasher update(ByteBuffer buffer);
+
+    /**
+     * 已输入数据的hash值，不改变状态，之后可以继续输入
+     *
+     * @return hash值
+     */
+    long finish();
+
+    /**
+     * 重置为初始状态
+     */
+    void reset();
+}
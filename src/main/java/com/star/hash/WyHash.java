@@ -0,0 +1,99 @@
+package com.star.hash;
+
+/**
+ * wyhash(final4版本)
+ * <p>
+ * 以64位乘法得到128位积再折叠作为混合函数，短输入只需一两次乘法，是目前最快的通用64位hash之一
+ *
+ * @author starhq
+ */
+final class WyHash {
+
+    private static final long SECRET0 = 0xa0761d6478bd642fL;
+    private static final long SECRET1 = 0xe7037ed1a0b428dbL;
+    private static final long SECRET2 = 0x8ebc6af09c88c6e3L;
+    private static final long SECRET3 = 0x589965cc75374cc3L;
+
+    private WyHash() {
+    }
+
+    /**
+     * 计算hash
+     *
+     * @param access 读取方式
+     * @param input  输入
+     * @param offset 起始字节
+     * @param length 字节数
+     * @param seed   种子
+     * @param <T>    输入类型
+     * @return hash值
+     */
+    static <T> long hash(final ByteAccess<T> access, final T input, final int offset, final int length, long seed) {
+        seed ^= mix(seed ^ SECRET0, SECRET1);
+        long a;
+        long b;
+        if (length <= 16) {
+            if (length >= 4) {
+                final int shift = (length >>> 3) << 2;
+                a = access.getUnsignedInt(input, offset) << 32 | access.getUnsignedInt(input, offset + shift);
+                b = access.getUnsignedInt(input, offset + length - 4) << 32
+                        | access.getUnsignedInt(input, offset + length - 4 - shift);
+            } else if (length > 0) {
+                a = (long) access.getUnsignedByte(input, offset) << 16
+                        | (long) access.getUnsignedByte(input, offset + (length >>> 1)) << 8
+                        | access.getUnsignedByte(input, offset + length - 1);
+                b = 0;
+            } else {
+                a = 0;
+                b = 0;
+            }
+        } else {
+            int p = offset;
+            int i = length;
+            if (i >= 48) {
+                long see1 = seed;
+                long see2 = seed;
+                do {
+                    seed = mix(access.getLong(input, p) ^ SECRET1, access.getLong(input, p + 8) ^ seed);
+                    see1 = mix(access.getLong(input, p + 16) ^ SECRET2, access.getLong(input, p + 24) ^ see1);
+                    see2 = mix(access.getLong(input, p + 32) ^ SECRET3, access.getLong(input, p + 40) ^ see2);
+                    p += 48;
+                    i -= 48;
+                } while (i >= 48);
+                seed ^= see1 ^ see2;
+            }
+            while (i > 16) {
+                seed = mix(access.getLong(input, p) ^ SECRET1, access.getLong(input, p + 8) ^ seed);
+                i -= 16;
+                p += 16;
+            }
+            a = access.getLong(input, p + i - 16);
+            b = access.getLong(input, p + i - 8);
+        }
+        a ^= SECRET1;
+        b ^= seed;
+        final long low = a * b;
+        final long high = multiplyHigh(a, b);
+        return mix(low ^ SECRET0 ^ length, high ^ SECRET1);
+    }
+
+    /**
+     * 128位积的高64位与低64位异或
+     */
+    private static long mix(final long a, final long b) {
+        return a * b ^ multiplyHigh(a, b);
+    }
+
+    /**
+     * 无符号64位乘法的高64位
+     */
+    private static long multiplyHigh(final long x, final long y) {
+        final long x0 = x & 0xffffffffL;
+        final long x1 = x >>> 32;
+        final long y0 = y & 0xffffffffL;
+        final long y1 = y >>> 32;
+        final long p01 = x0 * y1;
+        final long middle = x1 * y0 + (x0 * y0 >>> 32) + (p01 & 0xffffffffL);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+}
@@ -0,0 +1,124 @@
+package com.star.hash;
+
+/**
+ * xxHash64
+ * <p>
+ * 每次处理32字节，4路并行累加，短输入单独处理，速度接近内存带宽，分布通过SMHasher测试
+ *
+ * @author starhq
+ */
+final class XxHash64 {
+
+    static final long PRIME1 = 0x9E3779B185EBCA87L;
+    static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    static final long PRIME3 = 0x165667B19E3779F9L;
+    static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private XxHash64() {
+    }
+
+    /**
+     * 计算hash
+     *
+     * @param access 读取方式
+     * @param input  输入
+     * @param offset 起始字节
+     * @param length 字节数
+     * @param seed   种子
+     * @param <T>    输入类型
+     * @return hash值
+     */
+    static <T> long hash(final ByteAccess<T> access, final T input, final int offset, final int length,
+                         final long seed) {
+        final int end = offset + length;
+        int p = offset;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            final int limit = end - 32;
+            do {
+                v1 = round(v1, access.getLong(input, p));
+                v2 = round(v2, access.getLong(input, p + 8));
+                v3 = round(v3, access.getLong(input, p + 16));
+                v4 = round(v4, access.getLong(input, p + 24));
+                p += 32;
+            } while (p <= limit);
+            hash = converge(v1, v2, v3, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        return finish(hash + length, access, input, p, end - p);
+    }
+
+    /**
+     * 处理不足32字节的尾部并做最终混合
+     *
+     * @param hash   累加结果加上总长度
+     * @param access 读取方式
+     * @param input  输入
+     * @param offset 尾部起始字节
+     * @param length 尾部字节数，小于32
+     * @param <T>    输入类型
+     * @return hash值
+     */
+    static <T> long finish(long hash, final ByteAccess<T> access, final T input, final int offset, final int length) {
+        final int end = offset + length;
+        int p = offset;
+        while (p + 8 <= end) {
+            hash = tail8(hash, access.getLong(input, p));
+            p += 8;
+        }
+        if (p + 4 <= end) {
+            hash = tail4(hash, access.getUnsignedInt(input, p));
+            p += 4;
+        }
+        while (p < end) {
+            hash = tail1(hash, access.getUnsignedByte(input, p));
+            p++;
+        }
+        return avalanche(hash);
+    }
+
+    static long round(long acc, final long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    static long converge(final long v1, final long v2, final long v3, final long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                + Long.rotateLeft(v4, 18);
+        hash = merge(hash, v1);
+        hash = merge(hash, v2);
+        hash = merge(hash, v3);
+        return merge(hash, v4);
+    }
+
+    static long tail8(final long hash, final long input) {
+        return Long.rotateLeft(hash ^ round(0, input), 27) * PRIME1 + PRIME4;
+    }
+
+    static long tail4(final long hash, final long input) {
+        return Long.rotateLeft(hash ^ input * PRIME1, 23) * PRIME2 + PRIME3;
+    }
+
+    static long tail1(final long hash, final int input) {
+        return Long.rotateLeft(hash ^ input * PRIME5, 11) * PRIME1;
+    }
+
+    static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        return hash ^ hash >>> 32;
+    }
+
+    private static long merge(final long hash, final long value) {
+        return (hash ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,98 @@
+package com.star.hash;
+
+import java.nio.ByteBuffer;
+
+import static com.star.hash.XxHash64.PRIME1;
+import static com.star.hash.XxHash64.PRIME2;
+import static com.star.hash.XxHash64.PRIME5;
+
+/**
+ * xxHash64增量计算，按32字节一块累加，不足一块的数据暂存在缓冲中
+ *
+ * @author starhq
+ */
+final class XxHash64Hasher implements StreamingHasher {
+
+    private static final int BLOCK = 32;
+
+    private final long seed;
+    private final byte[] buffer = new byte[BLOCK];
+    private final ByteBuffer bufferView = ByteAccess.wrap(buffer);
+    private int buffered;
+    private long total;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    XxHash64Hasher(final long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    @Override
+    public StreamingHasher update(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        update(ByteAccess.BUFFER, ByteAccess.wrap(data), offset, length);
+        return this;
+    }
+
+    @Override
+    public StreamingHasher update(final ByteBuffer buffer) {
+        update(ByteAccess.BUFFER, ByteAccess.littleEndian(buffer), buffer.position(), buffer.remaining());
+        buffer.position(buffer.limit());
+        return this;
+    }
+
+    @Override
+    public long finish() {
+        final long hash = total >= BLOCK ? XxHash64.converge(v1, v2, v3, v4) : seed + PRIME5;
+        return XxHash64.finish(hash + total, ByteAccess.BUFFER, bufferView, 0, buffered);
+    }
+
+    @Override
+    public void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        total = 0;
+        buffered = 0;
+    }
+
+    private <T> void update(final ByteAccess<T> access, final T input, int offset, int length) {
+        total += length;
+        if (buffered > 0) {
+            final int fill = Math.min(BLOCK - buffered, length);
+            copy(access, input, offset, fill);
+            offset += fill;
+            length -= fill;
+            if (buffered < BLOCK) {
+                return;
+            }
+            block(ByteAccess.BUFFER, bufferView, 0);
+            buffered = 0;
+        }
+        while (length >= BLOCK) {
+            block(access, input, offset);
+            offset += BLOCK;
+            length -= BLOCK;
+        }
+        copy(access, input, offset, length);
+    }
+
+    private <T> void block(final ByteAccess<T> access, final T input, final int offset) {
+        v1 = XxHash64.round(v1, access.getLong(input, offset));
+        v2 = XxHash64.round(v2, access.getLong(input, offset + 8));
+        v3 = XxHash64.round(v3, access.getLong(input, offset + 16));
+        v4 = XxHash64.round(v4, access.getLong(input, offset + 24));
+    }
+
+    private <T> void copy(final ByteAccess<T> access, final T input, final int offset, final int length) {
+        for (int i = 0; i < length; i++) {
+            buffer[buffered++] = (byte) access.getUnsignedByte(input, offset + i);
+        }
+    }
+}
@@ -2,11 +2,20 @@ package com.star.id;
 
 import com.star.string.HexUtil;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 用来替代jdk的uuid
+ * <p>
+ * {@link #getId()}与jdk相同，使用SecureRandom，可用于令牌等需要不可预测的场景<br>
+ * {@link #insecureRandomUUID()}和按时间排序的UUID(v7)使用{@link ThreadLocalRandom}生成，不经过共享的SecureRandom，
+ * 高并发下没有竞争，但可以被预测，不可用于令牌、会话id等场景，只用于日志、追踪等唯一性足够的场景<br>
+ * v7的高48位为毫秒时间戳，随后12位为同一毫秒内的递增计数，作为数据库主键时新记录总是插入索引尾部，减少B树页分裂<br>
+ * format系列方法把36位(带连接符)或32位的形式直接写入调用方提供的char[]、byte[]或ByteBuffer，不创建字符串
  *
  * @author rolfl
  */
@@ -33,6 +42,26 @@ public final class NessUUID {
      */
     private static final char[][] RECODE = buildByteBlocks();
 
+    /**
+     * 十六进制字符
+     */
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 带连接符的长度
+     */
+    public static final int LENGTH = 36;
+
+    /**
+     * 不带连接符的长度
+     */
+    public static final int SIMPLE_LENGTH = 32;
+
+    /**
+     * v7上次使用的时间戳和计数，高位为毫秒，低12位为计数
+     */
+    private static final AtomicLong V7_STATE = new AtomicLong();
+
     private NessUUID() {
     }
 
@@ -155,11 +184,193 @@ public final class NessUUID {
     }
 
     /**
-     * 方便使用
+     * 方便使用，随机UUID(v4)，使用SecureRandom
      *
      * @return uuid字符串
      */
     public static String getId() {
         return toString(UUID.randomUUID());
     }
+
+    /**
+     * 方便使用，使用线程本地随机数的随机UUID(v4)，可以被预测，不可用于令牌
+     *
+     * @return uuid字符串
+     */
+    public static String getInsecureId() {
+        return toString(insecureRandomUUID());
+    }
+
+    /**
+     * 方便使用，按时间排序的UUID(v7)
+     *
+     * @return uuid字符串
+     */
+    public static String getTimeOrderedId() {
+        return toString(timeOrderedUUID());
+    }
+
+    /**
+     * 随机UUID(v4)，使用线程本地的随机数，没有竞争但可以被预测，不可用于令牌、会话id等场景
+     *
+     * @return uuid
+     */
+    public static UUID insecureRandomUUID() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long msb = (random.nextLong() & ~0xf000L) | 0x4000L;
+        final long lsb = (random.nextLong() & ~(0xc000000000000000L)) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * 按时间排序的UUID(v7)，同一毫秒内按计数递增，计数用完时借用下一毫秒，生成的UUID在本进程内严格递增
+     *
+     * @return uuid
+     */
+    public static UUID timeOrderedUUID() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long now = System.currentTimeMillis() << 12;
+        long current;
+        long next;
+        do {
+            current = V7_STATE.get();
+            // 新的一毫秒从随机位置开始计数，留出一半空间
+            next = now > current ? now | random.nextInt(0x800) : current + 1;
+        } while (!V7_STATE.compareAndSet(current, next));
+        final long msb = (next >>> 12) << 16 | 0x7000L | (next & 0xfffL);
+        final long lsb = (random.nextLong() & ~(0xc000000000000000L)) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * 写入char[]
+     *
+     * @param uuid   uuid
+     * @param dst    目标
+     * @param offset 起始位置
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     * @return 写入后的位置
+     */
+    public static int format(final UUID uuid, final char[] dst, final int offset, final boolean dashes) {
+        return format(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), dst, offset, dashes);
+    }
+
+    /**
+     * 写入char[]
+     *
+     * @param msb    高64位
+     * @param lsb    低64位
+     * @param dst    目标
+     * @param offset 起始位置
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     * @return 写入后的位置
+     */
+    public static int format(final long msb, final long lsb, final char[] dst, final int offset, final boolean dashes) {
+        checkRange(dst.length, offset, dashes);
+        int pos = offset;
+        for (int i = 0; i < SIMPLE_LENGTH; i++) {
+            if (dashes && (i == 8 || i == 12 || i == 16 || i == 20)) {
+                dst[pos++] = '-';
+            }
+            dst[pos++] = DIGITS[nibble(msb, lsb, i)];
+        }
+        return pos;
+    }
+
+    /**
+     * 以ASCII写入byte[]
+     *
+     * @param uuid   uuid
+     * @param dst    目标
+     * @param offset 起始位置
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     * @return 写入后的位置
+     */
+    public static int format(final UUID uuid, final byte[] dst, final int offset, final boolean dashes) {
+        return format(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), dst, offset, dashes);
+    }
+
+    /**
+     * 以ASCII写入byte[]
+     *
+     * @param msb    高64位
+     * @param lsb    低64位
+     * @param dst    目标
+     * @param offset 起始位置
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     * @return 写入后的位置
+     */
+    public static int format(final long msb, final long lsb, final byte[] dst, final int offset, final boolean dashes) {
+        checkRange(dst.length, offset, dashes);
+        int pos = offset;
+        for (int i = 0; i < SIMPLE_LENGTH; i++) {
+            if (dashes && (i == 8 || i == 12 || i == 16 || i == 20)) {
+                dst[pos++] = '-';
+            }
+            dst[pos++] = (byte) DIGITS[nibble(msb, lsb, i)];
+        }
+        return pos;
+    }
+
+    /**
+     * 以ASCII写入ByteBuffer的当前位置，写入后position前移
+     *
+     * @param uuid   uuid
+     * @param dst    目标
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     */
+    public static void format(final UUID uuid, final ByteBuffer dst, final boolean dashes) {
+        format(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), dst, dashes);
+    }
+
+    /**
+     * 以ASCII写入ByteBuffer的当前位置，写入后position前移
+     *
+     * @param msb    高64位
+     * @param lsb    低64位
+     * @param dst    目标
+     * @param dashes 是否带连接符，带连接符36位，不带32位
+     */
+    public static void format(final long msb, final long lsb, final ByteBuffer dst, final boolean dashes) {
+        final int position = dst.position();
+        checkRange(dst.limit(), position, dashes);
+        if (dst.hasArray()) {
+            format(msb, lsb, dst.array(), dst.arrayOffset() + position, dashes);
+            dst.position(position + (dashes ? LENGTH : SIMPLE_LENGTH));
+            return;
+        }
+        for (int i = 0; i < SIMPLE_LENGTH; i++) {
+            if (dashes && (i == 8 || i == 12 || i == 16 || i == 20)) {
+                dst.put((byte) '-');
+            }
+            dst.put((byte) DIGITS[nibble(msb, lsb, i)]);
+        }
+    }
+
+    /**
+     * 第i个十六进制位(从高位数起)
+     *
+     * @param msb 高64位
+     * @param lsb 低64位
+     * @param i   位置，0~31
+     * @return 0~15
+     */
+    private static int nibble(final long msb, final long lsb, final int i) {
+        return (int) ((i < 16 ? msb >>> ((15 - i) << 2) : lsb >>> ((31 - i) << 2)) & 0xf);
+    }
+
+    /**
+     * 检查目标空间是否足够
+     *
+     * @param length 目标长度
+     * @param offset 起始位置
+     * @param dashes 是否带连接符
+     */
+    private static void checkRange(final int length, final int offset, final boolean dashes) {
+        final int required = dashes ? LENGTH : SIMPLE_LENGTH;
+        if (offset < 0 || length - offset < required) {
+            throw new IllegalArgumentException("Invalid UUID destination (expected " + required
+                    + " characters from offset " + offset + ")");
+        }
+    }
 }
@@ -0,0 +1,293 @@
+package com.star.id;
+
+import com.star.exception.DbException;
+import com.star.jdbc.DbUtil;
+import com.star.jdbc.SqlRunner;
+import com.star.lang.Assert;
+import com.star.log.Log;
+import com.star.log.LogFactory;
+import com.star.string.StringUtil;
+import com.star.thread.GlobalThreadPool;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 号段ID分配器
+ * <p>
+ * 从数据库表中按号段租用ID，不需要像{@link Snowflake}那样为每个节点分配workerId，适合自动扩缩容的集群<br>
+ * 表结构如下，每个业务一行：
+ * <pre>
+ * CREATE TABLE id_segment (
+ *     biz_tag VARCHAR(64) PRIMARY KEY,
+ *     max_id  BIGINT NOT NULL
+ * );
+ * </pre>
+ * 每次在一个事务中把max_id增加一个步长并读回，得到号段(max_id - step, max_id]，号段内的ID在内存中发放<br>
+ * 双缓冲：当前号段用掉一定比例后在后台预取下一个号段，当前号段用完时直接切换，正常情况下{@link #nextId()}不等待数据库；
+ * 只有消耗速度超过预取速度或预取失败时才同步加载
+ *
+ * @author starhq
+ */
+public class SegmentIdAllocator {
+
+    private static final Log LOG = LogFactory.get(SegmentIdAllocator.class);
+
+    /**
+     * 默认表名
+     */
+    public static final String DEFAULT_TABLE = "id_segment";
+    /**
+     * 当前号段用掉该比例后开始预取
+     */
+    private static final double PREFETCH_PERCENT = 0.2d;
+
+    /**
+     * 数据源
+     */
+    private final DataSource dataSource;
+    /**
+     * sql执行器
+     */
+    private final SqlRunner sqlRunner = new SqlRunner();
+    /**
+     * 租用号段的sql
+     */
+    private final String updateSql;
+    /**
+     * 读回号段上限的sql
+     */
+    private final String selectSql;
+    /**
+     * 业务标识
+     */
+    private final String bizTag;
+    /**
+     * 步长
+     */
+    private final int step;
+    /**
+     * 预取使用的线程池
+     */
+    private final Executor executor;
+    /**
+     * 当前号段
+     */
+    private volatile Segment current;
+    /**
+     * 预取中的下一个号段，只在为null时设置，迟到的预取不会覆盖已有的
+     */
+    private final AtomicReference<CompletableFuture<Segment>> next = new AtomicReference<>();
+    /**
+     * 锁，保护号段切换
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 构造方法，使用默认表名，预取使用{@link GlobalThreadPool}
+     *
+     * @param dataSource 数据源
+     * @param bizTag     业务标识
+     * @param step       步长，即每个号段的ID数
+     */
+    public SegmentIdAllocator(final DataSource dataSource, final String bizTag, final int step) {
+        this(dataSource, DEFAULT_TABLE, bizTag, step, GlobalThreadPool::execute);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param dataSource 数据源
+     * @param table      表名
+     * @param bizTag     业务标识
+     * @param step       步长，即每个号段的ID数
+     * @param executor   预取使用的线程池
+     */
+    public SegmentIdAllocator(final DataSource dataSource, final String table, final String bizTag, final int step,
+                              final Executor executor) {
+        Assert.notNull(dataSource, "segment id allocator data source can't be null");
+        Assert.notBlank(table, "segment id allocator table can't be blank");
+        Assert.notBlank(bizTag, "segment id allocator biz tag can't be blank");
+        Assert.isTrue(step > 0, "segment id allocator step must be greater than 0");
+        Assert.notNull(executor, "segment id allocator executor can't be null");
+        this.dataSource = dataSource;
+        this.bizTag = bizTag;
+        this.step = step;
+        this.executor = executor;
+        this.updateSql = StringUtil.format("UPDATE {} SET max_id = max_id + ? WHERE biz_tag = ?", table);
+        this.selectSql = StringUtil.format("SELECT max_id FROM {} WHERE biz_tag = ?", table);
+        this.current = loadSegment();
+    }
+
+    /**
+     * 下一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        while (true) {
+            final Segment segment = current;
+            final long id = segment.value.getAndIncrement();
+            if (id <= segment.max) {
+                if (id >= segment.prefetchAt && segment.prefetched.compareAndSet(false, true)) {
+                    prefetch();
+                }
+                return id;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 当前号段剩余的ID数
+     *
+     * @return 剩余数
+     */
+    public long getRemaining() {
+        final Segment segment = current;
+        return Math.max(0, segment.max - segment.value.get() + 1);
+    }
+
+    /**
+     * 在后台预取下一个号段，已有预取中的号段时不再预取
+     * <p>
+     * 旧号段的预取可能在切换之后才触发，先占位再提交，不会覆盖新号段已经开始的预取，也不会多租用号段
+     */
+    private void prefetch() {
+        final CompletableFuture<Segment> future = new CompletableFuture<>();
+        if (!next.compareAndSet(null, future)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(loadSegment());
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 当前号段用完，切换到预取的号段，没有预取或预取失败时同步加载
+     *
+     * @param exhausted 用完的号段
+     */
+    private void switchSegment(final Segment exhausted) {
+        lock.lock();
+        try {
+            if (current != exhausted) {
+                return;
+            }
+            final CompletableFuture<Segment> future = next.getAndSet(null);
+            Segment segment = null;
+            if (Objects.nonNull(future)) {
+                try {
+                    segment = future.join();
+                } catch (RuntimeException e) {
+                    LOG.warn(e, "prefetch id segment of {} failure, load it synchronously", bizTag);
+                }
+            }
+            current = Objects.isNull(segment) ? loadSegment() : segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在一个事务中租用号段，关闭前恢复连接原来的自动提交设置，连接池复用时不受影响
+     *
+     * @return 号段
+     */
+    private Segment loadSegment() {
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = dataSource.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            final int updated = sqlRunner.update(conn, updateSql, step, bizTag);
+            final Long max = sqlRunner.query(conn, selectSql, resultSet -> {
+                try {
+                    return resultSet.next() ? resultSet.getLong(1) : null;
+                } catch (SQLException e) {
+                    throw new DbException(e);
+                }
+            }, bizTag);
+            if (updated != 1 || Objects.isNull(max)) {
+                throw new DbException(StringUtil.format("id segment of biz tag {} not found", bizTag));
+            }
+            conn.commit();
+            return new Segment(max - step + 1, max, step);
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw new DbException(StringUtil.format("load id segment of {} failure,the reason is: {}", bizTag,
+                    e.getMessage()), e);
+        } catch (RuntimeException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            if (Objects.nonNull(conn)) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException e) {
+                    LOG.warn(e, "restore auto commit of id segment connection failure");
+                }
+                DbUtil.closeQuietly(conn);
+            }
+        }
+    }
+
+    /**
+     * 静默回滚
+     *
+     * @param conn 连接
+     */
+    private static void rollbackQuietly(final Connection conn) {
+        try {
+            DbUtil.rollback(conn);
+        } catch (SQLException e) { // NOPMD
+            // quiet
+        }
+    }
+
+    /**
+     * 号段
+     */
+    private static final class Segment {
+
+        /**
+         * 下一个发放的ID
+         */
+        final AtomicLong value;
+        /**
+         * 号段上限(含)
+         */
+        final long max;
+        /**
+         * 发放到该ID时开始预取
+         */
+        final long prefetchAt;
+        /**
+         * 是否已触发预取
+         */
+        final AtomicBoolean prefetched = new AtomicBoolean();
+
+        Segment(final long min, final long max, final int step) {
+            this.value = new AtomicLong(min);
+            this.max = max;
+            this.prefetchAt = min + (long) (step * PREFETCH_PERCENT);
+        }
+    }
+}
@@ -2,6 +2,10 @@ package com.star.id;
 
 import com.star.time.SystemClock;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Twitter的Snowflake 算法<br>
  * 分布式系统中，有一些需要使用全局唯一ID的场景，有些时候我们希望能使用一种简单一些的ID，并且希望ID能够按照时间有序生成。<br>
@@ -14,6 +18,11 @@ import com.star.time.SystemClock;
  * 然后是5位datacenterId和5位workerId(10位的长度最多支持部署1024个节点）<br>
  * 最后12位是毫秒内的计数（12位的计数顺序号支持每个节点每毫秒产生4096个ID序号）<br>
  * <p>
+ * 时间戳和计数合并存放在一个{@link AtomicLong}中，以CAS推进，生成ID不加锁；{@link #nextIdBlock(int)}一次CAS预留一段连续的计数<br>
+ * 默认时钟回拨时抛出异常；指定容忍的回拨毫秒数后，回拨不超过该值时沿用上次的时间戳(逻辑时钟)继续生成，
+ * 计数用完时借用下一毫秒，逻辑时钟最多领先系统时钟容忍的毫秒数，ID始终递增<br>
+ * 计数用完需要等待下一毫秒时先让出CPU再短暂park，不占满CPU空转
+ * <p>
  * 参考：http://www.cnblogs.com/relucent/p/4955340.html
  *
  * @author Looly
@@ -32,11 +41,29 @@ public class Snowflake {
     private final long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
     private final long sequenceMask = -1L ^ (-1L << sequenceBits);
 
-    private long workerId;
-    private long datacenterId;
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
-    private boolean useSystemClock;
+    private final long workerId;
+    private final long datacenterId;
+    private final boolean useSystemClock;
+    /**
+     * 容忍的时钟回拨毫秒数，0为不容忍
+     */
+    private final long maxBackwardMillis;
+    /**
+     * 时钟回拨期间由逻辑时钟生成的次数
+     */
+    private final LongAdder clockBackwardCount = new LongAdder();
+    /**
+     * 回拨超出容忍范围而拒绝生成的次数
+     */
+    private final LongAdder clockBackwardRejectedCount = new LongAdder();
+    /**
+     * 计数用完等待下一毫秒的次数
+     */
+    private final LongAdder sequenceExhaustedCount = new LongAdder();
+    /**
+     * 上次生成ID的状态，高位为相对twepoch的时间戳，低12位为计数
+     */
+    private final AtomicLong state = new AtomicLong(-1L << sequenceBits);
 
     /**
      * 构造
@@ -56,6 +83,21 @@ public class Snowflake {
      * @param isUseSystemClock 是否使用{@link SystemClock} 获取当前时间戳
      */
     public Snowflake(long workerId, long datacenterId, boolean isUseSystemClock) {
+        this(workerId, datacenterId, isUseSystemClock, 0);
+    }
+
+    /**
+     * 构造，容忍小幅度的时钟回拨
+     *
+     * @param workerId          终端ID
+     * @param datacenterId      数据中心ID
+     * @param isUseSystemClock  是否使用{@link SystemClock} 获取当前时间戳
+     * @param maxBackwardMillis 容忍的时钟回拨毫秒数，回拨不超过该值时继续以逻辑时钟生成ID，0为不容忍
+     */
+    public Snowflake(long workerId, long datacenterId, boolean isUseSystemClock, long maxBackwardMillis) {
+        if (maxBackwardMillis < 0) {
+            throw new IllegalArgumentException("max backward millis can't be negative");
+        }
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
         }
@@ -65,6 +107,7 @@ public class Snowflake {
         this.workerId = workerId;
         this.datacenterId = datacenterId;
         this.useSystemClock = isUseSystemClock;
+        this.maxBackwardMillis = maxBackwardMillis;
     }
 
     /**
@@ -72,30 +115,133 @@ public class Snowflake {
      *
      * @return ID
      */
-    public synchronized long nextId() {
-        long timestamp = useSystemClock ? SystemClock.now() : System.currentTimeMillis();
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+    public long nextId() {
+        return nextIdBlock(1);
+    }
+
+    /**
+     * 预留一段连续的ID，一次CAS完成，适合批量插入
+     *
+     * @param size 数量，1~4096
+     * @return 第一个ID，这一段ID为[返回值, 返回值 + size)
+     */
+    public long nextIdBlock(int size) {
+        if (size < 1 || size > sequenceMask + 1) {
+            throw new IllegalArgumentException(String.format("id block size must be between 1 and %d", sequenceMask + 1));
         }
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
+        while (true) {
+            // 先读状态再读时间，读到的时间不会早于其它线程写入状态时用的时间，除非时钟真的回拨
+            long current = state.get();
+            long lastTimestamp = current >> sequenceBits;
+            long timestamp = timeGen() - twepoch;
+            boolean backward = timestamp < lastTimestamp;
+            if (backward && lastTimestamp - timestamp > maxBackwardMillis) {
+                clockBackwardRejectedCount.increment();
+                throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+            }
+            long first;
+            if (timestamp > lastTimestamp) {
+                first = timestamp << sequenceBits;
+            } else if ((current & sequenceMask) + size <= sequenceMask) {
+                first = current + 1;
+            } else if (backward && lastTimestamp + 1 - timestamp <= maxBackwardMillis) {
+                // 回拨期间计数用完，逻辑时钟借用下一毫秒
+                first = (lastTimestamp + 1) << sequenceBits;
+            } else {
+                sequenceExhaustedCount.increment();
+                tilNextMillis(lastTimestamp + twepoch);
+                continue;
+            }
+            if (state.compareAndSet(current, first + size - 1)) {
+                if (backward) {
+                    clockBackwardCount.increment();
+                }
+                return toId(first);
             }
-        } else {
-            sequence = 0L;
         }
+    }
 
-        lastTimestamp = timestamp;
+    /**
+     * 批量生成ID，按4096个一段预留
+     *
+     * @param size 数量
+     * @return ID，递增
+     */
+    public long[] nextIds(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("id count can't be negative");
+        }
+        long[] ids = new long[size];
+        int index = 0;
+        while (index < size) {
+            int block = (int) Math.min(size - index, sequenceMask + 1);
+            long first = nextIdBlock(block);
+            for (int i = 0; i < block; i++) {
+                ids[index++] = first + i;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 时钟回拨期间由逻辑时钟生成ID(或ID段)的次数
+     *
+     * @return 次数
+     */
+    public long getClockBackwardCount() {
+        return clockBackwardCount.sum();
+    }
+
+    /**
+     * 时钟回拨超出容忍范围而抛出异常的次数
+     *
+     * @return 次数
+     */
+    public long getClockBackwardRejectedCount() {
+        return clockBackwardRejectedCount.sum();
+    }
+
+    /**
+     * 毫秒内计数用完而等待下一毫秒的次数
+     *
+     * @return 次数
+     */
+    public long getSequenceExhaustedCount() {
+        return sequenceExhaustedCount.sum();
+    }
 
-        return ((timestamp - twepoch) << timestampLeftShift) | (datacenterId << datacenterIdShift) | (workerId << workerIdShift) | sequence;
+    /**
+     * 由状态(时间戳和计数)组装ID
+     *
+     * @param state 状态
+     * @return ID
+     */
+    private long toId(long state) {
+        return ((state >> sequenceBits) << timestampLeftShift) | (datacenterId << datacenterIdShift) | (workerId << workerIdShift) | (state & sequenceMask);
     }
 
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = useSystemClock ? SystemClock.now() : System.currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = useSystemClock ? SystemClock.now() : System.currentTimeMillis();
+    /**
+     * 当前时间戳
+     *
+     * @return 毫秒
+     */
+    protected long timeGen() {
+        return useSystemClock ? SystemClock.now() : System.currentTimeMillis();
+    }
+
+    /**
+     * 等待到下一毫秒，先让出CPU，仍未到则每次park 50微秒
+     *
+     * @param lastTimestamp 上次的时间戳
+     */
+    private void tilNextMillis(long lastTimestamp) {
+        int spins = 0;
+        while (timeGen() <= lastTimestamp) {
+            if (spins++ < 8) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(50_000L);
+            }
         }
-        return timestamp;
     }
 }
@@ -0,0 +1,100 @@
+package com.star.io;
+
+/**
+ * 线程本地的字节数组池
+ * <p>
+ * 数组按2的幂分级，从1KB到128KB共8级，每个线程每级最多缓存8个，每个线程最多缓存约2MB<br>
+ * 借出时从当前线程取同级的数组，没有就新建；归还时放回当前线程，满了就丢给GC，不需要加锁<br>
+ * 超过128KB的数组不池化，直接分配；归还的数组长度不是池中的某一级时忽略<br>
+ * 归还后的数组不能再使用，借出的数组内容是脏的
+ *
+ * @author starhq
+ */
+public final class ByteArrayPool {
+
+    /**
+     * 最小一级的位移，1KB
+     */
+    private static final int MIN_SHIFT = 10;
+    /**
+     * 最大一级的位移，128KB
+     */
+    private static final int MAX_SHIFT = 17;
+    /**
+     * 池化的最大长度
+     */
+    public static final int MAX_POOLED_LENGTH = 1 << MAX_SHIFT;
+    /**
+     * 每个线程每级最多缓存的数组数
+     */
+    private static final int MAX_PER_CLASS = 8;
+
+    /**
+     * 当前线程的缓存
+     */
+    private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
+    private ByteArrayPool() {
+    }
+
+    /**
+     * 借出数组
+     *
+     * @param minLength 最小长度
+     * @return 长度不小于minLength的数组，不超过{@link #MAX_POOLED_LENGTH}时长度为2的幂
+     */
+    public static byte[] acquire(final int minLength) {
+        if (minLength > MAX_POOLED_LENGTH) {
+            return new byte[minLength];
+        }
+        final int shift = shiftOf(minLength);
+        final Cache cache = CACHE.get();
+        final int index = shift - MIN_SHIFT;
+        final int count = cache.counts[index];
+        if (count == 0) {
+            return new byte[1 << shift];
+        }
+        final byte[] array = cache.arrays[index][count - 1];
+        cache.arrays[index][count - 1] = null;
+        cache.counts[index] = count - 1;
+        return array;
+    }
+
+    /**
+     * 归还数组
+     *
+     * @param array 数组
+     */
+    public static void release(final byte[] array) {
+        final int length = array.length;
+        if (length < 1 << MIN_SHIFT || length > MAX_POOLED_LENGTH || Integer.bitCount(length) != 1) {
+            return;
+        }
+        final Cache cache = CACHE.get();
+        final int index = Integer.numberOfTrailingZeros(length) - MIN_SHIFT;
+        final int count = cache.counts[index];
+        if (count < MAX_PER_CLASS) {
+            cache.arrays[index][count] = array;
+            cache.counts[index] = count + 1;
+        }
+    }
+
+    /**
+     * 长度所在的级别
+     *
+     * @param length 长度
+     * @return 2的幂的位移
+     */
+    private static int shiftOf(final int length) {
+        return length <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * 一个线程的缓存
+     */
+    private static final class Cache {
+
+        final byte[][][] arrays = new byte[MAX_SHIFT - MIN_SHIFT + 1][MAX_PER_CLASS][];
+        final int[] counts = new int[MAX_SHIFT - MIN_SHIFT + 1];
+    }
+}
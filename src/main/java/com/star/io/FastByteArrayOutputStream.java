@@ -5,6 +5,8 @@ import com.star.string.StringUtil;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.Charset;
 
 /**
@@ -14,6 +16,9 @@ import java.nio.charset.Charset;
  * <p>
  * {@link #close()}方法无任何效果，当流被关闭后不会抛出IOException
  * <p>
+ * 池化模式下缓冲区从{@link ByteArrayPool}借出，{@link #close()}和{@link #reset()}时归还，关闭后数据被清空，
+ * 需要在关闭前取出数据；适合序列化、读取流这类用完即丢的场景
+ * <p>
  * 这种设计避免重新分配内存块而是分配新增的缓冲区，缓冲区不会被GC，数据也不会被拷贝到其他缓冲区。
  *
  * @author biezhi
@@ -38,8 +43,18 @@ public class FastByteArrayOutputStream extends OutputStream {
      * @param size 缓冲区大小
      */
     public FastByteArrayOutputStream(int size) {
+        this(size, false);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param size   缓冲区大小
+     * @param pooled 是否池化缓冲区，关闭和重置时归还
+     */
+    public FastByteArrayOutputStream(int size, boolean pooled) {
         super();
-        buffer = new FastByteBuffer(size);
+        buffer = new FastByteBuffer(size, pooled);
     }
 
     /**
@@ -74,12 +89,13 @@ public class FastByteArrayOutputStream extends OutputStream {
     }
 
     /**
-     * 关闭流
-     *
+     * 关闭流，池化模式下归还缓冲区并清空数据，否则无任何效果
      */
     @Override
     public void close() {
-        // nop
+        if (buffer.isPooled()) {
+            buffer.reset();
+        }
     }
 
     /**
@@ -95,20 +111,48 @@ public class FastByteArrayOutputStream extends OutputStream {
      * @param ops 输出流
      */
     public void writeTo(OutputStream ops) {
-        final int idx = buffer.getIndex();
-        byte[] buf;
         try {
-            for (int i = 0; i < idx; i++) {
-                buf = buffer.getArray(idx);
-                ops.write(buf);
+            for (ByteBuffer byteBuffer : buffer.asByteBuffers()) {
+                ops.write(byteBuffer.array(), 0, byteBuffer.limit());
             }
-            ops.write(buffer.getArray(idx), 0, buffer.getOffset());
         } catch (IOException e) {
             throw new IORuntimeException(StringUtil
                     .format("fast byte buffer write to output stream failue,the reason is: {}", e.getMessage()), e);
         }
     }
 
+    /**
+     * 以聚集写的方式把快速缓冲区内容写入通道，不复制数据，适合把大的响应体、序列化结果写入socket或文件
+     * <p>
+     * 非阻塞通道写满时返回已写入的字节数，用{@link #writeTo(GatheringByteChannel, long)}续写
+     *
+     * @param channel 通道
+     * @return 写入的字节数
+     */
+    public long writeTo(GatheringByteChannel channel) {
+        return buffer.writeTo(channel);
+    }
+
+    /**
+     * 从指定位置开始以聚集写的方式写入通道，非阻塞通道写满时返回，调用方可写后以from加上返回值续写
+     *
+     * @param channel 通道
+     * @param from    起始位置
+     * @return 本次写入的字节数
+     */
+    public long writeTo(GatheringByteChannel channel, long from) {
+        return buffer.writeTo(channel, from);
+    }
+
+    /**
+     * 把快速缓冲区包装为ByteBuffer数组，不复制数据，只在下次写入、重置或关闭前有效
+     *
+     * @return ByteBuffer数组
+     */
+    public ByteBuffer[] asByteBuffers() {
+        return buffer.asByteBuffers();
+    }
+
     /**
      * 获得输出流中的字节数组
      *
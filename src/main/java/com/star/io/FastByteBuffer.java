@@ -1,11 +1,21 @@
 package com.star.io;
 
+import com.star.exception.IORuntimeException;
+import com.star.string.StringUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.util.Objects;
 
 /**
  * 快速缓冲，将数据存放在缓冲集中，取代以往的单一数组
  * <p>
  * 功能和bytebuffer差不多,测下来性能要好一点，可以考虑在实战中使用
+ * <p>
+ * 池化模式下缓冲区从{@link ByteArrayPool}借出，大小从最小字节数起按已写入的字节数翻倍(不超过池化的最大长度)，
+ * {@link #reset()}时归还到当前线程的池中，反复创建、写满、取出、重置的场景下几乎不再分配新的缓冲区；
+ * 重置后之前通过{@link #getArray(int)}以外的方式拿到的缓冲区不能再使用
  *
  * @author http://git.oschina.net/loolly/hutool
  */
@@ -39,6 +49,10 @@ public class FastByteBuffer {
      * 缓冲字节数
      */
     private int size;
+    /**
+     * 是否池化缓冲区
+     */
+    private final boolean pooled;
 
     /**
      * 构造方法
@@ -53,7 +67,18 @@ public class FastByteBuffer {
      * @param size 最小字节数
      */
     public FastByteBuffer(final int size) {
+        this(size, false);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param size   最小字节数
+     * @param pooled 是否从{@link ByteArrayPool}借出缓冲区，重置时归还
+     */
+    public FastByteBuffer(final int size, final boolean pooled) {
         this.minChunkLen = Math.abs(size);
+        this.pooled = pooled;
     }
 
     /**
@@ -63,9 +88,14 @@ public class FastByteBuffer {
      */
     private void needNewBuffer(final int newSize) {
         final int delta = newSize - size;
-        final int newBufferSize = Math.max(minChunkLen, delta);
         currentIndex++;
-        currentBuffer = new byte[newBufferSize];
+        if (pooled) {
+            // 按已写入的字节数翻倍，缓冲区个数只随总字节数对数增长
+            final int chunkLen = Math.max(minChunkLen, Math.min(size, ByteArrayPool.MAX_POOLED_LENGTH));
+            currentBuffer = ByteArrayPool.acquire(Math.max(chunkLen, delta));
+        } else {
+            currentBuffer = new byte[Math.max(minChunkLen, delta)];
+        }
         offset = 0;
         if (currentIndex >= buffers.length) {
             final int newLen = buffers.length << 1;
@@ -192,9 +222,24 @@ public class FastByteBuffer {
     }
 
     /**
-     * 重置缓冲集
+     * 是否池化缓冲区
+     *
+     * @return 是否池化
+     */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * 重置缓冲集，池化模式下缓冲区归还到当前线程的池中
      */
     public void reset() {
+        if (pooled) {
+            for (int i = 0; i <= currentIndex; i++) {
+                ByteArrayPool.release(buffers[i]);
+                buffers[i] = null;
+            }
+        }
         size = 0;
         offset = 0;
         currentIndex = -1;
@@ -221,6 +266,79 @@ public class FastByteBuffer {
         return result;
     }
 
+    /**
+     * 把缓冲集包装为ByteBuffer数组，不复制数据
+     * <p>
+     * 返回的ByteBuffer与缓冲集共享内存，只在下次写入或重置前有效，池化模式下重置后不能再使用
+     *
+     * @return 每个缓冲一个ByteBuffer，position为0，limit为缓冲中的字节数
+     */
+    public ByteBuffer[] asByteBuffers() {
+        final ByteBuffer[] byteBuffers = new ByteBuffer[currentIndex + 1];
+        for (int i = 0; i < currentIndex; i++) {
+            byteBuffers[i] = ByteBuffer.wrap(buffers[i]);
+        }
+        if (currentIndex != -1) {
+            byteBuffers[currentIndex] = ByteBuffer.wrap(buffers[currentIndex], 0, offset);
+        }
+        return byteBuffers;
+    }
+
+    /**
+     * 以聚集写的方式把缓冲集写入通道，不复制数据
+     * <p>
+     * 阻塞通道全部写入后返回；非阻塞通道写满时返回已写入的字节数，见{@link #writeTo(GatheringByteChannel, long)}
+     *
+     * @param channel 通道
+     * @return 写入的字节数
+     */
+    public long writeTo(final GatheringByteChannel channel) {
+        return writeTo(channel, 0);
+    }
+
+    /**
+     * 从指定位置开始，以聚集写的方式把缓冲集写入通道，不复制数据
+     * <p>
+     * 通道一次写入0字节(非阻塞通道的发送缓冲区已满)时立即返回，不空转等待；
+     * 调用方在通道可写(如Selector的OP_WRITE)后以from加上返回值续写，直到写完{@link #getSize()}字节
+     *
+     * @param channel 通道
+     * @param from    起始位置
+     * @return 本次写入的字节数
+     */
+    public long writeTo(final GatheringByteChannel channel, final long from) {
+        if (from < 0 || from > size) {
+            throw new IndexOutOfBoundsException(StringUtil.format("write from {} out of buffer size {}", from, size));
+        }
+        final ByteBuffer[] byteBuffers = asByteBuffers();
+        int first = 0;
+        long skipped = 0;
+        while (first < byteBuffers.length && skipped + byteBuffers[first].remaining() <= from) {
+            skipped += byteBuffers[first++].remaining();
+        }
+        if (first < byteBuffers.length) {
+            byteBuffers[first].position((int) (from - skipped));
+        }
+        final long total = size - from;
+        long written = 0;
+        try {
+            while (written < total) {
+                final long count = channel.write(byteBuffers, first, byteBuffers.length - first);
+                if (count <= 0) {
+                    break;
+                }
+                written += count;
+                while (first < byteBuffers.length && !byteBuffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(StringUtil
+                    .format("fast byte buffer write to channel failure,the reason is: {}", e.getMessage()), e);
+        }
+        return written;
+    }
+
     /**
      * 返回缓冲集中的数据
      *
@@ -234,7 +352,7 @@ public class FastByteBuffer {
         if (len != 0) {
             int flag = 0;
             int begin = start;
-            while (start >= buffers[flag].length) {
+            while (begin >= buffers[flag].length) {
                 begin -= buffers[flag].length;
                 flag++;
             }
@@ -243,7 +361,7 @@ public class FastByteBuffer {
             while (flag < buffersCount) {
                 final byte[] buf = buffers[flag];
                 final int last = Math.min(buf.length - begin, remaining);
-                System.arraycopy(buf, start, array, pos, last);
+                System.arraycopy(buf, begin, array, pos, last);
                 pos += last;
                 remaining -= last;
                 if (remaining == 0) {
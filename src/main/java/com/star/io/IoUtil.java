@@ -48,6 +48,20 @@ public final class IoUtil {
      */
     public static final int DEFAULT_LARGE_BUFFER_SIZE = DEFAULT_BUFFER_SIZE << 3;
 
+    /**
+     * 自适应缓存的最大大小
+     */
+    private static final int MAX_ADAPTIVE_BUFFER_SIZE = DEFAULT_BUFFER_SIZE << 6;
+    /**
+     * 长度未知时的自适应缓存大小
+     */
+    private static final int UNKNOWN_LENGTH_BUFFER_SIZE = DEFAULT_LARGE_BUFFER_SIZE;
+
+    /**
+     * 并行按行处理时默认的块大小
+     */
+    public static final int DEFAULT_LINE_CHUNK_SIZE = 4 << 20;
+
     /**
      * 数据流末尾
      */
@@ -95,98 +109,198 @@ public final class IoUtil {
     }
 
     /**
-     * 将InputStream中的内容复制到outputStream中
+     * 将InputStream中的内容复制到outputStream中，缓存大小按流的类型和剩余长度自动选择
      *
      * @param inputStream  输入流
      * @param outputStream 输出流
      * @return 复制了多少字节数
      */
     public static long copy(final InputStream inputStream, final OutputStream outputStream) {
-        return copy(inputStream, outputStream, DEFAULT_BUFFER_SIZE);
+        return copy(inputStream, outputStream, 0);
     }
 
     /**
      * 将InputStream中的内容复制到outputStream中
+     * <p>
+     * 两端都是文件流时从输入流的当前位置起由内核直接复制，不经过用户态缓存；
+     * 否则缓存从{@link ByteArrayPool}借出，复制完再flush一次
      *
      * @param inputStream  输入流
      * @param outputStream 输出流
-     * @param bufferSize   缓存大小
+     * @param bufferSize   缓存大小，不大于0时按流的类型和剩余长度自动选择
      * @return 复制了多少字节数
      */
     public static long copy(final InputStream inputStream, final OutputStream outputStream, final int bufferSize) {
-        final int size = bufferSize <= 0 ? DEFAULT_BUFFER_SIZE : bufferSize;
-        final byte[] buffer = new byte[size];
-        int count = 0;
+        if (inputStream instanceof FileInputStream && outputStream instanceof FileOutputStream) {
+            return copy((FileInputStream) inputStream, (FileOutputStream) outputStream);
+        }
+        final byte[] buffer = ByteArrayPool.acquire(bufferSize <= 0 ? bufferSize(inputStream) : bufferSize);
+        long count = 0;
         int readSize;
         try {
             while ((readSize = inputStream.read(buffer)) != EOF) {
                 outputStream.write(buffer, 0, readSize);
                 count += readSize;
-                outputStream.flush();
             }
+            outputStream.flush();
             return count;
         } catch (IOException e) {
             throw new IORuntimeException(
-                    StringUtil.format("inputStream copy to outputStream failure the reason is: {}", e.getMessage()),
-                    e);
+                    StringUtil.format("inputStream copy to outputStream failure the reason is: {}", e.getMessage()), e);
+        } finally {
+            ByteArrayPool.release(buffer);
         }
     }
 
     /**
-     * 拷贝文件流（nio）
+     * 拷贝文件流（nio），从输入流的当前位置复制到末尾，由内核直接复制
      *
      * @param inputStream  输入流
      * @param outputStream 输出流
      * @return 复制了多少字节数
      */
     public static long copy(final FileInputStream inputStream, final FileOutputStream outputStream) {
-        final FileChannel inChannel = inputStream.getChannel();
-        final FileChannel outChannel = outputStream.getChannel();
-
-        try {
-            return inChannel.transferTo(0, inChannel.size(), outChannel);
-        } catch (IOException e) {
-            throw new IORuntimeException(
-                    StringUtil.format("fileinputStream copy to fileoutputStream failure the reason is: {}", e.getMessage()), e);
-        }
+        return transferTo(inputStream.getChannel(), outputStream.getChannel());
     }
 
     /**
-     * 拷贝流，使用NIO
+     * 拷贝流，使用NIO，两端都是文件流时由内核直接复制
      *
      * @param inputStream  输入流
      * @param outputStream 输出流
-     * @param bufferSize   缓冲数
+     * @param bufferSize   缓冲数，不大于0时按流的类型和剩余长度自动选择
      * @return 复制了多少字节
      */
     public static long copyByNIO(final InputStream inputStream, final OutputStream outputStream, final int bufferSize) throws IORuntimeException {
-        return copy(Channels.newChannel(inputStream), Channels.newChannel(outputStream), bufferSize);
+        if (inputStream instanceof FileInputStream && outputStream instanceof FileOutputStream) {
+            return copy((FileInputStream) inputStream, (FileOutputStream) outputStream);
+        }
+        return copy(Channels.newChannel(inputStream), Channels.newChannel(outputStream),
+                bufferSize <= 0 ? bufferSize(inputStream) : bufferSize);
     }
 
     /**
      * 拷贝流，使用NIO
+     * <p>
+     * 输入是文件通道时使用{@link FileChannel#transferTo(long, long, WritableByteChannel)}，
+     * 输出是文件通道时使用{@link FileChannel#transferFrom(ReadableByteChannel, long, long)}，
+     * 文件到文件、文件到socket由内核直接复制(sendfile等)，不经过用户态缓存；其余情况使用缓存复制
      *
      * @param srcChannel  输入流
      * @param descChannel 输出流
-     * @param bufferSize  缓冲数
+     * @param bufferSize  缓冲数，不大于0时取{@link #DEFAULT_LARGE_BUFFER_SIZE}
      * @return 复制了多少字节
      */
     public static long copy(final ReadableByteChannel srcChannel, final WritableByteChannel descChannel, final int bufferSize) {
-        final ByteBuffer byteBuffer = ByteBuffer.allocate(bufferSize <= 0 ? DEFAULT_BUFFER_SIZE : bufferSize);
-        long size = 0;
+        if (srcChannel instanceof FileChannel) {
+            return transferTo((FileChannel) srcChannel, descChannel);
+        }
+        final int size = bufferSize <= 0 ? UNKNOWN_LENGTH_BUFFER_SIZE : bufferSize;
+        if (descChannel instanceof FileChannel) {
+            return transferFrom(srcChannel, (FileChannel) descChannel, size);
+        }
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(size);
+        long count = 0;
         try {
             while (srcChannel.read(byteBuffer) != EOF) {
                 byteBuffer.flip();
-                size += descChannel.write(byteBuffer);
+                while (byteBuffer.hasRemaining()) {
+                    count += descChannel.write(byteBuffer);
+                }
                 byteBuffer.clear();
             }
-            return size;
+            return count;
         } catch (IOException e) {
             throw new IORuntimeException(
                     StringUtil.format("readablebytechannel copy to writablebytechannel failure the reason is: {}", e.getMessage()), e);
         }
     }
 
+    /**
+     * 从文件通道的当前位置复制到末尾，复制完通道位置移到末尾
+     * <p>
+     * 单次transferTo可能只复制一部分(例如Linux单次最多约2GB)，循环直到复制完
+     *
+     * @param srcChannel  文件通道
+     * @param descChannel 输出通道
+     * @return 复制了多少字节
+     */
+    public static long transferTo(final FileChannel srcChannel, final WritableByteChannel descChannel) {
+        try {
+            final long position = srcChannel.position();
+            final long count = srcChannel.size() - position;
+            long transferred = 0;
+            while (transferred < count) {
+                final long size = srcChannel.transferTo(position + transferred, count - transferred, descChannel);
+                if (size <= 0) {
+                    break;
+                }
+                transferred += size;
+            }
+            srcChannel.position(position + transferred);
+            return transferred;
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("filechannel transfer to writablebytechannel failure the reason is: {}", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 从输入通道读到末尾，写入文件通道的当前位置，复制完通道位置移到写入的末尾
+     * <p>
+     * transferFrom读到末尾和暂时没有数据都返回0，不适用于非阻塞通道
+     *
+     * @param srcChannel  输入通道
+     * @param descChannel 文件通道
+     * @param chunkSize   每次transferFrom的字节数
+     * @return 复制了多少字节
+     */
+    public static long transferFrom(final ReadableByteChannel srcChannel, final FileChannel descChannel, final int chunkSize) {
+        try {
+            final long position = descChannel.position();
+            long transferred = 0;
+            long size;
+            while ((size = descChannel.transferFrom(srcChannel, position + transferred, chunkSize)) > 0) {
+                transferred += size;
+            }
+            descChannel.position(position + transferred);
+            return transferred;
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("readablebytechannel transfer to filechannel failure the reason is: {}", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 按流的类型和剩余长度选择缓存大小
+     * <p>
+     * 文件流取剩余的文件长度，其他流取{@link InputStream#available()}，向上取到2的幂，
+     * 介于{@link #DEFAULT_BUFFER_SIZE}和64KB之间；长度未知时取{@link #DEFAULT_LARGE_BUFFER_SIZE}
+     *
+     * @param inputStream 输入流
+     * @return 缓存大小
+     */
+    private static int bufferSize(final InputStream inputStream) {
+        long expected;
+        try {
+            if (inputStream instanceof FileInputStream) {
+                final FileChannel channel = ((FileInputStream) inputStream).getChannel();
+                expected = channel.size() - channel.position();
+            } else {
+                expected = inputStream.available();
+            }
+        } catch (IOException e) {
+            expected = 0;
+        }
+        if (expected <= 0) {
+            return UNKNOWN_LENGTH_BUFFER_SIZE;
+        }
+        if (expected >= MAX_ADAPTIVE_BUFFER_SIZE) {
+            return MAX_ADAPTIVE_BUFFER_SIZE;
+        }
+        return Math.max(DEFAULT_BUFFER_SIZE, Integer.highestOneBit((int) expected - 1) << 1);
+    }
+
     /**
      * 输入流包装成BufferedReader
      *
@@ -264,8 +378,10 @@ public final class IoUtil {
      * @return 字符串
      */
     public static String read(final InputStream input, final String charset) {
-        final FastByteArrayOutputStream outputStream = read(input);
-        return StringUtil.isBlank(charset) ? outputStream.toString() : StringUtil.str(outputStream.toByteArray(), charset);
+        try (FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream(1024, true)) {
+            copy(input, outputStream);
+            return StringUtil.isBlank(charset) ? outputStream.toString() : outputStream.toString(charset);
+        }
     }
 
     /**
@@ -276,8 +392,10 @@ public final class IoUtil {
      * @return 字符串
      */
     public static String read(final InputStream input, final Charset charset) {
-        final FastByteArrayOutputStream outputStream = read(input);
-        return Objects.isNull(charset) ? outputStream.toString() : StringUtil.str(outputStream.toByteArray(), charset);
+        try (FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream(1024, true)) {
+            copy(input, outputStream);
+            return Objects.isNull(charset) ? outputStream.toString() : outputStream.toString(charset);
+        }
     }
 
     /**
@@ -357,8 +475,10 @@ public final class IoUtil {
      * @return 字节数组
      */
     public static byte[] readBytes(final InputStream inputStream) {
-        final FastByteArrayOutputStream outputStream = read(inputStream);
-        return outputStream.toByteArray();
+        try (FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream(1024, true)) {
+            copy(inputStream, outputStream);
+            return outputStream.toByteArray();
+        }
     }
 
     /**
@@ -573,5 +693,37 @@ public final class IoUtil {
         }
     }
 
+    /**
+     * 以内存映射的方式多核并行按行处理文件，块大小为{@link #DEFAULT_LINE_CHUNK_SIZE}
+     *
+     * @param fileChannel 文件通道
+     * @param charset     编码，须ASCII兼容，如UTF-8、GBK
+     * @param lineHandler 行处理器
+     * @param ordered     是否按文件中的顺序逐行交给行处理器
+     */
+    public static void parallelReadLines(final FileChannel fileChannel, final Charset charset,
+                                         final LineHandler lineHandler, final boolean ordered) {
+        parallelReadLines(fileChannel, charset, lineHandler, ordered, DEFAULT_LINE_CHUNK_SIZE);
+    }
 
+    /**
+     * 以内存映射的方式多核并行按行处理文件
+     * <p>
+     * 文件按chunkSize切成以换行符结尾的块，在本次调用独占的线程池中并行映射、解码，
+     * 不经过Reader；换行符与{@link BufferedReader#readLine()}相同<br>
+     * ordered为true时按文件中的顺序逐行交给行处理器，同一时刻只有一个线程调用；
+     * 为false时各块解码出一行就交给行处理器，多个线程并发调用，行处理器须线程安全<br>
+     * 行处理器抛出的异常在所有已提交的块结束后抛给调用方
+     *
+     * @param fileChannel 文件通道
+     * @param charset     编码，须ASCII兼容，如UTF-8、GBK
+     * @param lineHandler 行处理器
+     * @param ordered     是否按文件中的顺序逐行交给行处理器
+     * @param chunkSize   块大小
+     */
+    public static void parallelReadLines(final FileChannel fileChannel, final Charset charset,
+                                         final LineHandler lineHandler, final boolean ordered, final int chunkSize) {
+        new ParallelLineReader(fileChannel, Objects.isNull(charset) ? CharsetUtil.CHARSET_UTF_8 : charset,
+                lineHandler, ordered, chunkSize).read();
+    }
 }
@@ -0,0 +1,353 @@
+package com.star.io;
+
+import com.star.exception.IORuntimeException;
+import com.star.lang.Assert;
+import com.star.lang.LineHandler;
+import com.star.string.StringUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 以内存映射的方式多核并行按行处理文件
+ * <p>
+ * 文件按chunkSize切块，块的边界后移到下一个换行符之后，每块在本次读取独占的{@link ForkJoinPool}中映射后解码成行<br>
+ * 不用{@link ForkJoinPool#commonPool()}：调用线程要阻塞等待许可，在公共池的线程中调用时会占住公共池，块任务排不上而死锁；
+ * 行处理器阻塞时也不会拖住公共池中的其他任务<br>
+ * 不经过Reader，直接在字节上找换行符；一行全是ASCII时按ISO-8859-1解码(一次复制)，否则按指定编码解码<br>
+ * 同时在处理的块数不超过线程数的2倍，文件再大也只有这么多块的映射和解码结果在内存中<br>
+ * 换行符与{@link java.io.BufferedReader#readLine()}相同，\n、\r、\r\n都是换行；
+ * 只支持ASCII兼容、换行符不会出现在多字节字符中的编码，如UTF-8、GBK，不支持UTF-16
+ *
+ * @author starhq
+ */
+final class ParallelLineReader {
+
+    /**
+     * 找块边界时每次读取的字节数
+     */
+    private static final int SCAN_SIZE = 8192;
+    /**
+     * 解码时每次从映射中复制的字节数
+     */
+    private static final int BATCH_SIZE = 64 << 10;
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel channel;
+    /**
+     * 编码
+     */
+    private final Charset charset;
+    /**
+     * 行处理器
+     */
+    private final LineHandler lineHandler;
+    /**
+     * 是否按文件中的顺序交给行处理器
+     */
+    private final boolean ordered;
+    /**
+     * 块大小
+     */
+    private final int chunkSize;
+    /**
+     * 处理块的线程数
+     */
+    private final int parallelism;
+    /**
+     * 同时在处理的块数
+     */
+    private final int windowSize;
+    /**
+     * 限制同时在处理的块数
+     */
+    private final Semaphore window;
+    /**
+     * 等待按顺序交付的块，按块序号对windowSize取模存放
+     */
+    private final List<String>[] pending;
+    /**
+     * 下一个要交付的块序号
+     */
+    private long next;
+    /**
+     * 是否有线程在交付
+     */
+    private boolean delivering;
+    /**
+     * 第一个失败
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelLineReader(final FileChannel channel, final Charset charset, final LineHandler lineHandler,
+                       final boolean ordered, final int chunkSize) {
+        Assert.notNull(lineHandler, "line handler can't be null");
+        Assert.isTrue(chunkSize > 0, "chunk size must be greater than 0");
+        Assert.isTrue(isAsciiCompatible(charset), StringUtil.format("charset {} can't be split on line bytes", charset));
+        this.channel = channel;
+        this.charset = charset;
+        this.lineHandler = lineHandler;
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.windowSize = Math.max(2, parallelism * 2);
+        this.window = new Semaphore(windowSize);
+        if (ordered) {
+            @SuppressWarnings("unchecked")
+            final List<String>[] slots = (List<String>[]) new List<?>[windowSize];
+            this.pending = slots;
+        } else {
+            this.pending = null;
+        }
+    }
+
+    /**
+     * 换行符是否是单字节的\n、\r，且不会出现在多字节字符中
+     *
+     * @param charset 编码
+     * @return 是否可以按字节找换行符
+     */
+    static boolean isAsciiCompatible(final Charset charset) {
+        final byte[] bytes = "\r\n".getBytes(charset);
+        return bytes.length == 2 && bytes[0] == '\r' && bytes[1] == '\n';
+    }
+
+    /**
+     * 处理整个文件，调用线程负责切块和提交，等到所有行处理完才返回，返回前关闭线程池
+     */
+    void read() {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            read(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void read(final ForkJoinPool pool) {
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        try {
+            final long size = channel.size();
+            long start = 0;
+            for (long index = 0; start < size && Objects.isNull(failure.get()); index++) {
+                final long end = lineStart(Math.min(size, start + chunkSize), size);
+                Assert.isTrue(end - start <= Integer.MAX_VALUE, "line is too long to be mapped");
+                window.acquireUninterruptibly();
+                final long chunk = index;
+                final long from = start;
+                tasks.add(pool.submit(() -> process(chunk, from, end)));
+                start = end;
+            }
+        } catch (IOException e) {
+            abort(tasks, e);
+            throw new IORuntimeException(
+                    StringUtil.format("read lines from fileChannel failure,the reason is {}", e.getMessage()), e);
+        } catch (RuntimeException | Error e) {
+            abort(tasks, e);
+            throw e;
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * 切块失败时停止已提交的块：记录失败后未开始的块直接返回，已开始的等其结束，抛出后不会再调用行处理器
+     * <p>
+     * 不用cancel，取消后join立即返回，正在执行的块仍会在后台调用行处理器
+     *
+     * @param tasks 已提交的块
+     * @param e     异常
+     */
+    private void abort(final List<ForkJoinTask<?>> tasks, final Throwable e) {
+        fail(e);
+        for (ForkJoinTask<?> task : tasks) {
+            task.quietlyJoin();
+        }
+    }
+
+    /**
+     * 从position开始的第一个行首，即下一个\n之后的位置
+     *
+     * @param position 位置
+     * @param size     文件大小
+     * @return 行首的位置，没有换行符时为文件末尾
+     */
+    private long lineStart(long position, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 处理一块
+     *
+     * @param index 块序号
+     * @param start 起始位置
+     * @param end   结束位置
+     */
+    private void process(final long index, final long start, final long end) {
+        if (Objects.nonNull(failure.get())) {
+            return;
+        }
+        try {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            if (ordered) {
+                final List<String> lines = new ArrayList<>();
+                decode(buffer, lines::add);
+                deliver(index, lines);
+            } else {
+                decode(buffer, lineHandler);
+                window.release();
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw new IORuntimeException(
+                    StringUtil.format("read lines from fileChannel failure,the reason is {}", e.getMessage()), e);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 记录失败，放开所有许可，调用线程不再阻塞并停止提交
+     *
+     * @param e 异常
+     */
+    private void fail(final Throwable e) {
+        failure.compareAndSet(null, e);
+        window.release(windowSize);
+    }
+
+    /**
+     * 按块序号交付，之前的块都交付后依次交给行处理器
+     * <p>
+     * 同一时刻只有一个线程在交付，其他线程放下结果就返回，不会阻塞在行处理器上
+     *
+     * @param index 块序号
+     * @param lines 块中的行
+     */
+    private void deliver(final long index, final List<String> lines) {
+        synchronized (this) {
+            pending[(int) (index % windowSize)] = lines;
+            if (delivering) {
+                return;
+            }
+            delivering = true;
+        }
+        while (true) {
+            final List<String> ready;
+            synchronized (this) {
+                final int slot = (int) (next % windowSize);
+                ready = pending[slot];
+                if (Objects.isNull(ready) || Objects.nonNull(failure.get())) {
+                    delivering = false;
+                    return;
+                }
+                pending[slot] = null;
+            }
+            try {
+                for (String line : ready) {
+                    lineHandler.handle(line);
+                }
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    delivering = false;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                next++;
+            }
+            window.release();
+        }
+    }
+
+    /**
+     * 把一块解码成行
+     * <p>
+     * 分段批量复制到池化的数组中再找换行符，行直接从数组解码，跨段的行移到数组开头，行比数组长时扩容
+     *
+     * @param buffer  块
+     * @param handler 行处理器
+     */
+    private void decode(final ByteBuffer buffer, final LineHandler handler) {
+        byte[] bytes = ByteArrayPool.acquire(BATCH_SIZE);
+        try {
+            int length = 0;
+            int lineStart = 0;
+            boolean ascii = true;
+            boolean afterCr = false;
+            while (buffer.hasRemaining()) {
+                if (lineStart > 0) {
+                    // 没处理完的行移到开头
+                    System.arraycopy(bytes, lineStart, bytes, 0, length - lineStart);
+                    length -= lineStart;
+                    lineStart = 0;
+                } else if (length == bytes.length) {
+                    final byte[] larger = new byte[bytes.length << 1];
+                    System.arraycopy(bytes, 0, larger, 0, length);
+                    ByteArrayPool.release(bytes);
+                    bytes = larger;
+                }
+                final int scanFrom = length;
+                final int read = Math.min(bytes.length - length, buffer.remaining());
+                buffer.get(bytes, length, read);
+                length += read;
+                for (int i = scanFrom; i < length; i++) {
+                    final byte b = bytes[i];
+                    if (b == '\n' || b == '\r') {
+                        if (b == '\n' && afterCr) {
+                            // \r\n中的\n，\r已经结束了这一行
+                            lineStart = i + 1;
+                            afterCr = false;
+                            continue;
+                        }
+                        handler.handle(new String(bytes, lineStart, i - lineStart,
+                                ascii ? StandardCharsets.ISO_8859_1 : charset));
+                        lineStart = i + 1;
+                        ascii = true;
+                        afterCr = b == '\r';
+                    } else {
+                        afterCr = false;
+                        if (b < 0) {
+                            ascii = false;
+                        }
+                    }
+                }
+            }
+            if (lineStart < length) {
+                handler.handle(new String(bytes, lineStart, length - lineStart,
+                        ascii ? StandardCharsets.ISO_8859_1 : charset));
+            }
+        } finally {
+            ByteArrayPool.release(bytes);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.star.io.file;
+
+import com.star.exception.IORuntimeException;
+import com.star.lang.Filter;
+import com.star.string.StringUtil;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 并行遍历目录树，边遍历边交付文件，不收集成列表
+ * <p>
+ * 每个目录一个任务，在本次遍历独占的{@link ForkJoinPool}中执行，子目录拆成子任务，空闲线程窃取任务，
+ * 扇出大、层级深、单次列目录慢(如NFS)的目录树可以同时列多个目录<br>
+ * 列目录和文件处理器(如删除文件)都会阻塞，不使用{@link ForkJoinPool#commonPool()}，不影响并行流等共用公共池的任务；
+ * 线程数为核数的2倍(至少4个)，阻塞在IO上时其他线程仍可列目录，遍历结束时关闭线程池<br>
+ * 目录过滤器在进入目录前调用，不通过的整棵子树都不会被列出；不跟随符号链接，与{@link Files#walkFileTree}的默认行为相同<br>
+ * 列出后、读取属性前已被删除的文件直接跳过，其他IO异常抛出{@link IORuntimeException}
+ *
+ * @author starhq
+ */
+final class FileWalker {
+
+    /**
+     * 流模式下缓冲的路径数，遍历比消费快时遍历线程等待
+     */
+    private static final int QUEUE_CAPACITY = 1024;
+    /**
+     * 流模式下遍历线程等待消费的间隔，每次等待后检查流是否已关闭
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    /**
+     * 流模式下表示遍历结束的标记
+     */
+    private static final Object END = new Object();
+    /**
+     * 遍历线程数，列目录以IO为主，多于核数
+     */
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 根目录
+     */
+    private final Path root;
+    /**
+     * 文件过滤器，为null时接受所有文件
+     */
+    private final Filter<Path> fileFilter;
+    /**
+     * 目录过滤器，为null时进入所有目录
+     */
+    private final Filter<Path> directoryFilter;
+    /**
+     * 是否已取消
+     */
+    private volatile boolean cancelled;
+
+    FileWalker(final Path root, final Filter<Path> fileFilter, final Filter<Path> directoryFilter) {
+        this.root = Objects.requireNonNull(root);
+        this.fileFilter = fileFilter;
+        this.directoryFilter = directoryFilter;
+    }
+
+    /**
+     * 并行遍历，找到文件就交给action，多个线程并发调用action，遍历完才返回
+     *
+     * @param action 文件处理
+     */
+    void walk(final Consumer<Path> action) {
+        final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            walk(action, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void walk(final Consumer<Path> action, final ForkJoinPool pool) {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("get path {}'s file failure,the reason is {}", root, e.getMessage()), e);
+        }
+        if (!attrs.isDirectory()) {
+            if (accept(fileFilter, root)) {
+                action.accept(root);
+            }
+        } else if (accept(directoryFilter, root)) {
+            pool.invoke(new WalkTask(root, action));
+        }
+    }
+
+    /**
+     * 惰性的文件流，后台并行遍历，找到的文件经有界队列交给流，第一个文件不必等遍历完
+     * <p>
+     * 遍历同样在流独占的{@link ForkJoinPool}中执行，队列满时遍历线程等待消费，
+     * 在公共池的线程中消费也不会死锁；遍历结束或流关闭时关闭线程池<br>
+     * 流须关闭(try-with-resources)，提前结束时关闭流会停止遍历；遍历中的异常在消费到该位置时抛出
+     *
+     * @return 文件流
+     */
+    Stream<Path> stream() {
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        pool.execute(() -> {
+            Object end = END;
+            try {
+                walk(path -> put(queue, path), pool);
+            } catch (RuntimeException | Error e) {
+                end = e;
+            }
+            put(queue, end);
+            pool.shutdown();
+        });
+        final Iterator<Path> iterator = new Iterator<Path>() {
+
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (Objects.isNull(next)) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IORuntimeException(
+                                StringUtil.format("walk {} interrupted", root), e);
+                    }
+                }
+                if (next instanceof RuntimeException) {
+                    throw (RuntimeException) next;
+                }
+                if (next instanceof Error) {
+                    throw (Error) next;
+                }
+                return next != END;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Path path = (Path) next;
+                next = null;
+                return path;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(() -> {
+            cancelled = true;
+            pool.shutdownNow();
+            queue.clear();
+        });
+    }
+
+    /**
+     * 放入队列，队列满时等待，流关闭后放弃
+     *
+     * @param queue 队列
+     * @param item  路径或结束标记
+     */
+    private void put(final BlockingQueue<Object> queue, final Object item) {
+        try {
+            while (!cancelled && !queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // 等待消费
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    private static boolean accept(final Filter<Path> filter, final Path path) {
+        return Objects.isNull(filter) || filter.accept(path);
+    }
+
+    /**
+     * 遍历一个目录：文件直接交付，子目录拆成子任务
+     */
+    private final class WalkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path dir;
+        private final transient Consumer<Path> action;
+
+        WalkTask(final Path dir, final Consumer<Path> action) {
+            this.dir = dir;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            final List<ForkJoinTask<Void>> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (cancelled) {
+                        break;
+                    }
+                    final BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        if (accept(directoryFilter, entry)) {
+                            subtasks.add(new WalkTask(entry, action).fork());
+                        }
+                    } else if (accept(fileFilter, entry)) {
+                        action.accept(entry);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // 目录在列出前已被删除
+            } catch (IOException e) {
+                throw new IORuntimeException(
+                        StringUtil.format("get path {}'s file failure,the reason is {}", dir, e.getMessage()), e);
+            } finally {
+                for (int i = subtasks.size() - 1; i >= 0; i--) {
+                    subtasks.get(i).join();
+                }
+            }
+        }
+    }
+}
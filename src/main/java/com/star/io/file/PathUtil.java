@@ -2,6 +2,8 @@ package com.star.io.file;
 
 import com.star.collection.array.ArrayUtil;
 import com.star.exception.IORuntimeException;
+import com.star.hash.HashUtil;
+import com.star.hash.StreamingHasher;
 import com.star.io.CharsetUtil;
 import com.star.io.IoUtil;
 import com.star.io.file.filevisitor.CopyDirVisitor;
@@ -24,6 +26,9 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -38,6 +43,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 路径工具类
@@ -46,6 +55,11 @@ import java.util.Objects;
  */
 public final class PathUtil {
 
+    /**
+     * 单次映射的最大字节数
+     */
+    private static final long MAX_MAP_SIZE = 1L << 30;
+
     private PathUtil() {
     }
 
@@ -82,9 +96,12 @@ public final class PathUtil {
 
     /**
      * 获取目录下的所有文件
+     * <p>
+     * 单线程遍历完才返回，文件很多时使用{@link #walkFiles(Path, Filter, Filter, Consumer)}或
+     * {@link #streamFiles(Path, Filter, Filter)}
      *
      * @param path            目录
-     * @param fileFilter      文件过滤器
+     * @param fileFilter      文件过滤器，为null时接受所有文件
      * @param directoryFilter 目录过滤器
      * @return 符合条件的过滤器
      */
@@ -113,7 +130,7 @@ public final class PathUtil {
                  */
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    if (Objects.requireNonNull(fileFilter).accept(file)) {
+                    if (Objects.isNull(fileFilter) || fileFilter.accept(file)) {
                         paths.add(file);
                     }
                     return FileVisitResult.CONTINUE;
@@ -126,6 +143,39 @@ public final class PathUtil {
         return paths;
     }
 
+    /**
+     * 并行遍历目录下的所有文件，找到一个就交给处理器，不收集成列表
+     * <p>
+     * 每个目录一个任务，在本次调用独占的线程池中执行，空闲线程窃取子目录任务，列目录和处理器阻塞时不占用公共池；
+     * 目录过滤器不通过的整棵子树都不会被列出，不跟随符号链接；遍历完才返回<br>
+     * 处理器由多个线程并发调用，须线程安全
+     *
+     * @param path            目录
+     * @param fileFilter      文件过滤器，为null时接受所有文件
+     * @param directoryFilter 目录过滤器，为null时进入所有目录
+     * @param action          文件处理器
+     */
+    public static void walkFiles(final Path path, final Filter<Path> fileFilter, final Filter<Path> directoryFilter,
+                                 final Consumer<Path> action) {
+        new FileWalker(path, fileFilter, directoryFilter).walk(Objects.requireNonNull(action));
+    }
+
+    /**
+     * 目录下所有文件的惰性流，后台并行遍历，第一个文件不必等遍历完，顺序不确定
+     * <p>
+     * 遍历方式同{@link #walkFiles(Path, Filter, Filter, Consumer)}，线程池由流独占；
+     * 找到的文件经有界队列交给流，消费慢时遍历等待；流须关闭，提前结束时关闭流会停止遍历并关闭线程池
+     *
+     * @param path            目录
+     * @param fileFilter      文件过滤器，为null时接受所有文件
+     * @param directoryFilter 目录过滤器，为null时进入所有目录
+     * @return 文件流
+     */
+    public static Stream<Path> streamFiles(final Path path, final Filter<Path> fileFilter,
+                                           final Filter<Path> directoryFilter) {
+        return new FileWalker(path, fileFilter, directoryFilter).stream();
+    }
+
     /**
      * 判断path是否存在
      *
@@ -547,6 +597,36 @@ public final class PathUtil {
         }
     }
 
+    /**
+     * 以内存映射的方式多核并行按行处理UTF-8文件，见{@link IoUtil#parallelReadLines(FileChannel, Charset, LineHandler, boolean, int)}
+     *
+     * @param path        文件
+     * @param lineHandler 行处理器，ordered为false时须线程安全
+     * @param ordered     是否按文件中的顺序逐行交给行处理器
+     */
+    public static void parallelReadUTF8Lines(final Path path, final LineHandler lineHandler, final boolean ordered) {
+        parallelReadLines(path, CharsetUtil.CHARSET_UTF_8, lineHandler, ordered);
+    }
+
+    /**
+     * 以内存映射的方式多核并行按行处理文件，适合单线程读取成为瓶颈的大文件，
+     * 见{@link IoUtil#parallelReadLines(FileChannel, Charset, LineHandler, boolean, int)}
+     *
+     * @param path        文件
+     * @param charset     编码，须ASCII兼容，如UTF-8、GBK
+     * @param lineHandler 行处理器，ordered为false时须线程安全
+     * @param ordered     是否按文件中的顺序逐行交给行处理器
+     */
+    public static void parallelReadLines(final Path path, final Charset charset, final LineHandler lineHandler,
+                                         final boolean ordered) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            IoUtil.parallelReadLines(channel, charset, lineHandler, ordered);
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("red {}'s line by line and handle it failure,the reason is: {}", path, e.getMessage()), e);
+        }
+    }
+
     /**
      * 从文件中读取每一行数据
      *
@@ -779,4 +859,129 @@ public final class PathUtil {
                     StringUtil.format("url to path failure,the reason is: {}", e.getMessage()), e);
         }
     }
+
+    /**
+     * 以内存映射的方式计算文件的xxHash64，文件内容不读入堆内存，结果与整个文件读成byte[]后计算相同
+     *
+     * @param path 文件
+     * @return hash值
+     */
+    public static long xxHash64(final Path path) {
+        return hash(path, StreamingHasher.xxHash64());
+    }
+
+    /**
+     * 以内存映射的方式增量计算文件的hash
+     *
+     * @param path   文件
+     * @param hasher 增量hash，从当前状态继续输入
+     * @return hash值
+     */
+    public static long hash(final Path path, final StreamingHasher hasher) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += MAX_MAP_SIZE) {
+                hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAX_MAP_SIZE, size - position)));
+            }
+            return hasher.finish();
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("hash file {} failure,the reason is: {}", path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 多核并行计算大文件的hash
+     * <p>
+     * 文件按chunkSize切块，各块以内存映射的方式在本次调用独占的线程池中并行计算xxHash64，
+     * 再按二叉树两两合并(合并值为左右两个hash拼成16字节后的xxHash64)<br>
+     * 读取映射时的缺页会阻塞线程，不使用{@link ForkJoinPool#commonPool()}，计算几个G的文件也不会拖住公共池中的其他任务<br>
+     * 结果取决于chunkSize，同一文件须使用相同的chunkSize比较；文件不超过一块时结果与{@link #xxHash64(Path)}相同
+     *
+     * @param path      文件
+     * @param chunkSize 块大小
+     * @return hash值
+     */
+    public static long parallelXxHash64(final Path path, final int chunkSize) {
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return parallelXxHash64(path, chunkSize, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 在指定的线程池中多核并行计算大文件的hash，算法同{@link #parallelXxHash64(Path, int)}
+     * <p>
+     * 多个文件共用一个线程池时使用，线程池由调用方管理
+     *
+     * @param path      文件
+     * @param chunkSize 块大小
+     * @param pool      线程池
+     * @return hash值
+     */
+    public static long parallelXxHash64(final Path path, final int chunkSize, final ForkJoinPool pool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be greater than 0");
+        }
+        Objects.requireNonNull(pool);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            return pool.invoke(new ChunkHashTask(channel, path, size, chunkSize, 0, chunks));
+        } catch (IOException e) {
+            throw new IORuntimeException(
+                    StringUtil.format("hash file {} failure,the reason is: {}", path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 计算[from, to)之间的块的hash，只有一块时直接计算，否则拆成两半后合并
+     */
+    private static final class ChunkHashTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final transient Path path;
+        private final long size;
+        private final int chunkSize;
+        private final long from;
+        private final long to;
+
+        ChunkHashTask(final FileChannel channel, final Path path, final long size, final int chunkSize,
+                      final long from, final long to) {
+            this.channel = channel;
+            this.path = path;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from == 1) {
+                final long position = from * chunkSize;
+                try {
+                    return HashUtil.xxHash64(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(chunkSize, size - position)));
+                } catch (IOException e) {
+                    throw new IORuntimeException(
+                            StringUtil.format("hash file {} failure,the reason is: {}", path, e.getMessage()), e);
+                }
+            }
+            final long middle = (from + to) >>> 1;
+            final ChunkHashTask left = new ChunkHashTask(channel, path, size, chunkSize, from, middle);
+            final ChunkHashTask right = new ChunkHashTask(channel, path, size, chunkSize, middle, to);
+            right.fork();
+            final long leftHash = left.compute();
+            final long rightHash = right.join();
+            final ByteBuffer pair = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            pair.putLong(leftHash).putLong(rightHash).flip();
+            return HashUtil.xxHash64(pair);
+        }
+    }
 }
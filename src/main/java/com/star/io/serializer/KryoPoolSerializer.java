@@ -26,7 +26,7 @@ public class KryoPoolSerializer implements Serializer {
     public byte[] serialize(Object obj) {
         final KryoPool pool = KryoPoolSingleton.getInstance().getKryoPool();
         final Kryo kryo = pool.borrow();
-        try (FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream(); Output output = new Output(fbaos)) {
+        try (FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream(1024, true); Output output = new Output(fbaos)) {
             kryo.writeClassAndObject(output, Objects.requireNonNull(obj));
             output.flush();
             pool.release(kryo);
@@ -28,8 +28,8 @@ public class KryoSerializer implements Serializer {
 
     @Override
     public byte[] serialize(Object obj) {
-        final FastByteArrayOutputStream baos = new FastByteArrayOutputStream();
-        try (Output output = new Output(baos)) {
+        try (FastByteArrayOutputStream baos = new FastByteArrayOutputStream(1024, true);
+             Output output = new Output(baos)) {
             KRYOS.get().writeClassAndObject(output, obj);
             output.flush();
             return baos.toByteArray();
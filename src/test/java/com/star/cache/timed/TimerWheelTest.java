@@ -0,0 +1,62 @@
+package com.star.cache.timed;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimerWheelTest {
+
+    private static final long START = 1L << 40;
+    /**
+     * 最细一层桶的跨度，到期后最多推迟这么久
+     */
+    private static final long TICK = 1L << 10;
+
+    private static TimerWheel.TimerNode<String> node(String item, long deadline) {
+        TimerWheel.TimerNode<String> node = new TimerWheel.TimerNode<>(item);
+        node.deadline = deadline;
+        return node;
+    }
+
+    @Test
+    public void testAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        wheel.schedule(node("second", START + 2_000));
+        wheel.schedule(node("hour", START + 3_600_000));
+        List<String> expired = new ArrayList<>();
+        wheel.advance(START + 1_999, node -> expired.add(node.item));
+        Assert.assertTrue(expired.isEmpty());
+        wheel.advance(START + 2_000 + TICK, node -> expired.add(node.item));
+        Assert.assertEquals(1, expired.size());
+        wheel.advance(START + 3_600_000 + TICK, node -> expired.add(node.item));
+        Assert.assertEquals(2, expired.size());
+        Assert.assertEquals("hour", expired.get(1));
+    }
+
+    @Test
+    public void testAdvanceBackward() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        wheel.advance(START + 10_000, node -> true);
+        wheel.schedule(node("key", START + 12_000));
+        List<String> expired = new ArrayList<>();
+        // 其他线程取到的较早的时间既不回退时间轮也不触发过期
+        wheel.advance(START, node -> expired.add(node.item));
+        wheel.advance(START - 3_600_000, node -> expired.add(node.item));
+        Assert.assertTrue(expired.isEmpty());
+
+        // 回退的时间之后仍按原来的到期时间过期，不提前，最多推迟一个刻度
+        wheel.advance(START + 11_999, node -> expired.add(node.item));
+        Assert.assertTrue(expired.isEmpty());
+        wheel.advance(START + 12_000 + TICK, node -> expired.add(node.item));
+        Assert.assertEquals(1, expired.size());
+
+        // 回退后调度的节点按未回退的时间放入桶中
+        wheel.schedule(node("late", START + 13_000));
+        wheel.advance(START, node -> expired.add(node.item));
+        wheel.advance(START + 13_000 + TICK, node -> expired.add(node.item));
+        Assert.assertEquals(2, expired.size());
+        Assert.assertEquals("late", expired.get(1));
+    }
+}
@@ -0,0 +1,152 @@
+package com.star.test;
+
+import com.star.extra.BloomFilter;
+import com.star.extra.CountingBloomFilter;
+import com.star.io.serializer.JavaSerializer;
+import com.star.io.serializer.Serializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BloomFilterTest {
+
+    private static final int INSERTIONS = 200_000;
+
+    private static double falsePositiveRate(BloomFilter filter) {
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (filter.mightContain("absent:" + i)) {
+                falsePositives++;
+            }
+        }
+        return (double) falsePositives / INSERTIONS;
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        for (double fpp : new double[]{0.01, 0.001}) {
+            for (boolean offHeap : new boolean[]{false, true}) {
+                BloomFilter filter = new BloomFilter(INSERTIONS, fpp, offHeap);
+                for (int i = 0; i < INSERTIONS; i++) {
+                    filter.put("key:" + i);
+                }
+                for (int i = 0; i < INSERTIONS; i++) {
+                    Assert.assertTrue(filter.mightContain("key:" + i));
+                }
+                double rate = falsePositiveRate(filter);
+                System.out.println(String.format("fpp %.3f offHeap %s: bits %d, hashes %d, actual %.4f, expected %.4f",
+                        fpp, offHeap, filter.getBitSize(), filter.getHashCount(), rate, filter.expectedFpp()));
+                Assert.assertTrue(rate < fpp * 1.3);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentPut() throws InterruptedException {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            BloomFilter filter = new BloomFilter(INSERTIONS, 0.01, offHeap);
+            Thread[] workers = new Thread[8];
+            for (int t = 0; t < workers.length; t++) {
+                int start = t;
+                workers[t] = new Thread(() -> {
+                    for (int i = start; i < INSERTIONS; i += workers.length) {
+                        filter.put("key:" + i);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            // 并发置位不能丢位
+            for (int i = 0; i < INSERTIONS; i++) {
+                Assert.assertTrue(filter.mightContain("key:" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(("key:" + i).getBytes());
+        }
+        Serializer serializer = new JavaSerializer();
+        BloomFilter copy = (BloomFilter) serializer.deserialize(serializer.serialize(filter));
+        BloomFilter restored = BloomFilter.fromBytes(filter.toBytes());
+        Path file = Files.createTempFile("bloom", ".bin");
+        try {
+            filter.writeTo(file);
+            BloomFilter offHeap = BloomFilter.readFrom(file, true);
+            for (BloomFilter other : new BloomFilter[]{copy, restored, offHeap}) {
+                Assert.assertEquals(filter.getBitSize(), other.getBitSize());
+                Assert.assertEquals(filter.getHashCount(), other.getHashCount());
+                Assert.assertEquals(filter.bitCount(), other.bitCount());
+                for (int i = 0; i < 10_000; i++) {
+                    Assert.assertTrue(other.mightContain(("key:" + i).getBytes()));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        BloomFilter merged = new BloomFilter(10_000, 0.01);
+        merged.put("other");
+        merged.putAll(filter);
+        Assert.assertTrue(merged.bitCount() >= filter.bitCount());
+        Assert.assertTrue(merged.bitCount() <= filter.bitCount() + filter.getHashCount());
+        Assert.assertTrue(merged.mightContain("other") && merged.mightContain("key:1".getBytes()));
+    }
+
+    @Test
+    public void testCounting() throws Exception {
+        CountingBloomFilter filter = new CountingBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("key:" + i);
+        }
+        // 删除一半后另一半仍然存在
+        for (int i = 0; i < INSERTIONS; i += 2) {
+            Assert.assertTrue(filter.remove("key:" + i));
+        }
+        int stillPresent = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (i % 2 == 1) {
+                Assert.assertTrue(filter.mightContain("key:" + i));
+            } else if (filter.mightContain("key:" + i)) {
+                stillPresent++;
+            }
+        }
+        System.out.println(String.format("counting: %d of %d removed keys still reported present",
+                stillPresent, INSERTIONS / 2));
+        Assert.assertTrue(stillPresent < INSERTIONS / 2 * 0.01 * 1.3);
+
+        // 饱和后删除不会产生假阴性
+        CountingBloomFilter small = new CountingBloomFilter(100, 0.01);
+        for (int i = 0; i < 20; i++) {
+            small.put("hot");
+        }
+        for (int i = 0; i < 20; i++) {
+            small.remove("hot");
+        }
+        Assert.assertTrue(small.mightContain("hot"));
+        Assert.assertFalse(small.remove("never"));
+
+        Serializer serializer = new JavaSerializer();
+        CountingBloomFilter copy = (CountingBloomFilter) serializer.deserialize(serializer.serialize(filter));
+        Path file = Files.createTempFile("counting-bloom", ".bin");
+        try {
+            filter.writeTo(file);
+            for (CountingBloomFilter other : new CountingBloomFilter[]{copy, CountingBloomFilter.readFrom(file),
+                    CountingBloomFilter.fromBytes(filter.toBytes())}) {
+                for (int i = 1; i < INSERTIONS; i += 2) {
+                    Assert.assertTrue(other.mightContain("key:" + i));
+                }
+                Assert.assertTrue(other.remove("key:1"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.star.test;
+
+import com.star.extra.BoundedPriorityQueue;
+import com.star.extra.DoubleBoundedPriorityQueue;
+import com.star.extra.LongBoundedPriorityQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BoundedPriorityQueueTest {
+
+    @Test
+    public void testKeepsSmallest() {
+        BoundedPriorityQueue<Integer> queue = new BoundedPriorityQueue<>(5);
+        queue.addAll(6, 1, 9, 3, 7, 2, 8);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 6, 7), queue.toList());
+        // 满时被拒绝的元素不会挤掉已有元素
+        Assert.assertFalse(queue.offer(100));
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(Integer.valueOf(7), queue.peek());
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 6, 7), queue.toList());
+
+        BoundedPriorityQueue<String> longest = new BoundedPriorityQueue<>(2,
+                Comparator.comparingInt(String::length).reversed());
+        longest.addAll("a", "abcd", "ab", "abc");
+        Assert.assertEquals(Arrays.asList("abcd", "abc"), longest.toList());
+        Assert.assertEquals("abc", longest.poll());
+        Assert.assertEquals("abcd", longest.poll());
+        Assert.assertNull(longest.poll());
+    }
+
+    @Test
+    public void testRandomAgainstSort() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            int capacity = 1 + random.nextInt(50);
+            int[] data = random.ints(random.nextInt(300), 0, 1000).toArray();
+            BoundedPriorityQueue<Integer> queue = new BoundedPriorityQueue<>(capacity);
+            LongBoundedPriorityQueue<Integer> longQueue = new LongBoundedPriorityQueue<>(capacity);
+            DoubleBoundedPriorityQueue<Integer> doubleQueue = new DoubleBoundedPriorityQueue<>(capacity);
+            for (int value : data) {
+                queue.offer(value);
+                longQueue.offer(value, value);
+                doubleQueue.offer(value, value);
+            }
+            int[] sorted = Arrays.stream(data).sorted().toArray();
+            int count = Math.min(capacity, data.length);
+            List<Integer> smallest = new ArrayList<>();
+            List<Integer> largest = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                smallest.add(sorted[i]);
+                largest.add(sorted[data.length - 1 - i]);
+            }
+            Assert.assertEquals(smallest, queue.toList());
+            Assert.assertEquals(largest, longQueue.toList());
+            Assert.assertEquals(largest, doubleQueue.toList());
+            Assert.assertArrayEquals(largest.stream().mapToLong(Integer::longValue).toArray(),
+                    longQueue.toScoreArray());
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        int[] data = new Random(2).ints(100_000).toArray();
+        LongBoundedPriorityQueue<String>[] locals = new LongBoundedPriorityQueue[4];
+        for (int t = 0; t < locals.length; t++) {
+            locals[t] = new LongBoundedPriorityQueue<>(10);
+            for (int i = t; i < data.length; i += locals.length) {
+                locals[t].offer(data[i], "item" + i);
+            }
+        }
+        LongBoundedPriorityQueue<String> merged = new LongBoundedPriorityQueue<>(10);
+        for (LongBoundedPriorityQueue<String> local : locals) {
+            merged.merge(local);
+        }
+        long[] expected = Arrays.stream(data).sorted().skip(data.length - 10).mapToLong(i -> i).toArray();
+        long[] actual = merged.toScoreArray();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(expected[9 - i], actual[i]);
+        }
+
+        BoundedPriorityQueue<Integer> parallel = IntStream.of(data).boxed().parallel()
+                .collect(BoundedPriorityQueue.collector(10, Comparator.reverseOrder()));
+        Assert.assertEquals(Arrays.stream(data).boxed().sorted(Comparator.reverseOrder()).limit(10)
+                .collect(Collectors.toList()), parallel.toList());
+    }
+
+    @Test
+    public void testThroughput() {
+        long[] data = new Random(3).longs(2_000_000).toArray();
+        Long[] boxed = Arrays.stream(data).boxed().toArray(Long[]::new);
+        long sink = 0;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            PriorityQueue<Long> old = new PriorityQueue<>(100);
+            for (Long value : boxed) {
+                // 原先的实现：满时先出队再入队
+                if (old.size() >= 100) {
+                    old.poll();
+                }
+                old.offer(value);
+            }
+            long oldTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            BoundedPriorityQueue<Long> queue = new BoundedPriorityQueue<>(100, Comparator.reverseOrder());
+            for (Long value : boxed) {
+                queue.offer(value);
+            }
+            long heapTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            LongBoundedPriorityQueue<Object> longQueue = new LongBoundedPriorityQueue<>(100);
+            for (long value : data) {
+                longQueue.offer(value);
+            }
+            long longTime = System.nanoTime() - start;
+            sink += old.size() + queue.size() + longQueue.size();
+            System.out.println(String.format("top-100 of 2M: poll+offer %d ms, bounded heap %d ms, long heap %d ms",
+                    oldTime / 1_000_000, heapTime / 1_000_000, longTime / 1_000_000));
+        }
+        Assert.assertEquals(600, sink);
+    }
+}
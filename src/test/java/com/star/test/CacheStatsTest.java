@@ -0,0 +1,71 @@
+package com.star.test;
+
+import com.star.cache.LoadingCache;
+import com.star.cache.simple.SimpleCache;
+import com.star.cache.stats.CacheStats;
+import com.star.cache.stats.ConcurrentStatsCounter;
+import com.star.cache.stats.StatsCache;
+import com.star.cache.stats.StatsCounter;
+import com.star.cache.loading.DefaultLoadingCache;
+import com.star.cache.tinylfu.TinyLfuCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CacheStatsTest {
+
+    private static int measurements = 5; // 测量次数
+
+    private static int operations = 2_000_000; // 每次测量执行次数
+
+    @Test
+    public void testStats() {
+        StatsCounter counter = new ConcurrentStatsCounter();
+        LoadingCache<Integer, Integer> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(10, counter),
+                key -> key, 0, TimeUnit.MILLISECONDS, Runnable::run, counter);
+        for (int i = 0; i < 100; i++) {
+            cache.get(i);
+        }
+        cache.get(99);
+
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(101, stats.requestCount());
+        Assert.assertEquals(1, stats.hitCount());
+        Assert.assertEquals(100, stats.loadSuccessCount());
+        Assert.assertEquals(90, stats.evictionCount());
+        Assert.assertTrue(stats.loadTimePercentile(0.99d) >= stats.loadTimePercentile(0.5d));
+        System.out.println(stats);
+    }
+
+    @Test
+    public void testStatsDecorator() {
+        StatsCache<String, String> cache = new StatsCache<>(new SimpleCache<>());
+        cache.put("key", "value");
+        cache.get("key");
+        cache.get("absent");
+        Assert.assertEquals(0.5d, cache.stats().hitRate(), 0.0001d);
+        Assert.assertEquals(CacheStats.EMPTY, new SimpleCache<>().stats());
+    }
+
+    @Test
+    public void testOverhead() {
+        TinyLfuCache<Integer, Integer> disabled = new TinyLfuCache<>(1024);
+        TinyLfuCache<Integer, Integer> enabled = new TinyLfuCache<>(1024, new ConcurrentStatsCounter());
+        for (int i = 0; i < 1024; i++) {
+            disabled.put(i, i);
+            enabled.put(i, i);
+        }
+        for (int m = 0; m < measurements; m++) {
+            System.out.println(String.format("stats off: %d ms, stats on: %d ms", run(disabled), run(enabled)));
+        }
+    }
+
+    private static long run(TinyLfuCache<Integer, Integer> cache) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            cache.get(i & 1023);
+        }
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+}
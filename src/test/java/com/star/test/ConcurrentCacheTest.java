@@ -0,0 +1,84 @@
+package com.star.test;
+
+import com.star.cache.Cache;
+import com.star.cache.concurrent.ConcurrentCache;
+import com.star.cache.simple.SimpleCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentCacheTest {
+
+    private static int threads = 64; // 线程数
+
+    private static int operations = 20_000; // 每个线程执行次数
+
+    private static int keySpace = 1024; // 键空间
+
+    @Test
+    public void testOperations() {
+        ConcurrentCache<String, String> cache = new ConcurrentCache<>();
+        String key = new String("key");
+        Assert.assertEquals("value", cache.put(key, "value"));
+        Assert.assertEquals("value", cache.get(new String("key")));
+        Assert.assertEquals("value", cache.remove("key"));
+        Assert.assertNull(cache.get(key));
+
+        cache.put(key, "value");
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentReadWrite() throws InterruptedException {
+        Integer[] keys = keys();
+        long simple = run(new SimpleCache<>(), keys);
+        long concurrent = run(new ConcurrentCache<>(), keys);
+        System.out.println(String.format("%d threads, 90%% read: simple %d ms, concurrent %d ms", threads, simple, concurrent));
+    }
+
+    private static Integer[] keys() {
+        Integer[] keys = new Integer[keySpace];
+        for (int i = 0; i < keySpace; i++) {
+            keys[i] = i;
+        }
+        return keys;
+    }
+
+    private static long run(Cache<Integer, Integer> cache, Integer[] keys) throws InterruptedException {
+        for (Integer key : keys) {
+            cache.put(key, key);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger misses = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < operations; i++) {
+                        Integer key = keys[random.nextInt(keySpace)];
+                        if (random.nextInt(10) == 0) {
+                            cache.put(key, key);
+                        } else if (!key.equals(cache.get(key))) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        Assert.assertEquals(0, misses.get());
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+}
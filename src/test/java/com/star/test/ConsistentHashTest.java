@@ -0,0 +1,168 @@
+package com.star.test;
+
+import com.star.extra.ConsistentHash;
+import com.star.hash.HashUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class ConsistentHashTest {
+
+    private static List<String> nodes(int count) {
+        List<String> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add("10.0." + (i >> 8) + "." + (i & 255) + ":11211");
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testSameAsTreeMap() {
+        List<String> nodes = nodes(50);
+        ConsistentHash<String> hash = new ConsistentHash<>(160, nodes);
+        TreeMapConsistentHash baseline = new TreeMapConsistentHash(160, nodes);
+        Assert.assertEquals(baseline.circle.size(), hash.size());
+
+        hash.remove(nodes.get(7));
+        baseline.remove(nodes.get(7));
+        hash.add("10.1.0.1:11211");
+        baseline.add("10.1.0.1:11211");
+        Assert.assertEquals(baseline.circle.size(), hash.size());
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String key = "key" + random.nextInt();
+            Assert.assertEquals(baseline.get(key), hash.get(key));
+        }
+
+        for (String node : nodes) {
+            hash.remove(node);
+        }
+        hash.remove("10.1.0.1:11211");
+        Assert.assertEquals(0, hash.size());
+        Assert.assertNull(hash.get("key"));
+    }
+
+    @Test
+    public void testReweight() {
+        List<String> nodes = nodes(20);
+        ConsistentHash<String> hash = new ConsistentHash<>(160, nodes);
+        ConsistentHash<String> expected = new ConsistentHash<>(160, nodes);
+        final int size = hash.size();
+        hash.add("10.1.0.1:11211", 3);
+        hash.add("10.1.0.1:11211", 1);
+        expected.add("10.1.0.1:11211", 1);
+        // 降权后旧的虚拟节点不再留在环上
+        Assert.assertEquals(expected.size(), hash.size());
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            String key = "key" + random.nextInt();
+            Assert.assertEquals(expected.get(key), hash.get(key));
+        }
+        hash.remove("10.1.0.1:11211");
+        Assert.assertEquals(size, hash.size());
+    }
+
+    @Test
+    public void testConcurrentUpdate() throws InterruptedException {
+        List<String> nodes = nodes(100);
+        ConsistentHash<String> hash = new ConsistentHash<>(160, nodes);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                hash.remove(nodes.get(i % 100));
+                hash.add(nodes.get(i % 100));
+            }
+        });
+        writer.start();
+        // 写入期间查找始终能得到节点
+        while (writer.isAlive()) {
+            Assert.assertNotNull(hash.get("key" + System.nanoTime()));
+        }
+        writer.join();
+        Assert.assertEquals(100 * 160, hash.size());
+    }
+
+    @Test
+    public void testLookupThroughput() {
+        // 1000个节点，每个160个虚拟节点
+        List<String> nodes = nodes(1000);
+        long start = System.nanoTime();
+        ConsistentHash<String> hash = new ConsistentHash<>(160, nodes);
+        long build = System.nanoTime() - start;
+        start = System.nanoTime();
+        TreeMapConsistentHash baseline = new TreeMapConsistentHash(160, nodes);
+        long baselineBuild = System.nanoTime() - start;
+        System.out.println(String.format("build 160000 points: array %d ms, TreeMap %d ms",
+                build / 1_000_000, baselineBuild / 1_000_000));
+
+        Integer[] keys = new Integer[1 << 16];
+        Random random = new Random(2);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt();
+        }
+        int rounds = 10;
+        long sink = 0;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Integer key : keys) {
+                    sink += hash.get(key).length();
+                }
+            }
+            long array = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Integer key : keys) {
+                    sink += baseline.get(key).length();
+                }
+            }
+            long tree = System.nanoTime() - start;
+            long lookups = (long) rounds * keys.length;
+            System.out.println(String.format("ns/lookup array: %d, TreeMap: %d",
+                    array / lookups, tree / lookups));
+        }
+        Assert.assertTrue(sink > 0);
+    }
+
+    /**
+     * 原先基于TreeMap的实现，作为对比
+     */
+    private static class TreeMapConsistentHash {
+
+        private final int numberOfReplicas;
+        private final SortedMap<Integer, String> circle = new TreeMap<>();
+
+        TreeMapConsistentHash(int numberOfReplicas, List<String> nodes) {
+            this.numberOfReplicas = numberOfReplicas;
+            for (String node : nodes) {
+                add(node);
+            }
+        }
+
+        void add(String node) {
+            for (int i = 0; i < numberOfReplicas; i++) {
+                circle.put(HashUtil.fnvHash(node + i), node);
+            }
+        }
+
+        void remove(String node) {
+            for (int i = 0; i < numberOfReplicas; i++) {
+                circle.remove(HashUtil.fnvHash(node + i));
+            }
+        }
+
+        String get(Object key) {
+            int hash = HashUtil.fnvHash(key.toString());
+            if (!circle.containsKey(hash)) {
+                SortedMap<Integer, String> tailMap = circle.tailMap(hash);
+                hash = tailMap.isEmpty() ? circle.firstKey() : tailMap.firstKey();
+            }
+            return circle.get(hash);
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.star.test;
 
 import com.star.io.FastByteArrayOutputStream;
+import com.star.io.FastByteBuffer;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
 
 public class FastByteArrayOutputStreamTest {
 
@@ -14,4 +26,171 @@ public class FastByteArrayOutputStreamTest {
         faos.write(bytes);
         System.out.println(faos.toString());
     }
+
+    @Test
+    public void testPooled() {
+        final byte[] data = new byte[300_000];
+        new Random(1).nextBytes(data);
+        for (int round = 0; round < 3; round++) {
+            final FastByteBuffer buffer = new FastByteBuffer(1024, true);
+            for (int off = 0; off < data.length; off += 777) {
+                buffer.append(data, off, Math.min(777, data.length - off));
+            }
+            buffer.append((byte) 1);
+            Assert.assertEquals(data.length + 1, buffer.getSize());
+            final byte[] all = buffer.toArray();
+            Assert.assertArrayEquals(data, Arrays.copyOf(all, data.length));
+            Assert.assertArrayEquals(Arrays.copyOfRange(data, 5000, 200_000), buffer.toArray(5000, 195_000));
+            Assert.assertEquals(data[123_456], buffer.get(123_456));
+            buffer.reset();
+            Assert.assertEquals(0, buffer.getSize());
+        }
+        final FastByteArrayOutputStream faos = new FastByteArrayOutputStream(1024, true);
+        faos.write(data, 0, 5000);
+        Assert.assertArrayEquals(Arrays.copyOf(data, 5000), faos.toByteArray());
+        faos.close();
+        Assert.assertEquals(0, faos.getSize());
+    }
+
+    @Test
+    public void testGatheringWrite() throws IOException {
+        final byte[] data = new byte[1 << 22];
+        new Random(2).nextBytes(data);
+        final FastByteArrayOutputStream faos = new FastByteArrayOutputStream(1024, true);
+        for (int off = 0; off < data.length; off += 1000) {
+            faos.write(data, off, Math.min(1000, data.length - off));
+        }
+        final ByteBuffer[] byteBuffers = faos.asByteBuffers();
+        Assert.assertTrue(byteBuffers.length > 1);
+        Assert.assertEquals(data.length, Arrays.stream(byteBuffers).mapToLong(ByteBuffer::remaining).sum());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        faos.writeTo(baos);
+        Assert.assertArrayEquals(data, baos.toByteArray());
+
+        final Path path = Files.createTempFile("fbaos", ".bin");
+        try {
+            for (int i = 0; i < 3; i++) {
+                long time = System.nanoTime();
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(faos.toByteArray()));
+                }
+                final long copy = System.nanoTime() - time;
+                time = System.nanoTime();
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    Assert.assertEquals(data.length, faos.writeTo(channel));
+                }
+                System.out.printf("4MB toByteArray + write: %dus, gathering write: %dus%n", copy / 1000,
+                        (System.nanoTime() - time) / 1000);
+            }
+            Assert.assertArrayEquals(data, Files.readAllBytes(path));
+        } finally {
+            Files.delete(path);
+            faos.close();
+        }
+        Assert.assertEquals(0, faos.asByteBuffers().length);
+    }
+
+    @Test
+    public void testNonBlockingWrite() {
+        final byte[] data = new byte[100_000];
+        new Random(3).nextBytes(data);
+        final FastByteArrayOutputStream faos = new FastByteArrayOutputStream(1024, true);
+        faos.write(data, 0, data.length);
+        // 每次最多写入3000字节，之后一次写入0字节，模拟发送缓冲区满的非阻塞socket
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        final GatheringByteChannel channel = new GatheringByteChannel() {
+
+            private boolean full;
+
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length) {
+                full = !full;
+                if (!full) {
+                    return 0;
+                }
+                long written = 0;
+                for (int i = offset; i < offset + length && written < 3000; i++) {
+                    final int count = (int) Math.min(srcs[i].remaining(), 3000 - written);
+                    sink.write(srcs[i].array(), srcs[i].arrayOffset() + srcs[i].position(), count);
+                    srcs[i].position(srcs[i].position() + count);
+                    written += count;
+                }
+                return written;
+            }
+
+            @Override
+            public long write(ByteBuffer[] srcs) {
+                return write(srcs, 0, srcs.length);
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                return (int) write(new ByteBuffer[]{src});
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long position = 0;
+        int calls = 0;
+        while (position < data.length) {
+            final long written = faos.writeTo(channel, position);
+            Assert.assertTrue(written <= 3000);
+            position += written;
+            calls++;
+        }
+        Assert.assertArrayEquals(data, sink.toByteArray());
+        Assert.assertTrue(calls > data.length / 3000);
+        Assert.assertEquals(0, faos.writeTo(channel, data.length));
+        faos.close();
+    }
+
+    @Test
+    public void testAllocation() {
+        final byte[] payload = new byte[20_000];
+        for (int i = 0; i < 2000; i++) {
+            serialize(payload, false);
+            serialize(payload, true);
+        }
+        final int rounds = 20000;
+        long start = allocatedBytes();
+        long time = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            serialize(payload, false);
+        }
+        System.out.printf("unpooled: %d bytes/op, %d ns/op%n", (allocatedBytes() - start) / rounds,
+                (System.nanoTime() - time) / rounds);
+        start = allocatedBytes();
+        time = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            serialize(payload, true);
+        }
+        final long pooled = (allocatedBytes() - start) / rounds;
+        System.out.printf("pooled: %d bytes/op, %d ns/op%n", pooled, (System.nanoTime() - time) / rounds);
+        // 只剩结果数组
+        Assert.assertTrue(pooled < payload.length + 2048);
+    }
+
+    private static byte[] serialize(final byte[] payload, final boolean pooled) {
+        try (FastByteArrayOutputStream faos = new FastByteArrayOutputStream(1024, pooled)) {
+            for (int off = 0; off < payload.length; off += 100) {
+                faos.write(payload, off, 100);
+            }
+            return faos.toByteArray();
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
 }
@@ -0,0 +1,203 @@
+package com.star.test;
+
+import com.star.hash.HashUtil;
+import com.star.hash.StreamingHasher;
+import com.star.io.file.PathUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class HashUtilTest {
+
+    private static byte[] ascii(String str) {
+        return str.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testXxHash64Vectors() {
+        Assert.assertEquals(0xEF46DB3751D8E999L, HashUtil.xxHash64(new byte[0]));
+        Assert.assertEquals(0x44BC2CF5AD770999L, HashUtil.xxHash64(ascii("abc")));
+        Assert.assertEquals(0xFBCEA83C8A378BF1L, HashUtil.xxHash64(ascii("Nobody inspects the spammish repetition")));
+    }
+
+    @Test
+    public void testMurmur128Vectors() {
+        Assert.assertArrayEquals(new long[]{0, 0}, HashUtil.murmur128(new byte[0]));
+        Assert.assertArrayEquals(new long[]{0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L},
+                HashUtil.murmur128(ascii("The quick brown fox jumps over the lazy dog")));
+    }
+
+    @Test
+    public void testWyHashVectors() {
+        String[] messages = {"", "a", "abc", "message digest", "abcdefghijklmnopqrstuvwxyz",
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789",
+                "12345678901234567890123456789012345678901234567890123456789012345678901234567890"};
+        long[] expected = {0x0409638ee2bde459L, 0xa8412d091b5fe0a9L, 0x32dd92e4b2915153L, 0x8619124089a3a16bL,
+                0x7a43afb61d7f5f40L, 0xff42329b90e50d58L, 0xc39cab13b115aad3L};
+        for (int i = 0; i < messages.length; i++) {
+            byte[] data = ascii(messages[i]);
+            Assert.assertEquals(expected[i], HashUtil.wyHash(data, 0, data.length, i));
+        }
+    }
+
+    @Test
+    public void testInputsAgree() {
+        Random random = new Random(1);
+        for (int length = 0; length < 200; length++) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                // 避开代理区，否则getBytes会替换不成对的代理字符
+                chars[i] = (char) random.nextInt(0xd800);
+            }
+            String str = new String(chars);
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_16LE);
+            byte[] padded = new byte[bytes.length + 3];
+            System.arraycopy(bytes, 0, padded, 3, bytes.length);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 1);
+            direct.put((byte) 0).put(bytes).position(1);
+            ByteBuffer heap = ByteBuffer.wrap(padded, 3, bytes.length).order(ByteOrder.BIG_ENDIAN);
+
+            long xx = HashUtil.xxHash64(bytes);
+            Assert.assertEquals(xx, HashUtil.xxHash64(padded, 3, bytes.length));
+            Assert.assertEquals(xx, HashUtil.xxHash64(direct));
+            Assert.assertEquals(xx, HashUtil.xxHash64(heap));
+            Assert.assertEquals(xx, HashUtil.xxHash64(str));
+
+            long[] murmur = HashUtil.murmur128(bytes);
+            Assert.assertArrayEquals(murmur, HashUtil.murmur128(padded, 3, bytes.length));
+            Assert.assertArrayEquals(murmur, HashUtil.murmur128(direct));
+            Assert.assertArrayEquals(murmur, HashUtil.murmur128(str));
+
+            long wy = HashUtil.wyHash(bytes);
+            Assert.assertEquals(wy, HashUtil.wyHash(padded, 3, bytes.length));
+            Assert.assertEquals(wy, HashUtil.wyHash(direct));
+            Assert.assertEquals(wy, HashUtil.wyHash(str));
+
+            // 不改变原ByteBuffer
+            Assert.assertEquals(1, direct.position());
+            Assert.assertEquals(ByteOrder.BIG_ENDIAN, heap.order());
+        }
+    }
+
+    @Test
+    public void testStreaming() {
+        Random random = new Random(3);
+        StreamingHasher xx = StreamingHasher.xxHash64(42);
+        StreamingHasher murmur = StreamingHasher.murmur128(42);
+        for (int length = 0; length < 300; length += 7) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            xx.reset();
+            murmur.reset();
+            // 随机切分成若干段输入，混用byte[]和直接内存的ByteBuffer
+            int offset = 0;
+            while (offset < length) {
+                int piece = Math.min(length - offset, random.nextInt(40));
+                if (random.nextBoolean()) {
+                    xx.update(data, offset, piece);
+                    murmur.update(data, offset, piece);
+                } else {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(piece);
+                    buffer.put(data, offset, piece).flip();
+                    xx.update(buffer.duplicate());
+                    murmur.update(buffer);
+                    Assert.assertEquals(0, buffer.remaining());
+                }
+                offset += piece;
+            }
+            Assert.assertEquals(HashUtil.xxHash64(data, 0, length, 42), xx.finish());
+            Assert.assertEquals(HashUtil.murmur128(data, 0, length, 42)[0], murmur.finish());
+            // finish不改变状态
+            Assert.assertEquals(xx.finish(), xx.update(new byte[0]).finish());
+        }
+    }
+
+    @Test
+    public void testFileHash() throws Exception {
+        Path file = Files.createTempFile("hash", ".bin");
+        try {
+            byte[] data = new byte[24 << 20];
+            new Random(5).nextBytes(data);
+            Files.write(file, data);
+
+            long start = System.nanoTime();
+            long mapped = PathUtil.xxHash64(file);
+            long sequential = System.nanoTime() - start;
+            Assert.assertEquals(HashUtil.xxHash64(data), mapped);
+            // 不超过一块时与顺序计算相同
+            Assert.assertEquals(mapped, PathUtil.parallelXxHash64(file, data.length));
+
+            start = System.nanoTime();
+            long parallel = PathUtil.parallelXxHash64(file, 1 << 20);
+            long parallelTime = System.nanoTime() - start;
+            Assert.assertEquals(parallel, PathUtil.parallelXxHash64(file, 1 << 20));
+            Assert.assertNotEquals(parallel, PathUtil.parallelXxHash64(file, 1 << 21));
+            // 调用方提供的线程池，结果与线程池无关
+            ForkJoinPool pool = new ForkJoinPool(2);
+            try {
+                Assert.assertEquals(parallel, PathUtil.parallelXxHash64(file, 1 << 20, pool));
+            } finally {
+                pool.shutdown();
+            }
+            System.out.println(String.format("24MB mapped: %d ms, parallel 1MB chunks: %d ms",
+                    sequential / 1_000_000, parallelTime / 1_000_000));
+
+            Files.write(file, new byte[0]);
+            Assert.assertEquals(HashUtil.xxHash64(new byte[0]), PathUtil.xxHash64(file));
+            Assert.assertEquals(HashUtil.xxHash64(new byte[0]), PathUtil.parallelXxHash64(file, 1 << 20));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testThroughput() {
+        byte[] data = new byte[1 << 20];
+        new Random(7).nextBytes(data);
+        String str = new String(data, StandardCharsets.ISO_8859_1);
+        int rounds = 100;
+        long sink = 0;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += HashUtil.xxHash64(data);
+            }
+            long xx = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += HashUtil.murmur128(data)[0];
+            }
+            long murmur = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += HashUtil.wyHash(data);
+            }
+            long wy = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds / 10; i++) {
+                sink += HashUtil.fnvHash(data);
+            }
+            long fnv = (System.nanoTime() - start) * 10;
+            start = System.nanoTime();
+            for (int i = 0; i < rounds / 10; i++) {
+                sink += HashUtil.xxHash64(str);
+            }
+            long xxChars = (System.nanoTime() - start) * 10;
+            System.out.println(String.format("MB/s xxHash64: %d, murmur128: %d, wyhash: %d, fnv: %d, xxHash64(String 2MB): %d",
+                    mbPerSecond(rounds, xx), mbPerSecond(rounds, murmur), mbPerSecond(rounds, wy),
+                    mbPerSecond(rounds, fnv), mbPerSecond(rounds * 2, xxChars)));
+        }
+        Assert.assertTrue(sink != 1);
+    }
+
+    private static long mbPerSecond(int megabytes, long nanos) {
+        return megabytes * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.star.test;
+
+import com.star.io.IoUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class IoUtilTest {
+
+    @Test
+    public void testCopy() throws IOException {
+        final byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Assert.assertEquals(data.length, IoUtil.copy(new ByteArrayInputStream(data), baos));
+        Assert.assertArrayEquals(data, baos.toByteArray());
+
+        final Path src = Files.createTempFile("io", ".src");
+        final Path dest = Files.createTempFile("io", ".dest");
+        try {
+            Files.write(src, data);
+            // 从当前位置复制
+            try (FileInputStream in = new FileInputStream(src.toFile());
+                 FileOutputStream out = new FileOutputStream(dest.toFile())) {
+                Assert.assertEquals(100, in.skip(100));
+                Assert.assertEquals(data.length - 100, IoUtil.copy(in, (OutputStream) out, 0));
+                Assert.assertEquals(-1, in.read());
+            }
+            Assert.assertEquals(data.length - 100, Files.size(dest));
+
+            // 通道到文件通道
+            try (FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Assert.assertEquals(data.length, IoUtil.copy(Channels.newChannel(new ByteArrayInputStream(data)),
+                        out, 0));
+            }
+            Assert.assertArrayEquals(data, Files.readAllBytes(dest));
+
+            // 文件通道到其他通道
+            baos.reset();
+            try (FileChannel in = FileChannel.open(src)) {
+                Assert.assertEquals(data.length, IoUtil.copy(in, Channels.newChannel(baos), 0));
+            }
+            Assert.assertArrayEquals(data, baos.toByteArray());
+        } finally {
+            Files.delete(src);
+            Files.delete(dest);
+        }
+    }
+
+    /**
+     * 吞吐量：1KB到64MB，设置-Dio.bench.large=true时加测1GB和4GB
+     */
+    @Test
+    public void testCopyThroughput() throws IOException {
+        final long[] sizes = Boolean.getBoolean("io.bench.large")
+                ? new long[]{1L << 10, 1L << 20, 1L << 26, 1L << 30, 1L << 32}
+                : new long[]{1L << 10, 1L << 16, 1L << 20, 1L << 26};
+        final Path src = Files.createTempFile("io", ".src");
+        final Path dest = Files.createTempFile("io", ".dest");
+        try {
+            for (long size : sizes) {
+                fill(src, size);
+                final int rounds = (int) Math.max(1, Math.min(200, (64L << 20) / size));
+                final long fixed = measure(src, dest, rounds, (in, out) -> IoUtil.copy(wrap(in), wrap(out), 1024));
+                final long adaptive = measure(src, dest, rounds, (in, out) -> IoUtil.copy(wrap(in), wrap(out), 0));
+                final long kernel = measure(src, dest, rounds, (in, out) -> IoUtil.copy(in, (OutputStream) out, 0));
+                Assert.assertEquals(size, Files.size(dest));
+                System.out.printf("%,d bytes: 1KB buffer %s, adaptive buffer %s, transferTo %s%n", size,
+                        throughput(size, fixed), throughput(size, adaptive), throughput(size, kernel));
+            }
+        } finally {
+            Files.delete(src);
+            Files.delete(dest);
+        }
+    }
+
+    private static long measure(final Path src, final Path dest, final int rounds, final Copier copier)
+            throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            try (FileInputStream in = new FileInputStream(src.toFile());
+                 FileOutputStream out = new FileOutputStream(dest.toFile())) {
+                final long start = System.nanoTime();
+                copier.copy(in, out);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best;
+    }
+
+    private static String throughput(final long size, final long nanos) {
+        return String.format("%.1fMB/s", size * 1e9 / nanos / (1 << 20));
+    }
+
+    private static void fill(final Path path, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        new Random(size).nextBytes(buffer.array());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long written = 0; written < size; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - written));
+                written += channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * 包装后不再是文件流，走缓存复制
+     */
+    private static InputStream wrap(final InputStream in) {
+        return new FilterInputStream(in) {
+        };
+    }
+
+    private static OutputStream wrap(final OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    private interface Copier {
+        void copy(FileInputStream in, FileOutputStream out);
+    }
+}
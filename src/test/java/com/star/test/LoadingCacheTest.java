@@ -0,0 +1,241 @@
+package com.star.test;
+
+import com.star.cache.CacheLoader;
+import com.star.cache.LoadingCache;
+import com.star.cache.loading.DefaultLoadingCache;
+import com.star.cache.simple.SimpleCache;
+import com.star.cache.tinylfu.TinyLfuCache;
+import com.star.exception.CacheException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LoadingCacheTest {
+
+    private static int threads = 32; // 线程数
+
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<String, String> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100), key -> {
+            loads.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(100);
+            return key.toUpperCase();
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger wrong = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (!"HOT".equals(cache.get("hot"))) {
+                        wrong.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(0, wrong.get());
+        Assert.assertEquals("HOT", cache.getIfPresent("hot"));
+    }
+
+    @Test
+    public void testLoaderError() throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        LoadingCache<String, String> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100), key -> {
+            loading.countDown();
+            TimeUnit.MILLISECONDS.sleep(100);
+            throw new StackOverflowError();
+        });
+        AtomicInteger errors = new AtomicInteger();
+        Thread loader = new Thread(() -> {
+            try {
+                cache.get("key");
+            } catch (StackOverflowError e) {
+                errors.incrementAndGet();
+            }
+        });
+        loader.start();
+        loading.await();
+        Thread waiter = new Thread(() -> {
+            try {
+                cache.get("key");
+            } catch (CacheException e) {
+                errors.incrementAndGet();
+            }
+        });
+        waiter.start();
+        loader.join(5000);
+        waiter.join(5000);
+        Assert.assertFalse(waiter.isAlive());
+        Assert.assertEquals(2, errors.get());
+    }
+
+    @Test
+    public void testRecheckAfterWinningLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        // 模拟未命中之后、拿到加载权之前其他线程刚加载完：第一次get看不到已有的值
+        SimpleCache<String, DefaultLoadingCache.Entry<String>> delegate =
+                new SimpleCache<String, DefaultLoadingCache.Entry<String>>() {
+                    private boolean missed;
+
+                    @Override
+                    public DefaultLoadingCache.Entry<String> get(String key) {
+                        if (!missed) {
+                            missed = true;
+                            return null;
+                        }
+                        return super.get(key);
+                    }
+                };
+        LoadingCache<String, String> cache = new DefaultLoadingCache<>(delegate, key -> {
+            loads.incrementAndGet();
+            return key.toUpperCase();
+        });
+        cache.put("hot", "LOADED");
+        Assert.assertEquals("LOADED", cache.get("hot"));
+        Assert.assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testGetAllRacesGet() {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<LoadingCache<String, String>> holder = new AtomicReference<>();
+        // getAll未命中之后、拿到加载权之前，同一个键的get刚加载完
+        SimpleCache<String, DefaultLoadingCache.Entry<String>> delegate =
+                new SimpleCache<String, DefaultLoadingCache.Entry<String>>() {
+                    private boolean raced;
+
+                    @Override
+                    public DefaultLoadingCache.Entry<String> get(String key) {
+                        if (!raced) {
+                            raced = true;
+                            Assert.assertEquals("HOT", holder.get().get(key));
+                            return null;
+                        }
+                        return super.get(key);
+                    }
+                };
+        holder.set(new DefaultLoadingCache<>(delegate, new CacheLoader<String, String>() {
+            @Override
+            public String load(String key) {
+                loads.incrementAndGet();
+                return key.toUpperCase();
+            }
+
+            @Override
+            public Map<String, String> loadAll(Iterable<? extends String> keys) {
+                Map<String, String> result = new HashMap<>();
+                for (String key : keys) {
+                    result.put(key, load(key));
+                }
+                return result;
+            }
+        }));
+        Assert.assertEquals("HOT", holder.get().getAll(Arrays.asList("hot")).get("hot"));
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testRemoveDuringRefresh() {
+        List<Runnable> tasks = new ArrayList<>();
+        LoadingCache<String, String> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100),
+                key -> key.toUpperCase(), 0, TimeUnit.MILLISECONDS, tasks::add);
+        cache.put("key", "old");
+        cache.refresh("key");
+        cache.remove("key");
+        tasks.forEach(Runnable::run);
+        // 删除的键不会被刷新结果复活
+        Assert.assertNull(cache.peek("key"));
+
+        // 删除之后的刷新照常写回
+        tasks.clear();
+        cache.put("key", "old");
+        cache.refresh("key");
+        tasks.forEach(Runnable::run);
+        Assert.assertEquals("KEY", cache.peek("key"));
+    }
+
+    @Test
+    public void testPutDuringRefresh() {
+        List<Runnable> tasks = new ArrayList<>();
+        LoadingCache<String, String> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100),
+                key -> key.toUpperCase(), 0, TimeUnit.MILLISECONDS, tasks::add);
+        cache.put("key", "old");
+        cache.refresh("key");
+        cache.put("key", "new");
+        tasks.forEach(Runnable::run);
+        // 刷新开始前读到的旧值不会覆盖新写入的值
+        Assert.assertEquals("new", cache.peek("key"));
+
+        tasks.clear();
+        cache.refresh("key");
+        cache.clear();
+        tasks.forEach(Runnable::run);
+        Assert.assertNull(cache.peek("key"));
+    }
+
+    @Test
+    public void testGetAll() {
+        AtomicInteger batches = new AtomicInteger();
+        LoadingCache<Integer, String> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100),
+                new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) {
+                        return String.valueOf(key);
+                    }
+
+                    @Override
+                    public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+                        batches.incrementAndGet();
+                        Map<Integer, String> result = new HashMap<>();
+                        for (Integer key : keys) {
+                            if (key >= 0) {
+                                result.put(key, String.valueOf(key));
+                            }
+                        }
+                        return result;
+                    }
+                });
+        cache.put(1, "one");
+
+        Map<Integer, String> result = cache.getAll(Arrays.asList(1, 2, 3, -1));
+        Assert.assertEquals(1, batches.get());
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals("one", result.get(1));
+        Assert.assertEquals("3", result.get(3));
+        Assert.assertNull(cache.getIfPresent(-1));
+    }
+
+    @Test
+    public void testRefreshAfterWrite() throws InterruptedException {
+        AtomicInteger version = new AtomicInteger();
+        LoadingCache<String, Integer> cache = new DefaultLoadingCache<>(new TinyLfuCache<>(100),
+                key -> version.incrementAndGet(), 50, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(Integer.valueOf(1), cache.get("key"));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        // 过期后先返回旧值，后台刷新
+        Assert.assertEquals(Integer.valueOf(1), cache.get("key"));
+        TimeUnit.MILLISECONDS.sleep(100);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("key"));
+    }
+}
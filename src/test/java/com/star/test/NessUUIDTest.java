@@ -0,0 +1,108 @@
+package com.star.test;
+
+import com.star.id.NessUUID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class NessUUIDTest {
+
+    @Test
+    public void testRandomUUID() {
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = NessUUID.insecureRandomUUID();
+            Assert.assertEquals(4, uuid.version());
+            Assert.assertEquals(2, uuid.variant());
+            Assert.assertEquals(uuid, NessUUID.fromString(NessUUID.toString(uuid)));
+        }
+        Assert.assertEquals(4, NessUUID.fromString(NessUUID.getId()).version());
+        Assert.assertEquals(4, NessUUID.fromString(NessUUID.getInsecureId()).version());
+    }
+
+    @Test
+    public void testTimeOrderedUUID() {
+        long before = System.currentTimeMillis();
+        UUID last = NessUUID.timeOrderedUUID();
+        Assert.assertEquals(7, last.version());
+        Assert.assertEquals(2, last.variant());
+        Assert.assertTrue((last.getMostSignificantBits() >>> 16) >= before);
+        String lastString = NessUUID.toString(last);
+        for (int i = 0; i < 100_000; i++) {
+            UUID uuid = NessUUID.timeOrderedUUID();
+            String string = NessUUID.toString(uuid);
+            // 字符串形式也按生成顺序排列
+            Assert.assertTrue(string.compareTo(lastString) > 0);
+            lastString = string;
+        }
+    }
+
+    @Test
+    public void testFormat() {
+        UUID uuid = UUID.randomUUID();
+        String expected = uuid.toString();
+
+        char[] chars = new char[40];
+        Assert.assertEquals(38, NessUUID.format(uuid, chars, 2, true));
+        Assert.assertEquals(expected, new String(chars, 2, 36));
+        Assert.assertEquals(32, NessUUID.format(uuid, chars, 0, false));
+        Assert.assertEquals(expected.replace("-", ""), new String(chars, 0, 32));
+
+        byte[] bytes = new byte[36];
+        NessUUID.format(uuid, bytes, 0, true);
+        Assert.assertEquals(expected, new String(bytes, StandardCharsets.US_ASCII));
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(80), ByteBuffer.allocateDirect(80)}) {
+            buffer.put((byte) '[');
+            NessUUID.format(uuid, buffer, true);
+            NessUUID.format(uuid, buffer, false);
+            Assert.assertEquals(1 + 36 + 32, buffer.position());
+            buffer.flip();
+            byte[] written = new byte[buffer.remaining()];
+            buffer.get(written);
+            Assert.assertEquals("[" + expected + expected.replace("-", ""), new String(written, StandardCharsets.US_ASCII));
+        }
+
+        try {
+            NessUUID.format(uuid, new char[35], 0, true);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThroughput() throws InterruptedException {
+        int threadCount = 8;
+        int perThread = 200_000;
+        char[][] buffers = new char[threadCount][36];
+        long jdk = measure(threadCount, perThread, t -> UUID.randomUUID().toString());
+        long v4 = measure(threadCount, perThread, t -> NessUUID.format(NessUUID.insecureRandomUUID(), buffers[t], 0, true));
+        long v7 = measure(threadCount, perThread, t -> NessUUID.format(NessUUID.timeOrderedUUID(), buffers[t], 0, true));
+        System.out.println(String.format("%d threads x %d: jdk randomUUID().toString() %d ms, v4 format %d ms, v7 format %d ms",
+                threadCount, perThread, jdk, v4, v7));
+    }
+
+    private static long measure(int threadCount, int perThread, java.util.function.IntConsumer task)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    task.accept(index);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
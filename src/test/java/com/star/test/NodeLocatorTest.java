@@ -0,0 +1,189 @@
+package com.star.test;
+
+import com.star.exception.ToolException;
+import com.star.extra.BoundedLoadConsistentHash;
+import com.star.extra.ConsistentHash;
+import com.star.extra.JumpConsistentHash;
+import com.star.extra.NodeLocator;
+import com.star.extra.RendezvousHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NodeLocatorTest {
+
+    private static final int KEYS = 200_000;
+
+    private static List<String> nodes(int count) {
+        List<String> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add("cache-" + i);
+        }
+        return nodes;
+    }
+
+    private static String[] assign(NodeLocator<String> locator) {
+        String[] owners = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            owners[i] = locator.get("user:" + i);
+        }
+        return owners;
+    }
+
+    private static Map<String, Integer> loads(String[] owners) {
+        Map<String, Integer> loads = new HashMap<>();
+        for (String owner : owners) {
+            loads.merge(owner, 1, Integer::sum);
+        }
+        return loads;
+    }
+
+    private static double[] spread(Map<String, Integer> loads, int nodes) {
+        double mean = (double) KEYS / nodes;
+        double variance = 0;
+        int max = 0;
+        for (int load : loads.values()) {
+            variance += (load - mean) * (load - mean);
+            max = Math.max(max, load);
+        }
+        variance += (nodes - loads.size()) * mean * mean;
+        return new double[]{Math.sqrt(variance / nodes) / mean, max / mean};
+    }
+
+    /**
+     * 模拟负载分布以及增删节点时移动的键数
+     */
+    private static void simulate(String name, NodeLocator<String> locator, int nodeCount, String removed) {
+        String[] before = assign(locator);
+        double[] spread = spread(loads(before), nodeCount);
+
+        locator.add("cache-new");
+        String[] added = assign(locator);
+        int movedOnAdd = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals(added[i])) {
+                movedOnAdd++;
+                // 只会移动到新节点
+                Assert.assertEquals("cache-new", added[i]);
+            }
+        }
+
+        locator.remove(removed);
+        String[] after = assign(locator);
+        int movedOnRemove = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (!added[i].equals(after[i])) {
+                movedOnRemove++;
+                // 只有原先在被移除节点上的键移动
+                Assert.assertEquals(removed, added[i]);
+            }
+        }
+
+        double ideal = 1d / (nodeCount + 1);
+        Assert.assertTrue(movedOnAdd < KEYS * ideal * 2);
+        Assert.assertTrue(movedOnRemove < KEYS * ideal * 2);
+        System.out.println(String.format("%s: stddev/mean %.3f, max/mean %.2f, moved on add %.2f%%, "
+                        + "moved on remove %.2f%% (ideal %.2f%%)", name, spread[0], spread[1],
+                movedOnAdd * 100d / KEYS, movedOnRemove * 100d / KEYS, ideal * 100));
+    }
+
+    @Test
+    public void testSimulation() {
+        int nodeCount = 50;
+        simulate("ring(160)", new ConsistentHash<>(160, nodes(nodeCount)), nodeCount, "cache-7");
+        simulate("jump", new JumpConsistentHash<>(nodes(nodeCount)), nodeCount, "cache-new");
+        simulate("rendezvous", new RendezvousHash<>(nodes(nodeCount)), nodeCount, "cache-7");
+    }
+
+    @Test
+    public void testWeighted() {
+        ConsistentHash<String> ring = new ConsistentHash<>(160, nodes(10));
+        ring.add("big", 3);
+        RendezvousHash<String> rendezvous = new RendezvousHash<>(nodes(10));
+        rendezvous.add("big", 3);
+        for (NodeLocator<String> locator : new NodeLocator[]{ring, rendezvous}) {
+            Map<String, Integer> loads = loads(assign(locator));
+            double ratio = loads.get("big") / ((KEYS - loads.get("big")) / 10d);
+            System.out.println(String.format("%s weight 3 node load ratio %.2f",
+                    locator.getClass().getSimpleName(), ratio));
+            Assert.assertTrue(ratio > 2.4 && ratio < 3.6);
+        }
+
+        // 加入带权重的节点只把键移到新节点，不在旧节点之间重排
+        RendezvousHash<String> equal = new RendezvousHash<>(nodes(50));
+        String[] before = assign(equal);
+        equal.add("big", 2.0);
+        String[] after = assign(equal);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals(after[i])) {
+                Assert.assertEquals("big", after[i]);
+                moved++;
+            }
+        }
+        System.out.println(String.format("rendezvous weight 2 node added, moved %d keys", moved));
+        Assert.assertTrue(moved > KEYS * 2 / 52 * 0.9 && moved < KEYS * 2 / 52 * 1.1);
+
+        // 移除带权重的节点时移除全部虚拟节点
+        ring.remove("big");
+        Assert.assertEquals(10 * 160, ring.size());
+    }
+
+    @Test
+    public void testBoundedLoad() {
+        int nodeCount = 50;
+        double loadFactor = 1.25;
+        BoundedLoadConsistentHash<String> bounded = new BoundedLoadConsistentHash<>(160, nodes(nodeCount), loadFactor);
+        String[] owners = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            owners[i] = bounded.acquire("user:" + i);
+        }
+        Assert.assertEquals(KEYS, bounded.getTotalLoad());
+        long capacity = (long) Math.ceil(loadFactor * KEYS / nodeCount);
+        for (String node : nodes(nodeCount)) {
+            Assert.assertTrue(bounded.getLoad(node) <= capacity);
+        }
+        double[] spread = spread(loads(owners), nodeCount);
+        double[] unbounded = spread(loads(assign(new ConsistentHash<>(160, nodes(nodeCount)))), nodeCount);
+        System.out.println(String.format("bounded(%.2f): stddev/mean %.3f, max/mean %.2f; unbounded max/mean %.2f",
+                loadFactor, spread[0], spread[1], unbounded[1]));
+        Assert.assertTrue(spread[1] <= loadFactor + 0.01);
+
+        for (String owner : owners) {
+            bounded.release(owner);
+        }
+        Assert.assertEquals(0, bounded.getTotalLoad());
+
+        // 有权重的节点容量按权重放大
+        bounded.add("big", 4);
+        for (int i = 0; i < KEYS; i++) {
+            bounded.acquire("user:" + i);
+        }
+        Assert.assertTrue(bounded.getLoad("big") > bounded.getLoad("cache-0"));
+        Assert.assertTrue(bounded.getLoad("big") <= Math.ceil(loadFactor * KEYS * 4 / (nodeCount + 4)));
+    }
+
+    @Test
+    public void testJump() {
+        Assert.assertEquals(0, JumpConsistentHash.jump(0, 1));
+        for (long key = 0; key < 1000; key++) {
+            int bucket = JumpConsistentHash.jump(key, 10);
+            Assert.assertTrue(bucket >= 0 && bucket < 10);
+            int next = JumpConsistentHash.jump(key, 11);
+            Assert.assertTrue(next == bucket || next == 10);
+        }
+        JumpConsistentHash<String> jump = new JumpConsistentHash<>(nodes(3));
+        try {
+            jump.remove("cache-0");
+            Assert.fail();
+        } catch (ToolException e) {
+            Assert.assertEquals(3, jump.size());
+        }
+        jump.remove("cache-2");
+        Assert.assertEquals(2, jump.size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.star.test;
+
+import com.star.cache.offheap.OffHeapCache;
+import com.star.cache.stats.ConcurrentStatsCounter;
+import com.star.cache.stats.StatsCounter;
+import com.star.io.serializer.JavaSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+    @Test
+    public void testOperations() {
+        OffHeapCache<String, String> cache = new OffHeapCache<>(new JavaSerializer(), 1 << 20, 1 << 16);
+        cache.put("key", "value");
+        Assert.assertEquals("value", cache.get("key"));
+        cache.put("key", "another value");
+        Assert.assertEquals("another value", cache.get("key"));
+        Assert.assertEquals(1, cache.size());
+
+        Assert.assertEquals("another value", cache.remove("key"));
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(0, cache.getOffHeapUsed());
+
+        cache.put("key", "value");
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getOffHeapAllocated());
+    }
+
+    @Test
+    public void testEvictionBoundedByBytes() {
+        long capacity = 1 << 20;
+        OffHeapCache<Integer, byte[]> cache = new OffHeapCache<>(new JavaSerializer(), capacity, 1 << 16);
+        byte[] value = new byte[1000];
+        for (int i = 0; i < 10_000; i++) {
+            value[0] = (byte) i;
+            cache.put(i, value);
+            Assert.assertTrue(cache.getOffHeapAllocated() <= capacity);
+        }
+        Assert.assertTrue(cache.size() < 10_000);
+        Assert.assertEquals(cache.size() * (long) new JavaSerializer().serialize(value).length, cache.getOffHeapUsed());
+
+        byte[] last = cache.get(9_999);
+        Assert.assertNotNull(last);
+        Assert.assertEquals((byte) 9_999, last[0]);
+        System.out.println(String.format("entries: %d, off heap used: %d, allocated: %d, heap: %d",
+                cache.size(), cache.getOffHeapUsed(), cache.getOffHeapAllocated(), cache.getHeapUsed()));
+    }
+
+    @Test
+    public void testMixedSizesAfterSlabsExhausted() {
+        StatsCounter statsCounter = new ConcurrentStatsCounter();
+        OffHeapCache<String, byte[]> cache = new OffHeapCache<>(new JavaSerializer(), 1 << 16, 1 << 14,
+                statsCounter);
+        // 小值占满全部4个slab
+        for (int i = 0; i < 2000; i++) {
+            cache.put("small" + i, new byte[10]);
+        }
+        Assert.assertEquals(1 << 16, cache.getOffHeapAllocated());
+        int small = cache.size();
+        long evicted = statsCounter.snapshot().evictionCount();
+
+        // 更大的规格没有任何块，从小值的规格收回slab
+        cache.put("medium", new byte[1000]);
+        cache.put("large", new byte[10_000]);
+        Assert.assertArrayEquals(new byte[1000], cache.get("medium"));
+        Assert.assertArrayEquals(new byte[10_000], cache.get("large"));
+        Assert.assertEquals(1 << 16, cache.getOffHeapAllocated());
+        Assert.assertTrue(cache.size() < small);
+        Assert.assertEquals(small + 2 - cache.size(), statsCounter.snapshot().evictionCount() - evicted);
+
+        // 收回后剩下的小值仍可读，小值还能继续写入
+        int readable = 0;
+        for (int i = 0; i < 2000; i++) {
+            if (cache.get("small" + i) != null) {
+                readable++;
+            }
+        }
+        Assert.assertEquals(cache.size() - 2, readable);
+        for (int i = 0; i < 100; i++) {
+            cache.put("again" + i, new byte[10]);
+            Assert.assertArrayEquals(new byte[10], cache.get("again" + i));
+        }
+        Assert.assertArrayEquals(new byte[10_000], cache.get("large"));
+    }
+
+    @Test
+    public void testClockKeepsReferenced() {
+        OffHeapCache<Integer, Integer> cache = new OffHeapCache<>(new JavaSerializer(), 1 << 12, 1 << 12);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+            Assert.assertEquals(Integer.valueOf(0), cache.get(0));
+        }
+    }
+}
@@ -1,11 +1,43 @@
 package com.star.test;
 
 
+import com.star.exception.IORuntimeException;
+import com.star.io.CharsetUtil;
+import com.star.io.IoUtil;
+import com.star.io.file.PathUtil;
+import com.star.lang.LineHandler;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PathUtilTest {
 
@@ -37,4 +69,327 @@ public class PathUtilTest {
 //            }
 //        });
     }
+
+    @Test
+    public void testParallelReadLines() throws Exception {
+        final Path file = Files.createTempFile("lines", ".txt");
+        try {
+            final String content = "first\r\n\nascii line\r中文行\n\r\nmixed ü line\n\n" + String.join("\n",
+                    Collections.nCopies(5000, "重复的行 repeated line")) + "\n" + String.join("", Collections.nCopies(20000, "长行long line")) + "\r\nlast without newline";
+            Files.write(file, content.getBytes(CharsetUtil.CHARSET_UTF_8));
+            final List<String> expected = PathUtil.readUTF8Lines(file);
+            for (int chunkSize : new int[]{1, 7, 100, 1 << 20}) {
+                final List<String> lines = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(file)) {
+                    IoUtil.parallelReadLines(channel, CharsetUtil.CHARSET_UTF_8, lines::add, true,
+                            chunkSize);
+                }
+                Assert.assertEquals(expected, lines);
+                final List<String> unordered = Collections.synchronizedList(new ArrayList<>());
+                try (FileChannel channel = FileChannel.open(file)) {
+                    IoUtil.parallelReadLines(channel, CharsetUtil.CHARSET_UTF_8, unordered::add, false,
+                            chunkSize);
+                }
+                final List<String> sorted = new ArrayList<>(expected);
+                Collections.sort(sorted);
+                Collections.sort(unordered);
+                Assert.assertEquals(sorted, unordered);
+            }
+
+            // 在公共池的线程中调用不会占住公共池而死锁
+            final List<String> inPool = ForkJoinPool.commonPool().submit(() -> {
+                final List<String> result = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(file)) {
+                    IoUtil.parallelReadLines(channel, CharsetUtil.CHARSET_UTF_8, result::add, true, 100);
+                }
+                return result;
+            }).get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(expected, inPool);
+
+            Files.write(file, "甲\n乙\r\n丙".getBytes(Charset.forName("GBK")));
+            final List<String> gbk = new ArrayList<>();
+            PathUtil.parallelReadLines(file, Charset.forName("GBK"), gbk::add, true);
+            Assert.assertEquals(PathUtil.readLines(file, Charset.forName("GBK")), gbk);
+
+            Files.write(file, new byte[0]);
+            PathUtil.parallelReadUTF8Lines(file, line -> Assert.fail(), true);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParallelReadLinesAbort() throws Exception {
+        final Path file = Files.createTempFile("lines", ".txt");
+        try {
+            Files.write(file, String.join("\n", Collections.nCopies(2000, "line")).getBytes(CharsetUtil.CHARSET_UTF_8));
+            for (boolean ordered : new boolean[]{true, false}) {
+                final AtomicLong handled = new AtomicLong();
+                try (FileChannel channel = new FailingChannel(FileChannel.open(file), 20)) {
+                    IoUtil.parallelReadLines(channel, CharsetUtil.CHARSET_UTF_8, line -> {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        handled.incrementAndGet();
+                    }, ordered, 100);
+                    Assert.fail();
+                } catch (IORuntimeException e) {
+                    // 切块时读取失败
+                }
+                // 抛出后已提交的块不再在后台调用行处理器
+                final long after = handled.get();
+                Thread.sleep(200);
+                Assert.assertEquals(after, handled.get());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * 第failAt次按位置读取时抛出异常的文件通道
+     */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        private final AtomicLong reads = new AtomicLong();
+        private final long failAt;
+
+        FailingChannel(final FileChannel delegate, final long failAt) {
+            this.delegate = delegate;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (reads.incrementAndGet() >= failAt) {
+                throw new IOException("disk failure");
+            }
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    @Test
+    public void testParallelReadLinesThroughput() throws IOException {
+        final Path file = Files.createTempFile("lines", ".log");
+        try {
+            final Random random = new Random(1);
+            try (Writer writer = Files.newBufferedWriter(file, CharsetUtil.CHARSET_UTF_8)) {
+                for (int i = 0; i < 1_000_000; i++) {
+                    writer.write("2026-01-01 00:00:00 INFO request id=" + random.nextLong() + " 用户=" + i % 1000 + "\n");
+                }
+            }
+            for (int round = 0; round < 3; round++) {
+                final AtomicLong reader = new AtomicLong();
+                long start = System.nanoTime();
+                PathUtil.readUTF8Lines(file, (LineHandler) line -> reader.addAndGet(line.length()));
+                final long readerTime = System.nanoTime() - start;
+                final AtomicLong ordered = new AtomicLong();
+                start = System.nanoTime();
+                PathUtil.parallelReadUTF8Lines(file, line -> ordered.addAndGet(line.length()), true);
+                final long orderedTime = System.nanoTime() - start;
+                final AtomicLong unordered = new AtomicLong();
+                start = System.nanoTime();
+                PathUtil.parallelReadUTF8Lines(file, line -> unordered.addAndGet(line.length()), false);
+                final long unorderedTime = System.nanoTime() - start;
+                Assert.assertEquals(reader.get(), ordered.get());
+                Assert.assertEquals(reader.get(), unordered.get());
+                System.out.printf("%,d bytes: BufferedReader %dms, parallel ordered %dms, parallel unordered %dms%n",
+                        Files.size(file), readerTime / 1_000_000, orderedTime / 1_000_000,
+                        unorderedTime / 1_000_000);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWalkFiles() throws Exception {
+        final Path root = Files.createTempDirectory("walk");
+        try {
+            for (int i = 0; i < 20; i++) {
+                final Path dir = Files.createDirectories(root.resolve("d" + i).resolve("sub" + i % 3));
+                for (int j = 0; j < 50; j++) {
+                    Files.createFile(dir.resolve(j + (j % 2 == 0 ? ".log" : ".txt")));
+                }
+                Files.createFile(root.resolve("d" + i).resolve("top.log"));
+            }
+            Files.createFile(root.resolve("root.log"));
+            final Set<Path> expected = new HashSet<>(PathUtil.loopFiles(root, null, null));
+            Assert.assertEquals(20 * 51 + 1, expected.size());
+
+            final Set<Path> walked = ConcurrentHashMap.newKeySet();
+            final AtomicLong inCommonPool = new AtomicLong();
+            PathUtil.walkFiles(root, null, null, path -> {
+                // 处理器可能阻塞，不在公共池中调用
+                if (ForkJoinTask.getPool() == ForkJoinPool.commonPool()) {
+                    inCommonPool.incrementAndGet();
+                }
+                walked.add(path);
+            });
+            Assert.assertEquals(expected, walked);
+            Assert.assertEquals(0, inCommonPool.get());
+            try (Stream<Path> stream = PathUtil.streamFiles(root, null, null)) {
+                Assert.assertEquals(expected, stream.collect(Collectors.toSet()));
+            }
+
+            // 剪枝：sub0不进入，只要.log
+            final Predicate<Path> kept = path -> path.toString().endsWith(".log")
+                    && !path.getParent().getFileName().toString().equals("sub0");
+            final Set<Path> pruned = ConcurrentHashMap.newKeySet();
+            PathUtil.walkFiles(root, path -> path.toString().endsWith(".log"),
+                    dir -> !dir.getFileName().toString().equals("sub0"), pruned::add);
+            Assert.assertEquals(expected.stream().filter(kept).collect(Collectors.toSet()), pruned);
+            try (Stream<Path> stream = PathUtil.streamFiles(root, path -> path.toString().endsWith(".log"),
+                    dir -> !dir.getFileName().toString().equals("sub0"))) {
+                Assert.assertEquals(pruned, stream.collect(Collectors.toSet()));
+            }
+
+            // 提前结束
+            try (Stream<Path> stream = PathUtil.streamFiles(root, null, null)) {
+                Assert.assertEquals(5, stream.limit(5).count());
+            }
+
+            // 在公共池的线程中消费不会占住遍历线程而死锁
+            final Set<Path> inPool = ForkJoinPool.commonPool().submit(() -> {
+                try (Stream<Path> stream = PathUtil.streamFiles(root, null, null)) {
+                    return stream.collect(Collectors.toSet());
+                }
+            }).get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(expected, inPool);
+        } finally {
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testWalkFilesThroughput() throws IOException {
+        final Path root = Files.createTempDirectory("walk");
+        try {
+            for (int i = 0; i < 200; i++) {
+                final Path dir = Files.createDirectories(root.resolve("a" + i % 10).resolve("b" + i));
+                for (int j = 0; j < 100; j++) {
+                    Files.createFile(dir.resolve("f" + j));
+                }
+            }
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                final int listed = PathUtil.loopFiles(root, null, null).size();
+                final long loopTime = System.nanoTime() - start;
+                final AtomicLong walked = new AtomicLong();
+                start = System.nanoTime();
+                PathUtil.walkFiles(root, null, null, path -> walked.incrementAndGet());
+                final long walkTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                final long first;
+                final long streamed;
+                try (Stream<Path> stream = PathUtil.streamFiles(root, null, null)) {
+                    final Iterator<Path> iterator = stream.iterator();
+                    iterator.next();
+                    first = System.nanoTime() - start;
+                    long count = 1;
+                    while (iterator.hasNext()) {
+                        iterator.next();
+                        count++;
+                    }
+                    streamed = count;
+                }
+                final long streamTime = System.nanoTime() - start;
+                Assert.assertEquals(listed, walked.get());
+                Assert.assertEquals(listed, streamed);
+                System.out.printf("%d files: loopFiles %dms, walkFiles %dms, streamFiles %dms (first after %dus)%n",
+                        listed, loopTime / 1_000_000, walkTime / 1_000_000, streamTime / 1_000_000, first / 1000);
+            }
+        } finally {
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package com.star.test;
+
+import com.star.id.SegmentIdAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SegmentIdAllocatorTest {
+
+    @Test
+    public void testSequential() {
+        FakeTable table = new FakeTable();
+        table.rows.put("order", 1000L);
+        SegmentIdAllocator allocator = new SegmentIdAllocator(table.dataSource(), "id_segment", "order", 100,
+                Runnable::run);
+        for (long expected = 1001; expected <= 1500; expected++) {
+            Assert.assertEquals(expected, allocator.nextId());
+        }
+        // 每个号段只加载一次，最后一个号段用掉20%后已预取下一个
+        Assert.assertEquals(6, table.leases.get());
+        Assert.assertEquals(Long.valueOf(1600), table.rows.get("order"));
+        Assert.assertEquals(0, table.dirtyCloses.get());
+    }
+
+    @Test
+    public void testPrefetchInBackground() throws InterruptedException {
+        FakeTable table = new FakeTable();
+        table.rows.put("order", 0L);
+        table.latency = 20;
+        Executor executor = runnable -> new Thread(runnable).start();
+        SegmentIdAllocator allocator = new SegmentIdAllocator(table.dataSource(), "id_segment", "order", 1000, executor);
+        long slowest = 0;
+        for (int i = 0; i < 5000; i++) {
+            long start = System.nanoTime();
+            allocator.nextId();
+            slowest = Math.max(slowest, System.nanoTime() - start);
+            if (i % 20 == 0) {
+                // 消耗速度低于预取速度
+                Thread.sleep(1);
+            }
+        }
+        System.out.println(String.format("slowest nextId with 20ms database latency: %d us", slowest / 1000));
+        Assert.assertTrue(slowest < 10_000_000L);
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws InterruptedException {
+        FakeTable table = new FakeTable();
+        table.rows.put("order", 0L);
+        SegmentIdAllocator allocator = new SegmentIdAllocator(table.dataSource(), "id_segment", "order", 500,
+                runnable -> new Thread(runnable).start());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(allocator.nextId());
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    public void testPrefetchFailureFallsBack() {
+        FakeTable table = new FakeTable();
+        table.rows.put("order", 0L);
+        SegmentIdAllocator allocator = new SegmentIdAllocator(table.dataSource(), "id_segment", "order", 10,
+                Runnable::run);
+        table.failures.set(1);
+        for (long expected = 1; expected <= 30; expected++) {
+            Assert.assertEquals(expected, allocator.nextId());
+        }
+        // 失败的连接同样恢复自动提交后关闭
+        Assert.assertEquals(0, table.dirtyCloses.get());
+    }
+
+    /**
+     * 内存中的号段表，只支持分配器用到的两条sql
+     */
+    private static class FakeTable {
+
+        final Map<String, Long> rows = new ConcurrentHashMap<>();
+        final AtomicInteger leases = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger dirtyCloses = new AtomicInteger();
+        volatile long latency;
+
+        DataSource dataSource() {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        if ("getConnection".equals(method.getName())) {
+                            return connection();
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private Connection connection() {
+            boolean[] autoCommit = {true};
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                                return statement((String) args[0]);
+                            case "getAutoCommit":
+                                return autoCommit[0];
+                            case "setAutoCommit":
+                                autoCommit[0] = (Boolean) args[0];
+                                return null;
+                            case "close":
+                                if (!autoCommit[0]) {
+                                    // 连接池会把未恢复自动提交的连接交给下一个使用者
+                                    dirtyCloses.incrementAndGet();
+                                }
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement statement(String sql) {
+            Object[] params = new Object[3];
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setObject":
+                                params[(Integer) args[0]] = args[1];
+                                return null;
+                            case "getParameterMetaData":
+                                return null;
+                            case "executeUpdate":
+                                if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                    throw new SQLException("connection refused");
+                                }
+                                Thread.sleep(latency);
+                                leases.incrementAndGet();
+                                return rows.computeIfPresent((String) params[2],
+                                        (key, max) -> max + ((Number) params[1]).longValue()) == null ? 0 : 1;
+                            case "executeQuery":
+                                return resultSet(rows.get((String) params[1]));
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private ResultSet resultSet(Long value) {
+            boolean[] read = new boolean[1];
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                boolean hasNext = value != null && !read[0];
+                                read[0] = true;
+                                return hasNext;
+                            case "getLong":
+                                return value;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
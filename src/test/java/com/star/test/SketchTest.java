@@ -0,0 +1,131 @@
+package com.star.test;
+
+import com.star.extra.CountMinSketch;
+import com.star.extra.HyperLogLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class SketchTest {
+
+    @Test
+    public void testHyperLogLogError() {
+        HyperLogLog hll = new HyperLogLog(14);
+        double bound = 3 * 1.04 / Math.sqrt(1 << 14);
+        long added = 0;
+        for (long cardinality : new long[]{10, 100, 1_000, 10_000, 100_000, 1_000_000, 5_000_000}) {
+            for (; added < cardinality; added++) {
+                hll.add("user:" + added);
+            }
+            long estimate = hll.cardinality();
+            double error = Math.abs(estimate - cardinality) / (double) cardinality;
+            System.out.println(String.format("cardinality %d: estimate %d, error %.4f%s", cardinality, estimate,
+                    error, hll.isSparse() ? " (sparse)" : ""));
+            Assert.assertTrue(error < bound);
+        }
+        // 重复加入不改变估计值
+        long before = hll.cardinality();
+        for (int i = 0; i < 1000; i++) {
+            hll.add("user:" + i);
+        }
+        Assert.assertEquals(before, hll.cardinality());
+        Assert.assertEquals(0, new HyperLogLog().cardinality());
+    }
+
+    @Test
+    public void testHyperLogLogSparseToDense() {
+        // 稀疏表示转为稠密后，与一开始就是稠密的结果一致
+        HyperLogLog sparse = new HyperLogLog(10);
+        HyperLogLog dense = new HyperLogLog(10);
+        for (int i = 0; i < 100_000; i++) {
+            dense.add((long) i);
+        }
+        Assert.assertFalse(dense.isSparse());
+        HyperLogLog small = new HyperLogLog(10);
+        for (int i = 0; i < 100; i++) {
+            small.add((long) i);
+        }
+        Assert.assertTrue(small.isSparse());
+        Assert.assertEquals(100, small.cardinality(), 1);
+        for (int i = 100; i < 100_000; i++) {
+            sparse.add((long) i);
+        }
+        sparse.merge(small);
+        Assert.assertEquals(dense.cardinality(), sparse.cardinality());
+    }
+
+    @Test
+    public void testHyperLogLogParallelMerge() throws InterruptedException {
+        int threads = 8;
+        int perThread = 500_000;
+        HyperLogLog[] locals = new HyperLogLog[threads];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            HyperLogLog local = locals[t] = new HyperLogLog();
+            int offset = t * perThread / 2;
+            workers[t] = new Thread(() -> {
+                // 相邻线程的元素有一半重叠
+                for (int i = 0; i < perThread; i++) {
+                    local.add((long) (offset + i));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        HyperLogLog merged = new HyperLogLog();
+        for (HyperLogLog local : locals) {
+            merged.merge(local);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        long exact = (threads + 1) * (long) perThread / 2;
+        double error = Math.abs(merged.cardinality() - exact) / (double) exact;
+        System.out.println(String.format("%d threads, %d events in %d ms: estimate %d, exact %d, error %.4f",
+                threads, threads * perThread, elapsed, merged.cardinality(), exact, error));
+        Assert.assertTrue(error < 3 * 1.04 / Math.sqrt(1 << 14));
+    }
+
+    @Test
+    public void testCountMinSketch() {
+        double epsilon = 0.001;
+        double delta = 0.01;
+        CountMinSketch sketch = new CountMinSketch(epsilon, delta);
+        CountMinSketch[] locals = {new CountMinSketch(epsilon, delta), new CountMinSketch(epsilon, delta)};
+        Map<Integer, Long> exact = new HashMap<>();
+        // 近似Zipf分布的事件流
+        Random random = new Random(9);
+        int events = 1_000_000;
+        for (int i = 0; i < events; i++) {
+            int key = (int) Math.pow(100_000, random.nextDouble());
+            sketch.add(key, 1);
+            locals[i & 1].add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+        CountMinSketch merged = new CountMinSketch(epsilon, delta);
+        for (CountMinSketch local : locals) {
+            merged.merge(local);
+        }
+        Assert.assertEquals(events, merged.getTotalCount());
+
+        int exceeded = 0;
+        long maxError = 0;
+        for (Map.Entry<Integer, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            Assert.assertEquals(estimate, merged.estimate(entry.getKey()));
+            Assert.assertTrue(estimate >= entry.getValue());
+            long error = estimate - entry.getValue();
+            maxError = Math.max(maxError, error);
+            if (error > epsilon * events) {
+                exceeded++;
+            }
+        }
+        System.out.println(String.format("count-min %dx%d: %d keys, max error %d, bound %d, exceeded %d",
+                sketch.getDepth(), sketch.getWidth(), exact.size(), maxError, (long) (epsilon * events), exceeded));
+        Assert.assertTrue(exceeded <= exact.size() * delta);
+    }
+}
@@ -2,8 +2,13 @@ package com.star.test;
 
 
 import com.star.id.Snowflake;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class SnowflakeTest {
 
     private static int measurements = 100; // 测量次数
@@ -21,6 +26,169 @@ public class SnowflakeTest {
 //                System.out.println(snowflake.nextId());
 //            }
 //        });
+        long last = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = snowflake.nextId();
+            Assert.assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws InterruptedException {
+        Snowflake snowflake = new Snowflake(1, 1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Thread[] workers = new Thread[16];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(snowflake.nextId());
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals(16 * 20_000, ids.size());
+    }
+
+    @Test
+    public void testIdBlock() {
+        Snowflake snowflake = new Snowflake(2, 3);
+        long first = snowflake.nextIdBlock(100);
+        long next = snowflake.nextId();
+        Assert.assertTrue(next > first + 99);
+
+        long[] ids = snowflake.nextIds(10_000);
+        Assert.assertEquals(10_000, ids.length);
+        Assert.assertTrue(ids[0] > next);
+        for (int i = 1; i < ids.length; i++) {
+            Assert.assertTrue(ids[i] > ids[i - 1]);
+        }
+    }
+
+    @Test
+    public void testClockBackward() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        Snowflake strict = new ManualClockSnowflake(clock, 0);
+        Snowflake tolerant = new ManualClockSnowflake(clock, 10);
+        long last = tolerant.nextId();
+        strict.nextId();
+
+        clock.addAndGet(-5);
+        try {
+            strict.nextId();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertEquals(1, strict.getClockBackwardRejectedCount());
+        }
+        // 回拨5毫秒内生成10000个ID，超过单毫秒4096个计数，逻辑时钟借用后续毫秒
+        for (int i = 0; i < 10_000; i++) {
+            long id = tolerant.nextId();
+            Assert.assertTrue(id > last);
+            last = id;
+        }
+        Assert.assertEquals(10_000, tolerant.getClockBackwardCount());
+        Assert.assertEquals(0, tolerant.getSequenceExhaustedCount());
+
+        clock.addAndGet(-20);
+        try {
+            tolerant.nextId();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertEquals(1, tolerant.getClockBackwardRejectedCount());
+        }
+        clock.addAndGet(30);
+        Assert.assertTrue(tolerant.nextId() > last);
+    }
+
+    @Test
+    public void testSequenceExhaustedWaits() {
+        Snowflake snowflake = new Snowflake(0, 0);
+        long start = System.nanoTime();
+        snowflake.nextIds(100_000);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        Assert.assertTrue(snowflake.getSequenceExhaustedCount() > 0);
+        System.out.println(String.format("100000 ids in %d ms, waited for next millisecond %d times", elapsed,
+                snowflake.getSequenceExhaustedCount()));
+    }
+
+    @Test
+    public void testThroughput() throws InterruptedException {
+        // 与原先synchronized实现对比吞吐，受每毫秒4096个计数的上限约束
+        Snowflake snowflake = new Snowflake(0, 0);
+        SynchronizedSnowflake synchronizedSnowflake = new SynchronizedSnowflake();
+        int total = 2_000_000;
+        for (int threadCount : new int[]{1, 8, 64}) {
+            long cas = measure(threadCount, total, snowflake::nextId);
+            long sync = measure(threadCount, total, synchronizedSnowflake::nextId);
+            long block = measure(threadCount, total / 100, () -> snowflake.nextIdBlock(100));
+            System.out.println(String.format("threads %d: cas %d ids/ms, synchronized %d ids/ms, block(100) %d ids/ms",
+                    threadCount, total / Math.max(cas, 1), total / Math.max(sync, 1), total / Math.max(block, 1)));
+        }
+    }
+
+    private static long measure(int threadCount, int total, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < total / threadCount; i++) {
+                    task.run();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * 手动控制时钟
+     */
+    private static class ManualClockSnowflake extends Snowflake {
+
+        private final AtomicLong clock;
+
+        ManualClockSnowflake(AtomicLong clock, long maxBackwardMillis) {
+            super(0, 0, false, maxBackwardMillis);
+            this.clock = clock;
+        }
+
+        @Override
+        protected long timeGen() {
+            return clock.get();
+        }
+    }
+
+    /**
+     * 原先加锁的实现，作为对比
+     */
+    private static class SynchronizedSnowflake {
+
+        private long sequence;
+        private long lastTimestamp = -1L;
+
+        synchronized long nextId() {
+            long timestamp = System.currentTimeMillis();
+            if (lastTimestamp == timestamp) {
+                sequence = (sequence + 1) & 4095;
+                if (sequence == 0) {
+                    while (timestamp <= lastTimestamp) {
+                        timestamp = System.currentTimeMillis();
+                    }
+                }
+            } else {
+                sequence = 0L;
+            }
+            lastTimestamp = timestamp;
+            return ((timestamp - 1288834974657L) << 22) | sequence;
+        }
     }
 
 //    @Test
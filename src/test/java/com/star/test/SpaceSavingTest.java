@@ -0,0 +1,164 @@
+package com.star.test;
+
+import com.star.extra.ConcurrentSpaceSaving;
+import com.star.extra.SpaceSaving;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+public class SpaceSavingTest {
+
+    /**
+     * 近似Zipf分布的键
+     */
+    private static int[] zipf(int events, int keys, long seed) {
+        Random random = new Random(seed);
+        int[] stream = new int[events];
+        for (int i = 0; i < events; i++) {
+            stream[i] = (int) Math.pow(keys, random.nextDouble() * random.nextDouble());
+        }
+        return stream;
+    }
+
+    @Test
+    public void testErrorBound() {
+        int capacity = 200;
+        int[] stream = zipf(1_000_000, 1_000_000, 1);
+        SpaceSaving<Integer> summary = new SpaceSaving<>(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        for (int key : stream) {
+            summary.offer(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+        Assert.assertEquals(stream.length, summary.getTotal());
+        Assert.assertEquals(capacity, summary.size());
+
+        long bound = stream.length / capacity;
+        List<SpaceSaving.Entry<Integer>> top = summary.top(capacity);
+        for (int i = 0; i < top.size(); i++) {
+            SpaceSaving.Entry<Integer> entry = top.get(i);
+            long actual = exact.get(entry.getItem());
+            Assert.assertTrue(entry.getCount() >= actual);
+            Assert.assertTrue(entry.getCount() - entry.getError() <= actual);
+            Assert.assertTrue(entry.getError() <= bound);
+            if (i > 0) {
+                Assert.assertTrue(entry.getCount() <= top.get(i - 1).getCount());
+            }
+        }
+        // 超过总数 / capacity的元素一定被跟踪
+        for (Map.Entry<Integer, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > bound) {
+                Assert.assertTrue(summary.estimate(entry.getKey()) >= entry.getValue());
+                Assert.assertTrue(top.stream().anyMatch(e -> e.getItem().equals(entry.getKey())));
+            }
+        }
+        for (SpaceSaving.Entry<Integer> hitter : summary.guaranteedHeavyHitters(0.01)) {
+            Assert.assertTrue(exact.get(hitter.getItem()) > stream.length * 0.01);
+        }
+        System.out.println("top 5: " + summary.top(5));
+    }
+
+    @Test
+    public void testWeightedAndMerge() {
+        SpaceSaving<String> left = new SpaceSaving<>(3);
+        SpaceSaving<String> right = new SpaceSaving<>(3);
+        left.offer("a", 10);
+        left.offer("b", 5);
+        left.offer("c");
+        left.offer("d");
+        right.offer("a", 3);
+        right.offer("e", 7);
+        Assert.assertEquals(17, left.getTotal());
+        Assert.assertEquals(2, left.top(3).get(2).getCount());
+        Assert.assertEquals(1, left.top(3).get(2).getError());
+
+        left.merge(right);
+        Assert.assertEquals(27, left.getTotal());
+        List<SpaceSaving.Entry<String>> top = left.top(3);
+        Assert.assertEquals("a", top.get(0).getItem());
+        Assert.assertEquals(13, top.get(0).getCount());
+        long sum = top.stream().mapToLong(SpaceSaving.Entry::getCount).sum();
+        Assert.assertEquals(27, sum);
+
+        // 另一方已满时，它没有跟踪的元素也可能出现过，合并后的计数仍不低于真实值
+        SpaceSaving<String> a = new SpaceSaving<>(2);
+        a.offer("x", 10);
+        a.offer("y");
+        SpaceSaving<String> b = new SpaceSaving<>(2);
+        b.offer("x");
+        b.offer("z", 5);
+        b.offer("w", 5);
+        a.merge(b);
+        Assert.assertEquals(22, a.getTotal());
+        Map<String, Long> exact = new HashMap<>();
+        exact.put("x", 11L);
+        exact.put("y", 1L);
+        exact.put("z", 5L);
+        exact.put("w", 5L);
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            Assert.assertTrue(a.estimate(entry.getKey()) >= entry.getValue());
+        }
+        for (SpaceSaving.Entry<String> entry : a.top(2)) {
+            Assert.assertTrue(entry.getCount() - entry.getError() <= exact.get(entry.getItem()));
+        }
+        Assert.assertEquals("x", a.top(1).get(0).getItem());
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        ConcurrentSpaceSaving<Integer> hotKeys = new ConcurrentSpaceSaving<>(100);
+        SpaceSaving<Integer> locked = new SpaceSaving<>(100);
+        int threads = 8;
+        int perThread = 500_000;
+        int[][] streams = new int[threads][];
+        for (int t = 0; t < threads; t++) {
+            streams[t] = zipf(perThread, 100_000, t);
+        }
+        AtomicLong bufferedTime = new AtomicLong();
+        AtomicLong lockedTime = new AtomicLong();
+        for (int round = 0; round < 2; round++) {
+            hotKeys.clear();
+            locked.clear();
+            run(streams, key -> {
+                synchronized (locked) {
+                    locked.offer(key);
+                }
+            }, lockedTime);
+            run(streams, hotKeys::offer, bufferedTime);
+            System.out.println(String.format("%d threads x %d offers: thread buffers %d ms, single lock %d ms",
+                    threads, perThread, bufferedTime.get(), lockedTime.get()));
+        }
+        Assert.assertEquals((long) threads * perThread, hotKeys.getTotal());
+        List<SpaceSaving.Entry<Integer>> top = hotKeys.top(10);
+        // 分布中最热的键
+        Assert.assertEquals(Integer.valueOf(1), top.get(0).getItem());
+        Assert.assertEquals(locked.top(1).get(0).getItem(), top.get(0).getItem());
+    }
+
+    private static void run(int[][] streams, IntConsumer offer, AtomicLong elapsed)
+            throws InterruptedException {
+        Thread[] workers = new Thread[streams.length];
+        for (int t = 0; t < streams.length; t++) {
+            int[] stream = streams[t];
+            workers[t] = new Thread(() -> {
+                for (int key : stream) {
+                    offer.accept(key);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        elapsed.set((System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,192 @@
+package com.star.test;
+
+import com.star.cache.simple.SimpleCache;
+import com.star.cache.tiered.TieredCache;
+import com.star.cache.tinylfu.TinyLfuCache;
+import com.star.io.serializer.JavaSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TieredCacheTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("tiered", ".log");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private TieredCache<String, String> open(int l1Size) {
+        return new TieredCache<>(new TinyLfuCache<>(l1Size), new JavaSerializer(), file, 1 << 16);
+    }
+
+    @Test
+    public void testOperations() {
+        try (TieredCache<String, String> cache = open(10)) {
+            cache.put("key", "value");
+            Assert.assertEquals("value", cache.get("key"));
+            cache.put("key", "another value");
+            Assert.assertEquals("another value", cache.get("key"));
+            Assert.assertEquals(1, cache.size());
+
+            cache.remove("key");
+            Assert.assertNull(cache.get("key"));
+            Assert.assertEquals(0, cache.size());
+
+            cache.put("key", "value");
+            cache.clear();
+            Assert.assertEquals(0, cache.size());
+            Assert.assertNull(cache.get("key"));
+        }
+    }
+
+    @Test
+    public void testFillRacesRemove() throws InterruptedException {
+        final CountDownLatch filling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SimpleCache<String, String> l1 = new SimpleCache<String, String>() {
+            @Override
+            public String put(String key, String value) {
+                if (filling.getCount() > 0 && Thread.currentThread().getName().equals("reader")) {
+                    filling.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.put(key, value);
+            }
+        };
+        try (TieredCache<String, String> cache = new TieredCache<>(l1, new JavaSerializer(), file, 1 << 16)) {
+            cache.put("key", "value");
+            l1.clear();
+            // 二级命中后回填一级时被删除，回填不能把旧值写回一级
+            final Thread reader = new Thread(() -> cache.get("key"), "reader");
+            reader.start();
+            Assert.assertTrue(filling.await(10, TimeUnit.SECONDS));
+            final Thread remover = new Thread(() -> cache.remove("key"));
+            remover.start();
+            remover.join(200);
+            release.countDown();
+            reader.join();
+            remover.join();
+            Assert.assertNull(l1.get("key"));
+            Assert.assertNull(cache.get("key"));
+        }
+    }
+
+    @Test
+    public void testWarmRestart() {
+        int count = 20_000;
+        try (TieredCache<String, String> cache = open(100)) {
+            for (int i = 0; i < count; i++) {
+                cache.put("key" + i, "value" + i);
+            }
+            cache.remove("key0");
+            cache.put("key1", "changed");
+        }
+
+        long start = System.nanoTime();
+        try (TieredCache<String, String> cache = open(100)) {
+            long opened = System.nanoTime() - start;
+            Assert.assertEquals(count - 1, cache.size());
+            Assert.assertNull(cache.get("key0"));
+            Assert.assertEquals("changed", cache.get("key1"));
+            Assert.assertEquals("value" + (count - 1), cache.get("key" + (count - 1)));
+            System.out.println(String.format("reopen %d entries, %d bytes in %d ms", cache.size(),
+                    cache.getFileUsed(), opened / 1_000_000));
+        }
+    }
+
+    @Test
+    public void testTornWriteRecovery() throws IOException {
+        long tail;
+        try (TieredCache<String, String> cache = open(10)) {
+            cache.put("a", "1");
+            cache.put("b", "2");
+            tail = cache.getFileUsed();
+            cache.put("c", "3");
+        }
+        // 模拟崩溃时最后一条记录只写了一半
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), tail + 20);
+        }
+        try (TieredCache<String, String> cache = open(10)) {
+            Assert.assertEquals(2, cache.size());
+            Assert.assertEquals("1", cache.get("a"));
+            Assert.assertEquals("2", cache.get("b"));
+            Assert.assertNull(cache.get("c"));
+            Assert.assertEquals(tail, cache.getFileUsed());
+            cache.put("d", "4");
+        }
+        try (TieredCache<String, String> cache = open(10)) {
+            Assert.assertEquals(3, cache.size());
+            Assert.assertEquals("4", cache.get("d"));
+        }
+    }
+
+    @Test
+    public void testCorruptHeaderRecovery() throws IOException {
+        long tail;
+        try (TieredCache<String, String> cache = open(10)) {
+            cache.put("a", "1");
+            tail = cache.getFileUsed();
+            cache.put("b", "2");
+        }
+        // 损坏的记录头长度相加会溢出，打开时截断在这条记录，不抛出异常
+        for (int[] lengths : new int[][]{{0x7fffffff, 1}, {1, 0x7ffffff8}, {0x7ffffff0, 0x7ffffff0}}) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(lengths[0]).putInt(lengths[1]).flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(header, tail);
+            }
+            try (TieredCache<String, String> cache = open(10)) {
+                Assert.assertEquals(1, cache.size());
+                Assert.assertEquals("1", cache.get("a"));
+                Assert.assertEquals(tail, cache.getFileUsed());
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() {
+        String value = new String(new char[1000]).replace('\0', 'x');
+        try (TieredCache<Integer, String> cache = new TieredCache<>(new TinyLfuCache<>(10), new JavaSerializer(),
+                file, 1 << 16)) {
+            for (int i = 0; i < 20_000; i++) {
+                cache.put(i % 100, value + i);
+            }
+            Assert.assertEquals(100, cache.size());
+            Assert.assertTrue(cache.getFileUsed() < 4 << 20);
+            long before = cache.getFileUsed();
+            cache.compact();
+            Assert.assertTrue(cache.getFileUsed() <= before);
+            Assert.assertEquals(value + 19_999, cache.get(99));
+            System.out.println(String.format("file used after 20000 overwrites: %d, after compact: %d", before,
+                    cache.getFileUsed()));
+        }
+        try (TieredCache<Integer, String> cache = new TieredCache<>(new TinyLfuCache<>(10), new JavaSerializer(),
+                file, 1 << 16)) {
+            Assert.assertEquals(100, cache.size());
+            Assert.assertEquals(value + 19_950, cache.get(50));
+        }
+    }
+}
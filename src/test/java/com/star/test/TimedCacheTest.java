@@ -0,0 +1,51 @@
+package com.star.test;
+
+import com.star.cache.timed.TimedCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TimedCacheTest {
+
+    @Test
+    public void testExpireAfterWrite() throws InterruptedException {
+        TimedCache<String, String> cache = new TimedCache<>(100, TimeUnit.MILLISECONDS);
+        cache.put("key", "value");
+        cache.put("forever", "value", 0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals("value", cache.get("key"));
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals("value", cache.get("forever"));
+    }
+
+    @Test
+    public void testExpireAfterAccess() throws InterruptedException {
+        TimedCache<String, String> cache = new TimedCache<>(0, 150, TimeUnit.MILLISECONDS);
+        cache.put("key", "value");
+        for (int i = 0; i < 6; i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+            Assert.assertEquals("value", cache.get("key"));
+        }
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        Assert.assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testTimerWheelCleanUp() throws InterruptedException {
+        TimedCache<Integer, Integer> cache = new TimedCache<>(50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        cache.put(-1, -1, 1, TimeUnit.HOURS);
+        Assert.assertEquals(10_001, cache.size());
+
+        // 时间轮最小刻度约1秒
+        TimeUnit.MILLISECONDS.sleep(2100);
+        cache.cleanUp();
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(Integer.valueOf(-1), cache.remove(-1));
+    }
+}
@@ -0,0 +1,162 @@
+package com.star.test;
+
+import com.star.cache.Cache;
+import com.star.cache.Weigher;
+import com.star.cache.simple.SimpleCache;
+import com.star.cache.tinylfu.TinyLfuCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TinyLfuCacheTest {
+
+    private static int keySpace = 100_000; // 键空间
+
+    private static int maximum = 1_000; // 缓存容量
+
+    private static int traceLength = 1_000_000; // 访问次数
+
+    @Test
+    public void testBounded() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(maximum);
+        for (int i = 0; i < keySpace; i++) {
+            cache.put(i, i);
+            Assert.assertTrue(cache.size() <= maximum);
+        }
+        Assert.assertEquals(maximum, cache.size());
+
+        cache.put(-1, -1);
+        Assert.assertEquals(Integer.valueOf(-1), cache.get(-1));
+        Assert.assertEquals(Integer.valueOf(-1), cache.remove(-1));
+        Assert.assertNull(cache.get(-1));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testWeighted() {
+        long maximumWeight = 1 << 20;
+        TinyLfuCache<Integer, byte[]> cache = new TinyLfuCache<>(maximumWeight, Weigher.memory());
+        Random random = new Random(42L);
+        for (int i = 0; i < 10_000; i++) {
+            // 大小从几十字节到几百K不等
+            cache.put(i, new byte[1 << random.nextInt(19)]);
+            Assert.assertTrue(cache.weightedSize() <= maximumWeight);
+        }
+        System.out.println(String.format("weighted entries: %d, weight: %d", cache.size(), cache.weightedSize()));
+
+        cache.clear();
+        cache.put(1, new byte[100]);
+        Assert.assertEquals(Weigher.memory().weigh(1, new byte[100]), cache.weightedSize());
+        cache.put(1, new byte[1000]);
+        Assert.assertEquals(Weigher.memory().weigh(1, new byte[1000]), cache.weightedSize());
+        // 超过最大容量的不缓存，并移除旧值
+        cache.put(1, new byte[2 << 20]);
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals(0, cache.weightedSize());
+
+        Assert.assertEquals(32 + 120, Weigher.memory().weigh(new byte[10], new byte[100]));
+        Assert.assertEquals(1, Weigher.singleton().weigh("key", "value"));
+    }
+
+    @Test
+    public void testZipfianHitRate() {
+        int[] trace = zipfTrace(keySpace, 0.9d, traceLength, 42L);
+
+        double tinyLfu = hitRate(new TinyLfuCache<>(maximum), trace);
+        double lru = hitRate(new LruCache<>(maximum), trace);
+        double simple = hitRate(new SimpleCache<>(), trace);
+
+        System.out.println(String.format("zipf(0.9) tinylfu: %.4f, lru: %.4f, simple(unbounded): %.4f", tinyLfu, lru, simple));
+        Assert.assertTrue(tinyLfu > lru);
+    }
+
+    @Test
+    public void testScanResistance() {
+        // 热点数据中混入一次性扫描，LRU会被冲刷，TinyLFU的准入策略能挡住扫描
+        int[] hot = zipfTrace(maximum, 1.0d, traceLength / 2, 7L);
+        int[] trace = new int[hot.length * 2];
+        int scan = keySpace;
+        for (int i = 0; i < hot.length; i++) {
+            trace[i << 1] = hot[i];
+            trace[(i << 1) + 1] = scan++;
+        }
+
+        double tinyLfu = hitRate(new TinyLfuCache<>(maximum), trace);
+        double lru = hitRate(new LruCache<>(maximum), trace);
+
+        System.out.println(String.format("zipf + scan tinylfu: %.4f, lru: %.4f", tinyLfu, lru));
+        Assert.assertTrue(tinyLfu > lru);
+    }
+
+    private static double hitRate(Cache<Integer, Integer> cache, int[] trace) {
+        long hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            } else {
+                hits++;
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static int[] zipfTrace(int n, double skew, int length, long seed) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0d / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace[i] = index < 0 ? -index - 1 : index;
+        }
+        return trace;
+    }
+
+    /**
+     * 对照组，LinkedHashMap实现的LRU
+     */
+    private static class LruCache<K, V> implements Cache<K, V> {
+
+        private final Map<K, V> map;
+
+        LruCache(int maximum) {
+            this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > maximum;
+                }
+            };
+        }
+
+        @Override
+        public V get(K key) {
+            return map.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            map.put(key, value);
+            return value;
+        }
+
+        @Override
+        public V remove(K key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+}